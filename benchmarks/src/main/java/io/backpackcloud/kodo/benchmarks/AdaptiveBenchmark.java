@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo.benchmarks;
+
+import io.backpackcloud.kodo.Expectation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Benchmarks for {@link Expectation#satisfyAll(Predicate[])} against a plain
+ * {@link Predicate#and(Predicate)} chain, with every thread sharing the same
+ * composition (the way a spec runs under {@code parallelEach}). The predicates
+ * are cheap, so any contention on the composition's statistics shows up, and
+ * the plain chain is written in a worse order than the one satisfyAll learns.
+ * <p>
+ * Runs with 4 threads; use {@code -t} to change it.
+ *
+ * @author Marcelo Guimarães
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AdaptiveBenchmark {
+
+  /**
+   * In a real test suite, {@link Predicate#and(Predicate)} and
+   * {@link Predicate#or(Predicate)} compose many different predicates, so their
+   * calls can't be inlined for a single type. When set, other compositions are
+   * first evaluated to get the JIT to the same state.
+   */
+  @Param({"false", "true"})
+  private boolean polluted;
+
+  private Predicate<String> adaptive;
+  private Predicate<String> chained;
+
+  @Setup
+  public void setup() {
+    if (polluted) {
+      pollute();
+    }
+    Predicate<String> length = s -> s.length() > 7;
+    Predicate<String> prefix = s -> s.startsWith("record-");
+    Predicate<String> even = s -> (s.charAt(s.length() - 1) & 1) == 0;
+    adaptive = Expectation.to().satisfyAll(length, prefix, even);
+    chained = length.and(prefix).and(even);
+  }
+
+  @State(Scope.Thread)
+  public static class Values {
+
+    private String[] values;
+
+    @Setup
+    public void setup() {
+      values = values();
+    }
+
+    private String[] values() {
+      String[] values = new String[1000];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = "record-" + i;
+      }
+      return values;
+    }
+
+  }
+
+  @Benchmark
+  public int satisfyAll(Values values) {
+    return count(adaptive, values.values);
+  }
+
+  @Benchmark
+  public int predicateAnd(Values values) {
+    return count(chained, values.values);
+  }
+
+  private void pollute() {
+    List<Predicate<String>> predicates = new ArrayList<>();
+    predicates.add(String::isEmpty);
+    predicates.add(s -> s.charAt(0) == 'r');
+    predicates.add(s -> s.endsWith("0"));
+    predicates.add(s -> s.indexOf('-') > 0);
+    predicates.add(s -> s.hashCode() % 3 == 0);
+    String[] values = new Values().values();
+    for (int i = 0; i < 20_000; i++) {
+      Predicate<String> first = predicates.get(i % predicates.size());
+      Predicate<String> second = predicates.get((i / predicates.size()) % predicates.size());
+      count(first.and(second).or(first.negate()), values);
+      count(Expectation.to().satisfyAll(first, second), values);
+    }
+  }
+
+  private static int count(Predicate<String> predicate, String[] values) {
+    int accepted = 0;
+    for (String value : values) {
+      if (predicate.test(value)) {
+        accepted++;
+      }
+    }
+    return accepted;
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo.benchmarks;
+
+import io.backpackcloud.kodo.Spec;
+import io.backpackcloud.kodo.SpecDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static io.backpackcloud.kodo.Expectation.it;
+import static io.backpackcloud.kodo.Expectation.to;
+
+/**
+ * Benchmarks that lock in the allocation free passing path: with the
+ * predicates built upfront, evaluating expectations against an existing
+ * {@link SpecDefinition} should report {@code ~0 B/op} on
+ * {@code gc.alloc.rate.norm}.
+ *
+ * @author Marcelo Guimarães
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+
+  private String target;
+  private SpecDefinition<String> spec;
+
+  private final Function<String, Integer> length = String::length;
+  private final Function<String, Boolean> notEmpty = s -> !s.isEmpty();
+
+  private Predicate<Integer> beFour;
+  private Predicate<Integer> notBeZero;
+  private Predicate<String> beTarget;
+
+  @Setup
+  public void setup() {
+    target = "kodo";
+    spec = Spec.given(target);
+    beFour = to().be(4);
+    notBeZero = to().not().be(0);
+    beTarget = to().be(target);
+  }
+
+  @Benchmark
+  public SpecDefinition<String> expectChain() {
+    return spec
+        .expect(length, beFour)
+        .expect(length, notBeZero)
+        .expect(it(), beTarget)
+        .expect(notEmpty)
+        .expect(target != null);
+  }
+
+  @Benchmark
+  public SpecDefinition<String> givenAndExpectChain() {
+    return Spec.given(target)
+        .expect(length, beFour)
+        .expect(length, notBeZero)
+        .expect(it(), beTarget)
+        .expect(notEmpty)
+        .expect(target != null);
+  }
+
+}
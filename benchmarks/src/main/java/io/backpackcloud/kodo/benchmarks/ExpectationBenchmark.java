@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo.benchmarks;
+
+import io.backpackcloud.kodo.Expectation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Benchmarks for creating and evaluating the predicates built by
+ * {@link Expectation}.
+ *
+ * @author Marcelo Guimarães
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpectationBenchmark {
+
+  private String value;
+  private String other;
+  private Exception exception;
+
+  private Predicate<String> be;
+  private Predicate<String> notBe;
+  private Predicate<Exception> raise;
+
+  @Setup
+  public void setup() {
+    value = "kodo";
+    other = "other";
+    exception = new IllegalArgumentException();
+    be = Expectation.to().be(value);
+    notBe = Expectation.to().not().be(value);
+    raise = Expectation.to().raise(IllegalArgumentException.class);
+  }
+
+  @Benchmark
+  public Expectation createTo() {
+    return Expectation.to();
+  }
+
+  @Benchmark
+  public Expectation createToNot() {
+    return Expectation.to().not();
+  }
+
+  @Benchmark
+  public Predicate<String> createBe() {
+    return Expectation.to().be(value);
+  }
+
+  @Benchmark
+  public Predicate<String> createNotBe() {
+    return Expectation.to().not().be(value);
+  }
+
+  @Benchmark
+  public Predicate<Exception> createRaise() {
+    return Expectation.to().raise(IllegalArgumentException.class);
+  }
+
+  @Benchmark
+  public boolean bePassing() {
+    return be.test(value);
+  }
+
+  @Benchmark
+  public boolean beFailing() {
+    return be.test(other);
+  }
+
+  @Benchmark
+  public boolean notBePassing() {
+    return notBe.test(other);
+  }
+
+  @Benchmark
+  public boolean notBeFailing() {
+    return notBe.test(value);
+  }
+
+  @Benchmark
+  public boolean raisePassing() {
+    return raise.test(exception);
+  }
+
+  @Benchmark
+  public boolean raiseFailing() {
+    return raise.test(null);
+  }
+
+  @Benchmark
+  public boolean createAndTestBe() {
+    return Expectation.to().be(value).test(value);
+  }
+
+}
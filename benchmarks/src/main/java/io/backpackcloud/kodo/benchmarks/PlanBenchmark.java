@@ -0,0 +1,205 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo.benchmarks;
+
+import io.backpackcloud.kodo.Spec;
+import io.backpackcloud.kodo.SpecPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import static io.backpackcloud.kodo.Expectation.it;
+import static io.backpackcloud.kodo.Expectation.to;
+
+/**
+ * Compares building the fluent chain for each record with executing a
+ * {@link SpecPlan} recorded once.
+ *
+ * @author Marcelo Guimarães
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanBenchmark {
+
+  /**
+   * In a real test suite, the spec methods are called with many different
+   * functions and predicates, so their calls can't be inlined for a single
+   * type. When set, both approaches are first run with other types to get
+   * the JIT to the same state.
+   */
+  @Param({"false", "true"})
+  private boolean polluted;
+
+  private List<String> records;
+  private SpecPlan<String> plan;
+  private SpecPlan<String> widePlan;
+  private SpecPlan<String> composedPlan;
+
+  @Setup
+  public void setup() {
+    records = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      records.add("record-" + i);
+    }
+    plan = Spec.plan(String.class)
+        .expect(String::length, to().not().be(0))
+        .expectInt(String::length, to().beBetween(8, 12))
+        .expect(s -> s.startsWith("record-"), to().be(true));
+    widePlan = Spec.plan(String.class)
+        .expect(String::length, to().not().be(0))
+        .expectInt(String::length, to().beBetween(8, 12))
+        .expect(s -> s.startsWith("record-"), to().be(true))
+        .expect(s -> s.charAt(0), to().be('r'))
+        .expectInt(s -> s.indexOf('-'), to().beBetween(6, 6))
+        .expect(s -> s.substring(0, 6), to().be("record"))
+        .expect(String::isEmpty, to().be(false))
+        .expectInt(s -> s.lastIndexOf('-'), to().beBetween(6, 6))
+        .expect(String::trim, to().not().be(""))
+        .expectInt(String::hashCode, to().not().beBetween(0, 0))
+        .expect(s -> s.contains(" "), to().be(false))
+        .expect(s -> s.endsWith("-"), to().be(false));
+    composedPlan = Spec.plan(String.class)
+        .expect(it(), to().satisfyAll(s -> s.length() > 7, s -> s.startsWith("record-"),
+            s -> s.indexOf(' ') < 0, s -> Character.isDigit(s.charAt(s.length() - 1))))
+        .expect(it(), to().satisfyAny(s -> s.endsWith("0"), s -> s.length() > 8, s -> s.contains("-")));
+    if (polluted) {
+      pollute();
+    }
+  }
+
+  private void pollute() {
+    List<Function<String, Object>> functions = new ArrayList<>();
+    functions.add(String::toUpperCase);
+    functions.add(String::toLowerCase);
+    functions.add(String::intern);
+    functions.add(s -> s.charAt(1));
+    functions.add(s -> s.indexOf('r'));
+    functions.add(s -> s.endsWith("0"));
+    List<ToIntFunction<String>> intFunctions = new ArrayList<>();
+    intFunctions.add(String::length);
+    intFunctions.add(s -> s.indexOf('e'));
+    intFunctions.add(s -> s.lastIndexOf('e'));
+    intFunctions.add(s -> s.charAt(0));
+    for (int i = 0; i < 20_000; i++) {
+      String record = records.get(i % records.size());
+      Function<String, Object> function = functions.get(i % functions.size());
+      ToIntFunction<String> intFunction = intFunctions.get(i % intFunctions.size());
+      Spec.given(record)
+          .expect(function, to().not().be(""))
+          .expect(function, to().be(value -> true))
+          .expectInt(intFunction, to().beBetween(-1, 1000))
+          .expectInt(intFunction, value -> value < 1000);
+      Spec.plan(String.class)
+          .expect(function, to().not().be(""))
+          .expect(function, to().be(value -> true))
+          .expectInt(intFunction, to().beBetween(-1, 1000))
+          .expectInt(intFunction, value -> value < 1000)
+          .run(record);
+    }
+  }
+
+  @Benchmark
+  public void fluent() {
+    for (String record : records) {
+      Spec.given(record)
+          .expect(String::length, to().not().be(0))
+          .expectInt(String::length, to().beBetween(8, 12))
+          .expect(s -> s.startsWith("record-"), to().be(true));
+    }
+  }
+
+  @Benchmark
+  public void plan() {
+    plan.runAll(records);
+  }
+
+  /**
+   * A spec with more expectations, closer to what real record validations
+   * look like: the chain is too big to be inlined as a whole, so each record
+   * pays for building it.
+   */
+  @Benchmark
+  public void fluentWide() {
+    for (String record : records) {
+      Spec.given(record)
+          .expect(String::length, to().not().be(0))
+          .expectInt(String::length, to().beBetween(8, 12))
+          .expect(s -> s.startsWith("record-"), to().be(true))
+          .expect(s -> s.charAt(0), to().be('r'))
+          .expectInt(s -> s.indexOf('-'), to().beBetween(6, 6))
+          .expect(s -> s.substring(0, 6), to().be("record"))
+          .expect(String::isEmpty, to().be(false))
+          .expectInt(s -> s.lastIndexOf('-'), to().beBetween(6, 6))
+          .expect(String::trim, to().not().be(""))
+          .expectInt(String::hashCode, to().not().beBetween(0, 0))
+          .expect(s -> s.contains(" "), to().be(false))
+          .expect(s -> s.endsWith("-"), to().be(false));
+    }
+  }
+
+  @Benchmark
+  public void planWide() {
+    widePlan.runAll(records);
+  }
+
+  /**
+   * A spec whose predicates are costly to build and keep state: the fluent
+   * chain composes new predicates for each record, while the plan builds
+   * them once and lets them adapt across records.
+   */
+  @Benchmark
+  public void fluentComposed() {
+    for (String record : records) {
+      Spec.given(record)
+          .expect(it(), to().satisfyAll(s -> s.length() > 7, s -> s.startsWith("record-"),
+              s -> s.indexOf(' ') < 0, s -> Character.isDigit(s.charAt(s.length() - 1))))
+          .expect(it(), to().satisfyAny(s -> s.endsWith("0"), s -> s.length() > 8, s -> s.contains("-")));
+    }
+  }
+
+  @Benchmark
+  public void planComposed() {
+    composedPlan.runAll(records);
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo.benchmarks;
+
+import io.backpackcloud.kodo.Spec;
+import io.backpackcloud.kodo.SpecDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+import static io.backpackcloud.kodo.Expectation.to;
+
+/**
+ * Compares the boxed {@code expect} overloads with the primitive
+ * specializations for numeric checks.
+ *
+ * @author Marcelo Guimarães
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveBenchmark {
+
+  public static class Record {
+    final int quantity;
+    final double price;
+
+    Record(int quantity, double price) {
+      this.quantity = quantity;
+      this.price = price;
+    }
+  }
+
+  private SpecDefinition<Record> spec;
+
+  private final Function<Record, Integer> boxedQuantity = r -> r.quantity;
+  private final Function<Record, Double> boxedPrice = r -> r.price;
+  private final ToIntFunction<Record> quantity = r -> r.quantity;
+  private final ToDoubleFunction<Record> price = r -> r.price;
+
+  private Predicate<Integer> boxedQuantityRange;
+  private Predicate<Double> boxedPriceRange;
+  private IntPredicate quantityRange;
+  private DoublePredicate priceRange;
+
+  @Setup
+  public void setup() {
+    spec = Spec.given(new Record(5_000, 1234.56));
+    boxedQuantityRange = q -> q >= 1 && q <= 10_000;
+    boxedPriceRange = p -> p >= 0.0 && p <= 10_000.0;
+    quantityRange = to().beBetween(1, 10_000);
+    priceRange = to().beBetween(0.0, 10_000.0);
+  }
+
+  @Benchmark
+  public SpecDefinition<Record> boxed() {
+    return spec
+        .expect(boxedQuantity, boxedQuantityRange)
+        .expect(boxedPrice, boxedPriceRange);
+  }
+
+  @Benchmark
+  public SpecDefinition<Record> primitive() {
+    return spec
+        .expectInt(quantity, quantityRange)
+        .expectDouble(price, priceRange);
+  }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo.benchmarks;
+
+import io.backpackcloud.kodo.Expectation;
+import io.backpackcloud.kodo.Spec;
+import io.backpackcloud.kodo.SpecDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static io.backpackcloud.kodo.Expectation.to;
+
+/**
+ * Benchmarks for the {@link SpecDefinition} operations, covering both the
+ * passing and the failing paths.
+ * <p>
+ * Failing benchmarks come in two flavours: the ones suffixed with
+ * {@code Throwing} use the default fail operation (and pay for the
+ * {@link AssertionError}), the others use a non throwing fail operation
+ * registered through {@link SpecDefinition#onFail(Consumer)}.
+ *
+ * @author Marcelo Guimarães
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecDefinitionBenchmark {
+
+  private Integer target;
+  private List<Integer> elements;
+  private int failures;
+
+  private final Function<Integer, Integer> doubled = i -> i * 2;
+  private final Function<Integer, Boolean> positive = i -> i > 0;
+  private final Function<Integer, Boolean> negative = i -> i < 0;
+  private final Consumer<Integer> nothing = i -> {
+  };
+  private final Consumer<Integer> raising = i -> {
+    throw new IllegalStateException();
+  };
+  private final Supplier<Integer> supplier = () -> 42;
+  private final Consumer<Object> countFailure = o -> failures++;
+  private final Consumer lightweight = Expectation.throwLightweightError();
+
+  private Predicate<Integer> beDoubled;
+  private Predicate<Integer> notBeDoubled;
+  private Predicate<Exception> succeed;
+  private Predicate<Exception> raise;
+
+  @Setup
+  public void setup() {
+    target = 21;
+    elements = new ArrayList<>();
+    for (int i = 1; i <= 100; i++) {
+      elements.add(i);
+    }
+    beDoubled = to().be(42);
+    notBeDoubled = to().not().be(42);
+    succeed = to().succeed();
+    raise = to().raise(IllegalStateException.class);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> given() {
+    return Spec.given(target);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> givenFunction() {
+    return Spec.given(elements).given(list -> list.get(0));
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> onFail() {
+    return Spec.given(target).onFail(countFailure);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> expectFunctionPassing() {
+    return Spec.given(target).expect(doubled, beDoubled);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> expectFunctionFailing() {
+    return Spec.given(target).onFail(countFailure).expect(doubled, notBeDoubled);
+  }
+
+  @Benchmark
+  public Object expectFunctionThrowing() {
+    try {
+      return Spec.given(target).expect(doubled, notBeDoubled);
+    } catch (AssertionError e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object expectFunctionThrowingLightweight() {
+    try {
+      return Spec.given(target).onFail(lightweight).expect(doubled, notBeDoubled);
+    } catch (AssertionError e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> expectSupplierPassing() {
+    return Spec.given(target).expect(supplier, beDoubled);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> expectSupplierFailing() {
+    return Spec.given(target).onFail(countFailure).expect(supplier, notBeDoubled);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> expectBooleanFunctionPassing() {
+    return Spec.given(target).expect(positive);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> expectBooleanFunctionFailing() {
+    return Spec.given(target).onFail(countFailure).expect(negative);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> expectBooleanPassing() {
+    return Spec.given(target).expect(target > 0);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> expectBooleanFailing() {
+    return Spec.given(target).onFail(countFailure).expect(target < 0);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> expectOperationPassing() {
+    return Spec.given(target).expect(nothing, succeed);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> expectOperationRaisingPassing() {
+    return Spec.given(target).expect(raising, raise);
+  }
+
+  @Benchmark
+  public SpecDefinition<Integer> expectOperationFailing() {
+    return Spec.given(target).onFail(countFailure).expect(nothing, raise);
+  }
+
+  @Benchmark
+  public SpecDefinition<List<Integer>> eachPassing() {
+    return Spec.given(elements).each(Integer.class, spec -> spec.expect(positive));
+  }
+
+  @Benchmark
+  public SpecDefinition<List<Integer>> eachFailing() {
+    return Spec.given(elements).onFail(countFailure).each(Integer.class, spec -> spec.expect(negative));
+  }
+
+}
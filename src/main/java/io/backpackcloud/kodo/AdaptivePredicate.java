@@ -0,0 +1,231 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * A composition of predicates (all of them or any of them should accept the
+ * value) that learns the cheapest order to evaluate them.
+ * <p>
+ * It samples one evaluation in 16 to measure how long each predicate takes and
+ * how often it decides the result (rejects the value for {@code all}, accepts
+ * it for {@code any}), and periodically sorts them by the expected cost of
+ * reaching a decision: {@code cost / P(decides)}. Cheap and selective checks
+ * end up first, so the composition short-circuits as early as possible. A new
+ * order is only taken if it is expected to be at least 10% cheaper; each time
+ * the order holds, the sampling rate halves (down to one evaluation in 1024)
+ * and a change brings it back to one in 16. Between samples, the predicates
+ * are evaluated through a plain {@code and}/{@code or} chain built in the
+ * current order.
+ * <p>
+ * The sampling decision is thread local and unsampled evaluations only read the
+ * shared state, so threads evaluating the same composition (through
+ * {@code parallelEach} or a {@link Parallelism}) don't contend for the
+ * counters on every call. The statistics are updated without synchronization,
+ * since they only guide the order: lost updates under concurrency are
+ * harmless. Since the order changes, the predicates should not have side
+ * effects.
+ *
+ * @author Marcelo Guimarães
+ * @see Expectation#satisfyAll(Predicate[])
+ * @see Expectation#satisfyAny(Predicate[])
+ * @since 4.1
+ */
+final class AdaptivePredicate<T> implements Predicate<T> {
+
+  private static final int SAMPLE_MASK = 15;
+  private static final int MAX_SAMPLE_MASK = 1023;
+  private static final int REORDER_MASK = 63;
+
+  private final Predicate<? super T>[] predicates;
+  private final boolean all;
+  private final boolean negated;
+
+  private final long[] evaluations;
+  private final long[] decisions;
+  private final long[] nanos;
+  private volatile int[] order;
+  private volatile Predicate<? super T> composed;
+  private int sampleMask = SAMPLE_MASK;
+  private int sampled;
+
+  AdaptivePredicate(Predicate<? super T>[] predicates, boolean all) {
+    this(predicates, all, false);
+  }
+
+  private AdaptivePredicate(Predicate<? super T>[] predicates, boolean all, boolean negated) {
+    if (predicates.length == 0) {
+      throw new IllegalArgumentException("No predicates to compose");
+    }
+    this.predicates = predicates.clone();
+    this.all = all;
+    this.negated = negated;
+    int size = predicates.length;
+    this.evaluations = new long[size];
+    this.decisions = new long[size];
+    this.nanos = new long[size];
+    int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    this.order = order;
+    this.composed = compose(order);
+  }
+
+  @Override
+  public boolean test(T value) {
+    if ((ThreadLocalRandom.current().nextInt() & sampleMask) == 0) {
+      return negated != sample(value);
+    }
+    return negated != composed.test(value);
+  }
+
+  /**
+   * Returns a negated composition, which can still explain its failures. It
+   * learns its own order.
+   */
+  @Override
+  public Predicate<T> negate() {
+    return new AdaptivePredicate<>(predicates, all, !negated);
+  }
+
+  private boolean sample(T value) {
+    boolean result = all;
+    long start = System.nanoTime();
+    for (int index : order) {
+      boolean accepted = predicates[index].test(value);
+      long end = System.nanoTime();
+      nanos[index] += end - start;
+      start = end;
+      evaluations[index]++;
+      if (accepted != all) {
+        decisions[index]++;
+        result = !all;
+        break;
+      }
+    }
+    if ((++sampled & REORDER_MASK) == 0) {
+      reorder();
+    }
+    return result;
+  }
+
+  private void reorder() {
+    int size = predicates.length;
+    double[] costs = new double[size];
+    double[] decides = new double[size];
+    double[] scores = new double[size];
+    Integer[] indexes = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      costs[i] = evaluations[i] == 0 ? 1 : Math.max(1, (double) nanos[i] / evaluations[i]);
+      // Laplace smoothing, so predicates that were never evaluated still get a chance
+      decides[i] = (decisions[i] + 1.0) / (evaluations[i] + 2.0);
+      scores[i] = costs[i] / decides[i];
+      indexes[i] = i;
+    }
+    Arrays.sort(indexes, (a, b) -> Double.compare(scores[a], scores[b]));
+    int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = indexes[i];
+    }
+    // only switches when clearly cheaper, so timing noise doesn't keep flipping similar predicates
+    if (expectedCost(order, costs, decides) < expectedCost(this.order, costs, decides) * 0.9) {
+      sampleMask = SAMPLE_MASK;
+      this.order = order;
+      this.composed = compose(order);
+    } else {
+      sampleMask = Math.min(MAX_SAMPLE_MASK, (sampleMask << 1) | 1);
+    }
+  }
+
+  private static double expectedCost(int[] order, double[] costs, double[] decides) {
+    double result = 0;
+    double reached = 1;
+    for (int index : order) {
+      result += reached * costs[index];
+      reached *= 1 - decides[index];
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Predicate<? super T> compose(int[] order) {
+    Predicate<T> result = (Predicate<T>) predicates[order[0]];
+    for (int i = 1; i < order.length; i++) {
+      result = all ? result.and(predicates[order[i]]) : result.or(predicates[order[i]]);
+    }
+    return result;
+  }
+
+  /**
+   * @return the current evaluation order, as the positions of the predicates
+   */
+  int[] order() {
+    return order.clone();
+  }
+
+  /**
+   * Evaluates every predicate, in the given order, to tell which ones decided
+   * the failure of the given value.
+   */
+  Throwable explain(T value) {
+    // the predicates that rejected the value for all, or that accepted it for any
+    List<Integer> deciding = new ArrayList<>();
+    for (int i = 0; i < predicates.length; i++) {
+      if (predicates[i].test(value) != all) {
+        deciding.add(i + 1);
+      }
+    }
+    int size = predicates.length;
+    return new LightweightAssertionError(() -> {
+      if (negated) {
+        return all ?
+            String.format("accepted by all of the %d predicates", size) :
+            String.format("accepted by predicate(s) %s of %d", deciding, size);
+      }
+      return all ?
+          String.format("rejected by predicate(s) %s of %d", deciding, size) :
+          String.format("none of the %d predicates accepted the value", size);
+    });
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder(negated ? "not " : "").append(all ? "all of " : "any of ")
+        .append(predicates.length)
+        .append(" predicates, evaluated in order:");
+    for (int index : order) {
+      result.append(String.format(" #%d (%d/%d decisive, %.0f ns)", index + 1, decisions[index], evaluations[index],
+          evaluations[index] == 0 ? 0.0 : (double) nanos[index] / evaluations[index]));
+    }
+    return result.toString();
+  }
+
+}
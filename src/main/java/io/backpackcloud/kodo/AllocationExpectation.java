@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * A measurement of how many bytes an operation allocates in the heap.
+ * <p>
+ * The allocations are read from the per-thread counters of
+ * {@code com.sun.management.ThreadMXBean}, so only the allocations made by the
+ * thread running the spec are counted. The operation is executed a number of
+ * times before the measurement, to let the JIT compiler settle (escape analysis
+ * may remove allocations only after the code is compiled), and the measured
+ * value is the average of a number of executions.
+ * <p>
+ * <code>
+ * Spec.given(parser)<br>
+ * &nbsp;&nbsp;.expect(doing(parser -&gt; parser.parse(line)), to().allocateAtMost(64)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.warmup(20_000)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.iterations(10_000));
+ * </code>
+ * <p>
+ * Instances are immutable.
+ *
+ * @author Marcelo Guimarães
+ * @see Expectation#allocateAtMost(long)
+ * @since 4.1
+ */
+public final class AllocationExpectation extends Measurement {
+
+  private static final int DEFAULT_WARMUP = 2_000;
+  private static final int DEFAULT_ITERATIONS = 1_000;
+
+  private final long limit;
+  private final int warmup;
+  private final int iterations;
+
+  private AllocationExpectation(boolean negate, long limit, int warmup, int iterations) {
+    super(negate);
+    this.limit = limit;
+    this.warmup = warmup;
+    this.iterations = iterations;
+  }
+
+  AllocationExpectation(long limit, boolean negate) {
+    this(negate, limit, DEFAULT_WARMUP, DEFAULT_ITERATIONS);
+  }
+
+  /**
+   * Executes the operation the given number of times before measuring it
+   * (defaults to {@value #DEFAULT_WARMUP}).
+   *
+   * @param times the number of executions that are not measured
+   * @return a new AllocationExpectation
+   */
+  public AllocationExpectation warmup(int times) {
+    if (times < 0) {
+      throw new IllegalArgumentException("times must not be negative");
+    }
+    return new AllocationExpectation(negate(), limit, times, iterations);
+  }
+
+  /**
+   * Averages the allocations over the given number of executions (defaults to
+   * {@value #DEFAULT_ITERATIONS}).
+   *
+   * @param times the number of measured executions
+   * @return a new AllocationExpectation
+   */
+  public AllocationExpectation iterations(int times) {
+    if (times < 1) {
+      throw new IllegalArgumentException("times must be positive");
+    }
+    return new AllocationExpectation(negate(), limit, warmup, times);
+  }
+
+  /**
+   * @return {@code true} if the running JVM can count the allocations of a thread
+   */
+  public static boolean isSupported() {
+    try {
+      return Counter.BEAN != null;
+    } catch (LinkageError e) {
+      return false;
+    }
+  }
+
+  @Override
+  Object measure(Runnable operation) {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("This JVM can't count the allocations of a thread");
+    }
+    for (int i = 0; i < warmup; i++) {
+      operation.run();
+    }
+    // the counter itself may allocate, so its cost is measured and discounted
+    long overhead = Counter.allocated();
+    overhead = Counter.allocated() - overhead;
+
+    long start = Counter.allocated();
+    for (int i = 0; i < iterations; i++) {
+      operation.run();
+    }
+    long allocated = Math.max(0, Counter.allocated() - start - overhead);
+    double perOperation = (double) allocated / iterations;
+    if (perOperation <= limit) {
+      return null;
+    }
+    return String.format("allocated %.1f bytes/op (expected at most %d bytes/op)", perOperation, limit);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("allocate at most %d bytes/op", limit);
+  }
+
+  /**
+   * Isolates the references to com.sun.management, which may not exist in every JVM.
+   */
+  private static final class Counter {
+
+    private static final com.sun.management.ThreadMXBean BEAN = bean();
+
+    static long allocated() {
+      return BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean bean() {
+      try {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+          com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean) bean;
+          if (result.isThreadAllocatedMemorySupported()) {
+            result.setThreadAllocatedMemoryEnabled(true);
+            return result;
+          }
+        }
+      } catch (LinkageError | UnsupportedOperationException e) {
+        // not available in this JVM
+      }
+      return null;
+    }
+
+  }
+
+}
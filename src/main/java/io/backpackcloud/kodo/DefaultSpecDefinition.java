@@ -24,24 +24,105 @@
 
 package io.backpackcloud.kodo;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledFuture;
 import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
 
 /**
  * The default implementation of a SpecDefinition.
  */
 public class DefaultSpecDefinition<T> implements SpecDefinition<T> {
 
+  private static final Predicate<Boolean> IS_TRUE = Boolean.TRUE::equals;
+
+  // counts the failures handed to fail operations by the current thread,
+  // see failures(Consumer, Object)
+  private static final ThreadLocal<int[]> FAILURES = ThreadLocal.withInitial(() -> new int[1]);
+
+  static {
+    try {
+      FlightRecording.install();
+    } catch (LinkageError e) {
+      // JFR is not available in this runtime
+    }
+  }
+
   final String description;
   final T target;
   final Consumer defaultFailOperation;
 
-  DefaultSpecDefinition(String description, T target, Consumer<?> defaultFailOperation) {
+  private SpecListener listener;
+  private int expectations;
+  private int failures;
+  private Object lastFailure;
+  // the definition that holds the async checks, shared by the copies created
+  // by onFail and given so checks registered before them can still be awaited
+  private DefaultSpecDefinition<?> root = this;
+  private List<AsyncCheck> pending;
+  // shared by the copies created by onFail, since they have the same target
+  private DerivedValues derived = new DerivedValues();
+
+  private DefaultSpecDefinition(String description, T target, Consumer<?> defaultFailOperation,
+                                SpecListener listener) {
     this.description = description;
     this.target = target;
     this.defaultFailOperation = defaultFailOperation;
+    this.listener = listener;
+  }
+
+  DefaultSpecDefinition(String description, T target, Consumer<?> defaultFailOperation) {
+    this(description, target, defaultFailOperation, listener());
+    if (listener != null) {
+      listener.onStart(description, target);
+    }
+  }
+
+  /**
+   * @return the listener to notify, or {@code null} if there is none
+   */
+  static SpecListener listener() {
+    return Listeners.current();
+  }
+
+  /**
+   * Creates a spec whose results are recorded in a {@link SpecResult} tree.
+   */
+  static <T> DefaultSpecDefinition<T> describe(String description) {
+    SpecResult.Recorder recorder = SpecResult.Recorder.describe(description);
+    DefaultSpecDefinition<T> result = new DefaultSpecDefinition<>(description, null,
+        Expectation.throwAssertionError(), recorder);
+    recorder.onStart(description, null);
+    return result;
+  }
+
+  /**
+   * Creates a spec for a new target, in a new node of the result tree if this
+   * spec is recording one.
+   */
+  private <R> DefaultSpecDefinition<R> start(SpecResult.Kind kind, R target) {
+    if (!(listener instanceof SpecResult.Recorder)) {
+      return new DefaultSpecDefinition<>(this.description, target, this.defaultFailOperation);
+    }
+    SpecResult.Recorder recorder = ((SpecResult.Recorder) listener).child(kind, target);
+    DefaultSpecDefinition<R> result = new DefaultSpecDefinition<>(this.description, target,
+        this.defaultFailOperation, recorder);
+    recorder.onStart(this.description, target);
+    return result;
   }
 
   DefaultSpecDefinition(T target) {
@@ -56,52 +137,257 @@ public class DefaultSpecDefinition<T> implements SpecDefinition<T> {
     this("", null, Expectation.throwAssertionError());
   }
 
+  /**
+   * Applies the function to the target, memoizing its value if it is a
+   * {@link Derived derived function}.
+   */
+  private <R> R apply(Function<? super T, R> function) {
+    if (function instanceof Derived) {
+      return ((Derived<? super T, R>) function).evaluate(target, derived);
+    }
+    return function.apply(target);
+  }
+
+  /**
+   * Forgets the derived values after an operation that may have changed the
+   * target.
+   */
+  private void changed() {
+    derived.clear();
+  }
+
   private void test(Predicate predicate, Object object, Consumer consumer) {
+    expectations++;
     if (!predicate.test(object)) {
-      consumer.accept(object);
+      failures++;
+      lastFailure = object;
+      fail(this.description, this.target, this.expectations, predicate, object, consumer);
+    }
+  }
+
+  private void fail(Object value, Consumer consumer) {
+    fail(value, consumer, this.expectations);
+  }
+
+  private void fail(Object value, Consumer consumer, int index) {
+    failures++;
+    lastFailure = value;
+    fail(this.description, this.target, index, value, consumer);
+  }
+
+  /**
+   * Evaluates a check for the given element, returning how many failures it
+   * handed to fail operations (including the ones of nested specs), whether
+   * the fail operations threw them or not.
+   */
+  static <E> int failures(Consumer<E> check, E element) {
+    int[] failures = FAILURES.get();
+    int previous = failures[0];
+    failures[0] = 0;
+    try {
+      check.accept(element);
+      return failures[0];
+    } finally {
+      // the failures of this check also count for the enclosing one
+      failures[0] += previous;
+    }
+  }
+
+  /**
+   * Hands a value rejected by the given predicate to the fail operation,
+   * explaining the rejection if the predicate can.
+   */
+  static void fail(String description, Object target, int index, Predicate predicate, Object value,
+                   Consumer consumer) {
+    if (!(predicate instanceof AdaptivePredicate)) {
+      fail(description, target, index, value, consumer);
+      return;
+    }
+    AdaptivePredicate adaptive = (AdaptivePredicate) predicate;
+    FAILURES.get()[0]++;
+    if (consumer instanceof FailureHandler) {
+      ((FailureHandler) consumer).handle(
+          new Failure(description, target, index, value, adaptive.explain(value).getMessage()));
+      return;
+    }
+    try {
+      consumer.accept(value);
+    } catch (AssertionError | RuntimeException e) {
+      e.addSuppressed(adaptive.explain(value));
+      throw e;
+    }
+  }
+
+  /**
+   * Hands a failed value to the fail operation.
+   */
+  static void fail(String description, Object target, int index, Object value, Consumer consumer) {
+    FAILURES.get()[0]++;
+    if (consumer instanceof FailureHandler) {
+      ((FailureHandler) consumer).handle(new Failure(description, target, index, value));
+    } else {
+      consumer.accept(value);
+    }
+  }
+
+  private <E> void poll(Eventually<E> test, Supplier<E> supplier, Consumer consumer) {
+    expectations++;
+    Eventually.Outcome<E> outcome = test.poll(supplier);
+    if (!outcome.passed()) {
+      try {
+        if (outcome.error() != null) {
+          throw outcome.error();
+        }
+        fail(outcome.value(), consumer);
+      } catch (AssertionError | RuntimeException e) {
+        e.addSuppressed(outcome.summary());
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Evaluates an expectation notifying the listener. The listener is removed
+   * while evaluating, so the expectation is not notified twice.
+   */
+  private SpecDefinition<T> observe(Consumer<SpecDefinition<T>> expectation) {
+    SpecListener listener = this.listener;
+    int failures = this.failures;
+    long start = System.nanoTime();
+    boolean passed = false;
+    this.listener = null;
+    try {
+      expectation.accept(this);
+      passed = this.failures == failures;
+    } finally {
+      long nanos = System.nanoTime() - start;
+      this.listener = listener;
+      if (this.failures != failures) {
+        listener.onFailure(this.description, this.expectations, this.lastFailure);
+      }
+      listener.onExpectation(this.description, this.expectations, nanos, passed);
+    }
+    return this;
+  }
+
+  private SpecDefinition<T> observe(Runnable operation) {
+    long start = System.nanoTime();
+    try {
+      operation.run();
+    } catch (Throwable e) {
+      listener.onFailure(this.description, 0, e);
+      throw e;
+    } finally {
+      listener.onWhen(this.description, System.nanoTime() - start);
+      changed();
+    }
+    return this;
+  }
+
+  /**
+   * Evaluates a nested spec for the given element.
+   */
+  static <E> void run(String description, E element, Consumer failOperation, Consumer<SpecDefinition<E>> spec) {
+    run(new DefaultSpecDefinition<>(description, element, failOperation), spec);
+  }
+
+  private <E> void nested(E element, Consumer<SpecDefinition<E>> spec) {
+    run(start(SpecResult.Kind.ELEMENT, element), spec);
+  }
+
+  private static <E> void run(DefaultSpecDefinition<E> definition, Consumer<SpecDefinition<E>> spec) {
+    String description = definition.description;
+    if (definition.listener == null) {
+      spec.accept(definition);
+      return;
+    }
+    try {
+      spec.accept(definition);
+    } finally {
+      definition.listener.onEnd(description, definition.expectations, definition.failures);
     }
   }
 
   @Override
   public SpecDefinition<T> onFail(Consumer<?> operation) {
-    return new DefaultSpecDefinition<>(this.description, this.target, operation);
+    DefaultSpecDefinition<T> result = new DefaultSpecDefinition<>(this.description, this.target, operation,
+        this.listener);
+    result.root = this.root;
+    result.derived = this.derived;
+    return result;
   }
 
   @Override
   public <R> SpecDefinition<R> given(R object) {
-    return new DefaultSpecDefinition(this.description, object, this.defaultFailOperation);
+    DefaultSpecDefinition<R> result = start(SpecResult.Kind.GIVEN, object);
+    result.root = this.root;
+    return result;
   }
 
   @Override
   public <R> SpecDefinition<R> given(Function<T, R> function) {
-    return new DefaultSpecDefinition<>(this.description, function.apply(this.target), this.defaultFailOperation);
+    return given(apply(function));
   }
 
   @Override
   public SpecDefinition begin() {
-    return new DefaultSpecDefinition<T>(this.description);
+    if (!(listener instanceof SpecResult.Recorder)) {
+      return new DefaultSpecDefinition<T>(this.description);
+    }
+    SpecResult.Recorder recorder = ((SpecResult.Recorder) listener).restart();
+    DefaultSpecDefinition<T> result = new DefaultSpecDefinition<>(this.description, null,
+        Expectation.throwAssertionError(), recorder);
+    recorder.onStart(this.description, null);
+    return result;
   }
 
   @Override
   public SpecDefinition<T> when(Consumer<? super T> operation) {
+    if (listener != null) {
+      return observe(() -> operation.accept(target));
+    }
     operation.accept(target);
+    changed();
     return this;
   }
 
   @Override
   public SpecDefinition<T> expect(Consumer operation, Predicate test, Consumer consumer) {
+    if (listener != null) {
+      return observe(spec -> spec.expect(operation, test, consumer));
+    }
+    Exception error = null;
     try {
       operation.accept(target);
-      test(test, null, consumer);
     } catch (Exception e) {
-      test(test, e, consumer);
+      error = e;
+    }
+    changed();
+    test(test, error, consumer);
+    return this;
+  }
+
+  @Override
+  public SpecDefinition<T> expect(Consumer operation, Measurement measurement, Consumer consumer) {
+    if (listener != null) {
+      return observe(spec -> spec.expect(operation, measurement, consumer));
+    }
+    expectations++;
+    Object report = measurement.evaluate(() -> operation.accept(target));
+    changed();
+    if (report != null) {
+      fail(report, consumer);
     }
     return this;
   }
 
   @Override
   public SpecDefinition<T> when(Runnable operation) {
+    if (listener != null) {
+      return observe(operation);
+    }
     operation.run();
+    changed();
     return this;
   }
 
@@ -109,7 +395,14 @@ public class DefaultSpecDefinition<T> implements SpecDefinition<T> {
   public <E> SpecDefinition<T> expect(Function<? super T, E> function,
                                       Predicate<? super E> test,
                                       Consumer<E> consumer) {
-    test(test, function.apply(target), consumer);
+    if (listener != null) {
+      return observe(spec -> spec.expect(function, test, consumer));
+    }
+    if (test instanceof Eventually) {
+      poll((Eventually<E>) test, () -> function.apply(target), consumer);
+      return this;
+    }
+    test(test, apply(function), consumer);
     return this;
   }
 
@@ -120,26 +413,99 @@ public class DefaultSpecDefinition<T> implements SpecDefinition<T> {
 
   @Override
   public <E> SpecDefinition<T> expect(Supplier<E> supplier, Predicate<? super E> test, Consumer<E> consumer) {
+    if (listener != null) {
+      return observe(spec -> spec.expect(supplier, test, consumer));
+    }
+    if (test instanceof Eventually) {
+      poll((Eventually<E>) test, supplier, consumer);
+      return this;
+    }
     test(test, supplier.get(), consumer);
     return this;
   }
 
   @Override
   public SpecDefinition<T> expect(Function<? super T, Boolean> function, Consumer<Boolean> consumer) {
-    test(o -> o == Boolean.TRUE, function.apply(target), consumer);
+    if (listener != null) {
+      return observe(spec -> spec.expect(function, consumer));
+    }
+    test(IS_TRUE, apply(function), consumer);
     return this;
   }
 
   @Override
   public SpecDefinition<T> expect(boolean value, Consumer<Boolean> consumer) {
-    test(o -> o == Boolean.TRUE, value, consumer);
+    if (listener != null) {
+      return observe(spec -> spec.expect(value, consumer));
+    }
+    expectations++;
+    if (!value) {
+      fail(Boolean.FALSE, consumer);
+    }
+    return this;
+  }
+
+  @Override
+  public SpecDefinition<T> expectInt(ToIntFunction<? super T> function, IntPredicate test, Consumer<Integer> consumer) {
+    if (listener != null) {
+      return observe(spec -> spec.expectInt(function, test, consumer));
+    }
+    int value = function.applyAsInt(target);
+    expectations++;
+    if (!test.test(value)) {
+      fail(value, consumer);
+    }
+    return this;
+  }
+
+  @Override
+  public SpecDefinition<T> expectLong(ToLongFunction<? super T> function, LongPredicate test, Consumer<Long> consumer) {
+    if (listener != null) {
+      return observe(spec -> spec.expectLong(function, test, consumer));
+    }
+    long value = function.applyAsLong(target);
+    expectations++;
+    if (!test.test(value)) {
+      fail(value, consumer);
+    }
+    return this;
+  }
+
+  @Override
+  public SpecDefinition<T> expectDouble(ToDoubleFunction<? super T> function, DoublePredicate test, Consumer<Double> consumer) {
+    if (listener != null) {
+      return observe(spec -> spec.expectDouble(function, test, consumer));
+    }
+    double value = function.applyAsDouble(target);
+    expectations++;
+    if (!test.test(value)) {
+      fail(value, consumer);
+    }
     return this;
   }
 
   @Override
   public <E> SpecDefinition<T> each(Class<E> type, Function<T, Iterable<E>> splitter, Consumer<SpecDefinition<E>> spec) {
     splitter.apply(target)
-        .forEach(e -> spec.accept(new DefaultSpecDefinition(this.description, e, this.defaultFailOperation)));
+        .forEach(e -> nested(e, spec));
+    return this;
+  }
+
+  @Override
+  public <E> SpecDefinition<T> eachStreamed(Class<E> type, Function<T, Stream<E>> splitter,
+                                            Consumer<SpecDefinition<E>> spec) {
+    try (Stream<E> elements = splitter.apply(target)) {
+      elements.sequential()
+          .forEach(e -> nested(e, spec));
+    }
+    return this;
+  }
+
+  @Override
+  public <E> SpecDefinition<T> parallelEach(Class<E> type, Function<T, Iterable<E>> splitter,
+                                            Consumer<SpecDefinition<E>> spec, Parallelism parallelism) {
+    parallelism.execute(splitter.apply(target),
+        e -> nested(e, spec));
     return this;
   }
 
@@ -148,11 +514,31 @@ public class DefaultSpecDefinition<T> implements SpecDefinition<T> {
     return expect(operation, test, this.defaultFailOperation);
   }
 
+  @Override
+  public SpecDefinition<T> expect(Consumer<? super T> operation, Measurement measurement) {
+    return expect(operation, measurement, this.defaultFailOperation);
+  }
+
   @Override
   public <E> SpecDefinition<T> expect(Function<? super T, E> function, Predicate<? super E> test) {
     return expect(function, test, this.defaultFailOperation);
   }
 
+  @Override
+  public SpecDefinition<T> expectInt(ToIntFunction<? super T> function, IntPredicate test) {
+    return expectInt(function, test, this.defaultFailOperation);
+  }
+
+  @Override
+  public SpecDefinition<T> expectLong(ToLongFunction<? super T> function, LongPredicate test) {
+    return expectLong(function, test, this.defaultFailOperation);
+  }
+
+  @Override
+  public SpecDefinition<T> expectDouble(ToDoubleFunction<? super T> function, DoublePredicate test) {
+    return expectDouble(function, test, this.defaultFailOperation);
+  }
+
   @Override
   public SpecDefinition<T> expect(Function<? super T, Boolean> function) {
     return expect(function, this.defaultFailOperation);
@@ -163,4 +549,139 @@ public class DefaultSpecDefinition<T> implements SpecDefinition<T> {
     return expect(value, this.defaultFailOperation);
   }
 
+  @Override
+  public <E> SpecDefinition<T> expectAsync(Function<? super T, ? extends CompletionStage<E>> function,
+                                           Predicate<? super E> test, Duration timeout) {
+    int index = ++expectations;
+    long start = System.nanoTime();
+    CompletionStage<E> stage = function.apply(target);
+    AsyncCheck check = new AsyncCheck(index, this.defaultFailOperation, this.listener);
+    // the callbacks only complete the check: its outcome is handled by the
+    // thread that calls await()
+    ScheduledFuture<?> timer = Scheduler.schedule(() -> check.outcome.complete(new AsyncOutcome(false,
+        new AssertionError(String.format("expectation #%d timed out after %d ms", index, timeout.toMillis())),
+        System.nanoTime() - start)), timeout.toNanos());
+    stage.whenComplete((value, error) -> {
+      timer.cancel(false);
+      if (check.outcome.isDone()) {
+        return;
+      }
+      long nanos = System.nanoTime() - start;
+      if (error != null) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        check.outcome.complete(new AsyncOutcome(false, new AssertionError(
+            String.format("expectation #%d completed exceptionally: %s", index, cause), cause), nanos));
+        return;
+      }
+      try {
+        check.outcome.complete(new AsyncOutcome(test.test(value), value, nanos));
+      } catch (Throwable e) {
+        check.outcome.complete(new AsyncOutcome(false, new AssertionError(
+            String.format("expectation #%d could not test %s: %s", index, value, e), e), nanos));
+      }
+    });
+    if (root.pending == null) {
+      root.pending = new ArrayList<>();
+    }
+    root.pending.add(check);
+    return this;
+  }
+
+  @Override
+  public SpecDefinition<T> await() {
+    List<AsyncCheck> pending = root.pending;
+    if (pending == null || pending.isEmpty()) {
+      return this;
+    }
+    List<Throwable> failures = new ArrayList<>();
+    int count = pending.size();
+    try {
+      for (AsyncCheck check : pending) {
+        AsyncOutcome outcome = check.outcome.join();
+        if (!outcome.passed) {
+          try {
+            fail(outcome.value, check.consumer, check.index);
+          } catch (AssertionError | RuntimeException e) {
+            if (outcome.value instanceof AssertionError && e != outcome.value) {
+              // keeps the reason of the timeout or of the exceptional completion
+              e.addSuppressed((Throwable) outcome.value);
+            }
+            failures.add(e);
+          }
+        }
+        if (check.listener != null) {
+          if (!outcome.passed) {
+            check.listener.onFailure(this.description, check.index, outcome.value);
+          }
+          check.listener.onExpectation(this.description, check.index, outcome.nanos, outcome.passed);
+        }
+      }
+    } finally {
+      pending.clear();
+    }
+    if (!failures.isEmpty()) {
+      throw new MultipleFailuresError(
+          String.format("%d of %d async expectations failed", failures.size(), count), failures, failures.size());
+    }
+    return this;
+  }
+
+  @Override
+  public SpecResult result() {
+    if (!(listener instanceof SpecResult.Recorder)) {
+      throw new IllegalStateException("Only specs started with Spec.describe record results");
+    }
+    return ((SpecResult.Recorder) listener).root();
+  }
+
+  @Override
+  public SpecDefinition<T> concurrently(Stress<T> stress) {
+    if (listener != null) {
+      return observe(spec -> spec.concurrently(stress));
+    }
+    StressReport report = stress.run(target);
+    changed();
+    expectations++;
+    if (!report.passed()) {
+      fail(report, this.defaultFailOperation);
+    }
+    return this;
+  }
+
+  /**
+   * An asynchronous expectation waiting for {@link #await()}.
+   */
+  private static final class AsyncCheck {
+
+    private final int index;
+    private final Consumer consumer;
+    private final SpecListener listener;
+    private final CompletableFuture<AsyncOutcome> outcome = new CompletableFuture<>();
+
+    AsyncCheck(int index, Consumer consumer, SpecListener listener) {
+      this.index = index;
+      this.consumer = consumer;
+      this.listener = listener;
+    }
+
+  }
+
+  /**
+   * The outcome of an asynchronous expectation: the value, or the reason it
+   * couldn't be tested, and whether it passed.
+   */
+  private static final class AsyncOutcome {
+
+    private final boolean passed;
+    private final Object value;
+    private final long nanos;
+
+    AsyncOutcome(boolean passed, Object value, long nanos) {
+      this.passed = passed;
+      this.value = value;
+      this.nanos = nanos;
+    }
+
+  }
+
 }
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.function.Function;
+
+/**
+ * A function whose results are memoized by the specs.
+ * <p>
+ * When a spec evaluates a derived function against its target, the result is
+ * kept until the target changes: a new target (through {@code given} or
+ * {@code begin}) starts with no values, and {@code when} (or any other
+ * operation that may change the target) clears them. Each spec keeps at most
+ * {@value DerivedValues#CAPACITY} values, evicting the oldest ones.
+ * <p>
+ * <code>
+ * Function&lt;Order, Invoice&gt; invoice = derived(Order::parseInvoice);<br>
+ * <br>
+ * Spec.given(order)<br>
+ * &nbsp;&nbsp;.expect(invoice.andThen(Invoice::total), to().be(100))<br>
+ * &nbsp;&nbsp;.expect(invoice.andThen(Invoice::items), to().have(size(3))); // parsed only once
+ * </code>
+ * <p>
+ * Outside a spec, the function is simply applied.
+ *
+ * @author Marcelo Guimarães
+ * @see Expectation#derived(Function)
+ * @see Expectation#derived(Object, Function)
+ * @since 4.1
+ */
+public abstract class Derived<T, R> implements Function<T, R> {
+
+  Derived() {
+
+  }
+
+  /**
+   * Evaluates this function, using the given values if there are any.
+   */
+  abstract R evaluate(T target, DerivedValues values);
+
+  @Override
+  public R apply(T target) {
+    return evaluate(target, null);
+  }
+
+  /**
+   * Returns a function that applies the given function to the memoized value.
+   * Only the value of this function is memoized.
+   */
+  @Override
+  public <V> Derived<T, V> andThen(Function<? super R, ? extends V> after) {
+    Derived<T, R> base = this;
+    return new Derived<T, V>() {
+      @Override
+      V evaluate(T target, DerivedValues values) {
+        return after.apply(base.evaluate(target, values));
+      }
+    };
+  }
+
+  static <T, R> Derived<T, R> of(Object key, Function<? super T, ? extends R> function) {
+    return new Memoized<>(key, function);
+  }
+
+  private static final class Memoized<T, R> extends Derived<T, R> {
+
+    private final Object key;
+    private final Function<? super T, ? extends R> function;
+
+    Memoized(Object key, Function<? super T, ? extends R> function) {
+      this.key = key == null ? this : key;
+      this.function = function;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    R evaluate(T target, DerivedValues values) {
+      if (values == null) {
+        return function.apply(target);
+      }
+      return (R) values.get(key, target, function);
+    }
+
+  }
+
+}
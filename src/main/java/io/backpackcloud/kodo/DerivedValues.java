@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * The values of the {@link Derived derived functions} of a spec, in a small
+ * array searched linearly: specs rarely derive more than a handful of values,
+ * and keys are compared with {@code equals}. The arrays are only allocated
+ * when the first value is derived.
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+final class DerivedValues {
+
+  static final int CAPACITY = 16;
+
+  private Object[] keys;
+  private Object[] values;
+  private int size;
+  private int next;
+
+  @SuppressWarnings("unchecked")
+  <T> Object get(Object key, T target, Function<? super T, ?> function) {
+    for (int i = 0; i < size; i++) {
+      if (keys[i].equals(key)) {
+        return values[i];
+      }
+    }
+    Object value = function.apply(target);
+    if (keys == null) {
+      keys = new Object[CAPACITY];
+      values = new Object[CAPACITY];
+    }
+    // when full, the oldest value is replaced
+    keys[next] = key;
+    values[next] = value;
+    next = (next + 1) % CAPACITY;
+    size = Math.min(size + 1, CAPACITY);
+    return value;
+  }
+
+  void clear() {
+    if (size > 0) {
+      Arrays.fill(keys, 0, size, null);
+      Arrays.fill(values, 0, size, null);
+      size = 0;
+      next = 0;
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A predicate that should be satisfied within a timeout.
+ * <p>
+ * Tested directly, it behaves as the wrapped predicate. The spec definitions
+ * recognize it and {@link #poll(Supplier) poll} the value instead, waiting
+ * with an exponential backoff (with jitter) between the attempts.
+ *
+ * @author Marcelo Guimarães
+ * @see Expectation#eventually(java.time.Duration)
+ * @since 4.1
+ */
+final class Eventually<T> implements Predicate<T> {
+
+  private static final long MAX_DELAY = TimeUnit.SECONDS.toNanos(1);
+
+  private final Predicate<T> predicate;
+  private final long timeout;
+  private final long initialDelay;
+
+  Eventually(Predicate<T> predicate, long timeout, long initialDelay) {
+    this.predicate = predicate;
+    this.timeout = timeout;
+    this.initialDelay = initialDelay;
+  }
+
+  @Override
+  public boolean test(T value) {
+    return predicate.test(value);
+  }
+
+  @Override
+  public Predicate<T> negate() {
+    return new Eventually<>(predicate.negate(), timeout, initialDelay);
+  }
+
+  /**
+   * Evaluates the given supplier until its value satisfies the predicate or the
+   * timeout expires. A {@link RuntimeException} thrown by the supplier counts as a
+   * failed attempt.
+   *
+   * @param supplier the supplier of the value
+   * @return the outcome of the last attempt
+   */
+  Outcome<T> poll(Supplier<? extends T> supplier) {
+    long start = System.nanoTime();
+    long deadline = start + timeout;
+    long delay = initialDelay;
+    int attempts = 0;
+    while (true) {
+      attempts++;
+      T value = null;
+      RuntimeException error = null;
+      boolean passed;
+      try {
+        value = supplier.get();
+        passed = predicate.test(value);
+      } catch (RuntimeException e) {
+        error = e;
+        passed = false;
+      }
+      long now = System.nanoTime();
+      if (passed || now - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+        return new Outcome<>(passed, value, error, attempts, now - start);
+      }
+      long half = delay >>> 1;
+      LockSupport.parkNanos(Math.min(half + ThreadLocalRandom.current().nextLong(half + 1), deadline - now));
+      delay = Math.min(delay << 1, MAX_DELAY);
+    }
+  }
+
+  static final class Outcome<T> {
+
+    private final boolean passed;
+    private final T value;
+    private final RuntimeException error;
+    private final int attempts;
+    private final long elapsed;
+
+    Outcome(boolean passed, T value, RuntimeException error, int attempts, long elapsed) {
+      this.passed = passed;
+      this.value = value;
+      this.error = error;
+      this.attempts = attempts;
+      this.elapsed = elapsed;
+    }
+
+    boolean passed() {
+      return passed;
+    }
+
+    T value() {
+      return value;
+    }
+
+    RuntimeException error() {
+      return error;
+    }
+
+    /**
+     * @return an error describing the attempts, to be attached to the reported failure
+     */
+    Throwable summary() {
+      return new LightweightAssertionError(() -> String.format("not satisfied after %d attempts in %d ms",
+          attempts, TimeUnit.NANOSECONDS.toMillis(elapsed)));
+    }
+
+  }
+
+}
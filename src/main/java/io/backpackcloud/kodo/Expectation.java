@@ -26,9 +26,14 @@ package io.backpackcloud.kodo;
 
 import org.hamcrest.Matcher;
 
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -40,16 +45,55 @@ import java.util.function.Supplier;
  */
 public class Expectation {
 
+  private static final Expectation TO = new Expectation(Function.identity(), false);
+  private static final Expectation NOT = new Expectation(Predicate::negate, true);
+
+  private static final String DEFAULT_FORMAT = "for value: %s";
+  private static final long DEFAULT_INITIAL_DELAY = TimeUnit.MILLISECONDS.toNanos(10);
+
+  /**
+   * The system property that turns every {@link AssertionError} thrown by the
+   * fail operations of this class into a {@link LightweightAssertionError}.
+   *
+   * @since 4.1
+   */
+  public static final String LIGHTWEIGHT_FAILURES_PROPERTY = "kodo.lightweightFailures";
+
+  private static final boolean LIGHTWEIGHT_FAILURES = Boolean.getBoolean(LIGHTWEIGHT_FAILURES_PROPERTY);
+
+  private static final Consumer LIGHTWEIGHT_FAIL_OPERATION = throwLightweightError(DEFAULT_FORMAT);
+  private static final Consumer DEFAULT_FAIL_OPERATION = throwAssertionError(DEFAULT_FORMAT);
+
   private final Function<Predicate, Predicate> modifier;
+  private final boolean negate;
 
-  private Expectation(Function<Predicate, Predicate> modifier) {
+  private Expectation(Function<Predicate, Predicate> modifier, boolean negate) {
     this.modifier = modifier;
+    this.negate = negate;
   }
 
   private <T> Predicate<T> create(Predicate<T> predicate) {
     return modifier.apply(predicate);
   }
 
+  private void measurable() {
+    if (this != TO && this != NOT) {
+      throw new UnsupportedOperationException("Measurements can only be created by to() or to().not()");
+    }
+  }
+
+  private IntPredicate createInt(IntPredicate predicate) {
+    return negate ? predicate.negate() : predicate;
+  }
+
+  private LongPredicate createLong(LongPredicate predicate) {
+    return negate ? predicate.negate() : predicate;
+  }
+
+  private DoublePredicate createDouble(DoublePredicate predicate) {
+    return negate ? predicate.negate() : predicate;
+  }
+
   /**
    * Indicates that the value should
    * {@link java.lang.Object#equals(Object) eq} the given value.
@@ -134,6 +178,161 @@ public class Expectation {
     return not(succeed());
   }
 
+  /**
+   * Indicates that the operation should complete within the given time, measured
+   * with {@link System#nanoTime()}.
+   * <p>
+   * The returned measurement can execute the operation many times and bound the
+   * percentiles of its latency.
+   *
+   * @param limit the maximum time of each execution
+   * @return a measurement of the latency of the operation
+   * @see SpecDefinition#expect(Consumer, Measurement)
+   * @since 4.1
+   */
+  public LatencyExpectation completeWithin(Duration limit) {
+    measurable();
+    return new LatencyExpectation(limit, negate);
+  }
+
+  /**
+   * Indicates that the operation should allocate at most the given number of bytes
+   * in the heap, on average, per execution.
+   *
+   * @param bytes the maximum number of bytes allocated by each execution
+   * @return a measurement of the allocations of the operation
+   * @see SpecDefinition#expect(Consumer, Measurement)
+   * @since 4.1
+   */
+  public AllocationExpectation allocateAtMost(long bytes) {
+    measurable();
+    return new AllocationExpectation(bytes, negate);
+  }
+
+  /**
+   * Indicates that the operation should sustain the given throughput. By default,
+   * the operation is executed from a single thread for one second.
+   *
+   * @param operations the minimum number of operations
+   * @param per        the period of the given number of operations
+   * @return a measurement of the throughput of the operation
+   * @see #perSecond()
+   * @see SpecDefinition#expect(Consumer, Measurement)
+   * @since 4.1
+   */
+  public ThroughputExpectation sustainThroughput(long operations, Duration per) {
+    measurable();
+    if (operations < 1) {
+      throw new IllegalArgumentException("operations must be positive");
+    }
+    if (per.isZero() || per.isNegative()) {
+      throw new IllegalArgumentException("per must be positive");
+    }
+    return new ThroughputExpectation(operations, per, negate);
+  }
+
+  /**
+   * Indicates that the checked history should be linearizable.
+   * <p>
+   * <code>
+   * Spec.given(history)<br>
+   * &nbsp;&nbsp;.expect(h -&gt; h.check(model), to().beLinearizable());
+   * </code>
+   *
+   * @return a predicate that tests the result of a linearizability check
+   * @see History#check(Model)
+   * @since 4.1
+   */
+  public Predicate<LinearizabilityResult> beLinearizable() {
+    return create(LinearizabilityResult::isLinearizable);
+  }
+
+  /**
+   * Indicates that the value should satisfy all the given predicates.
+   * <p>
+   * Unlike {@link Predicate#and(Predicate)}, the evaluation order adapts at
+   * runtime: cheap predicates that often reject the values are evaluated first.
+   * When the expectation fails, the predicates that rejected the value (by
+   * their position) are attached to the error as a suppressed exception.
+   *
+   * @param predicates the predicates to satisfy
+   * @return a predicate that composes the given ones
+   * @since 4.1
+   */
+  @SafeVarargs
+  public final <T> Predicate<T> satisfyAll(Predicate<? super T>... predicates) {
+    return create(new AdaptivePredicate<>(predicates, true));
+  }
+
+  /**
+   * Indicates that the value should satisfy at least one of the given
+   * predicates.
+   * <p>
+   * Unlike {@link Predicate#or(Predicate)}, the evaluation order adapts at
+   * runtime: cheap predicates that often accept the values are evaluated first.
+   *
+   * @param predicates the predicates to test
+   * @return a predicate that composes the given ones
+   * @since 4.1
+   */
+  @SafeVarargs
+  public final <T> Predicate<T> satisfyAny(Predicate<? super T>... predicates) {
+    return create(new AdaptivePredicate<>(predicates, false));
+  }
+
+  /**
+   * Indicates that the value should be between the given bounds (inclusive).
+   *
+   * @param min the lower bound
+   * @param max the upper bound
+   * @return a predicate that tests the value without boxing it
+   * @see SpecDefinition#expectInt(java.util.function.ToIntFunction, IntPredicate)
+   * @since 4.1
+   */
+  public IntPredicate beBetween(int min, int max) {
+    return createInt(value -> value >= min && value <= max);
+  }
+
+  /**
+   * Indicates that the value should be between the given bounds (inclusive).
+   *
+   * @param min the lower bound
+   * @param max the upper bound
+   * @return a predicate that tests the value without boxing it
+   * @see SpecDefinition#expectLong(java.util.function.ToLongFunction, LongPredicate)
+   * @since 4.1
+   */
+  public LongPredicate beBetween(long min, long max) {
+    return createLong(value -> value >= min && value <= max);
+  }
+
+  /**
+   * Indicates that the value should be between the given bounds (inclusive).
+   *
+   * @param min the lower bound
+   * @param max the upper bound
+   * @return a predicate that tests the value without boxing it
+   * @see SpecDefinition#expectDouble(java.util.function.ToDoubleFunction, DoublePredicate)
+   * @since 4.1
+   */
+  public DoublePredicate beBetween(double min, double max) {
+    return createDouble(value -> value >= min && value <= max);
+  }
+
+  /**
+   * Indicates that the value should not differ from the given value by more
+   * than the given tolerance.
+   *
+   * @param expected  the expected value
+   * @param tolerance the maximum absolute difference allowed
+   * @return a predicate that tests the value without boxing it
+   * @see SpecDefinition#expectDouble(java.util.function.ToDoubleFunction, DoublePredicate)
+   * @since 4.1
+   */
+  public DoublePredicate beCloseTo(double expected, double tolerance) {
+    return createDouble(value -> Math.abs(value - expected) <= tolerance);
+  }
+
   public <T> Predicate<T> follow(Consumer<SpecDefinition<T>> definition) {
     return t -> {
       definition.accept(Spec.given(t));
@@ -142,12 +341,64 @@ public class Expectation {
   }
 
   /**
-   * Creates a new Expectation that will negates the given predicates.
+   * Returns an Expectation that will negates the given predicates.
+   * <p>
+   * Expectations are immutable, so the same instance is shared across calls.
    *
-   * @return a new Expectation that negates every given predicate
+   * @return an Expectation that negates every given predicate
    */
   public Expectation not() {
-    return new Expectation(Predicate::negate);
+    if (negate) {
+      return this;
+    }
+    if (this == TO) {
+      return NOT;
+    }
+    return new Expectation(predicate -> modifier.apply(predicate.negate()), true);
+  }
+
+  /**
+   * Returns an Expectation whose predicates should be satisfied within the given
+   * timeout.
+   * <p>
+   * When used with {@link SpecDefinition#expect(Function, Predicate)} or
+   * {@link SpecDefinition#expect(Supplier, Predicate)}, the value is evaluated again,
+   * with an exponential backoff between the attempts (starting at 10 ms and
+   * capped at one second), until it passes or the timeout expires. The failure
+   * carries the number of attempts and the elapsed time as a suppressed error.
+   * <p>
+   * <code>
+   * Spec.given(cache)<br>
+   * &nbsp;&nbsp;.when(cache -&gt; cache.put("key", "value"))<br>
+   * &nbsp;&nbsp;.expect(cache -&gt; cache.get("key"),
+   * to().eventually(Duration.ofSeconds(5)).be("value"));
+   * </code>
+   * <p>
+   * Primitive predicates and other operations evaluate the value only once.
+   *
+   * @param timeout how long the value is polled
+   * @return an Expectation that polls the value until the predicate is satisfied
+   * @since 4.1
+   */
+  public Expectation eventually(Duration timeout) {
+    return eventually(timeout, Duration.ofNanos(DEFAULT_INITIAL_DELAY));
+  }
+
+  /**
+   * Returns an Expectation whose predicates should be satisfied within the given
+   * timeout, polling first after the given delay.
+   *
+   * @param timeout      how long the value is polled
+   * @param initialDelay the delay before the second attempt, doubled after each attempt
+   * @return an Expectation that polls the value until the predicate is satisfied
+   * @see #eventually(Duration)
+   * @since 4.1
+   */
+  public Expectation eventually(Duration timeout, Duration initialDelay) {
+    long timeoutNanos = timeout.toNanos();
+    long delayNanos = Math.max(1, initialDelay.toNanos());
+    return new Expectation(predicate -> new Eventually<>(modifier.apply(predicate), timeoutNanos, delayNanos),
+        negate);
   }
 
   /**
@@ -161,12 +412,27 @@ public class Expectation {
   }
 
   /**
-   * Creates a new Expectation
+   * Returns a period of one second.
+   * <p>
+   * Use this method to write readable code:
+   * {@code to().sustainThroughput(50_000, perSecond())}.
    *
-   * @return the created Expectation object
+   * @return a period of one second
+   * @since 4.1
+   */
+  public static Duration perSecond() {
+    return Duration.ofSeconds(1);
+  }
+
+  /**
+   * Returns the Expectation to start building predicates.
+   * <p>
+   * Expectations are immutable, so the same instance is shared across calls.
+   *
+   * @return the Expectation object
    */
   public static Expectation to() {
-    return new Expectation(Function.identity());
+    return TO;
   }
 
   /**
@@ -208,6 +474,42 @@ public class Expectation {
     return Function.identity();
   }
 
+  /**
+   * Returns a function whose value is computed once per target by the specs.
+   * Keep the returned function in a variable to share its value across
+   * expectations:
+   * <p>
+   * <code>
+   * Function&lt;Order, Invoice&gt; invoice = derived(Order::parseInvoice);<br>
+   * .expect(invoice.andThen(Invoice::total), to().be(100))
+   * </code>
+   *
+   * @param function the function to memoize
+   * @return a memoized function
+   * @see Derived
+   * @since 4.1
+   */
+  public static <T, R> Derived<T, R> derived(Function<? super T, ? extends R> function) {
+    return Derived.of(null, function);
+  }
+
+  /**
+   * Returns a function whose value is computed once per target by the specs,
+   * shared by every derived function created with an equal key. Use this to
+   * declare derived values inline:
+   * <p>
+   * <code>.expect(derived("invoice", Order::parseInvoice).andThen(Invoice::total), to().be(100))</code>
+   *
+   * @param key      the key of the value
+   * @param function the function to memoize
+   * @return a memoized function
+   * @see Derived
+   * @since 4.1
+   */
+  public static <T, R> Derived<T, R> derived(Object key, Function<? super T, ? extends R> function) {
+    return Derived.of(Objects.requireNonNull(key), function);
+  }
+
   /**
    * Returns a supplier that always returns the given value.
    *
@@ -233,6 +535,11 @@ public class Expectation {
    * Helper method to throw an {@link AssertionError} using the given reason as a message.
    */
   public static <T> Consumer<T> because(String reason) {
+    if (LIGHTWEIGHT_FAILURES) {
+      return obj -> {
+        throw new LightweightAssertionError(() -> reason);
+      };
+    }
     return obj -> {
       throw new AssertionError(reason);
     };
@@ -249,20 +556,58 @@ public class Expectation {
    * @since 3.2
    */
   public static Consumer throwAssertionError(String format) {
+    if (LIGHTWEIGHT_FAILURES) {
+      return throwLightweightError(format);
+    }
     return object -> {
       throw new AssertionError(String.format(format, object));
     };
   }
 
   /**
-   * Returns a consumert that throws an {@link AssertionError} with the following
+   * Returns a consumer that throws an {@link AssertionError} with the following
    * format: {@code "for value: %s"}.
+   * <p>
+   * This is the default fail operation and the same instance is shared across calls.
+   * <p>
+   * If the system property {@value #LIGHTWEIGHT_FAILURES_PROPERTY} is {@code true}, the
+   * thrown errors are {@link LightweightAssertionError lightweight}.
    *
    * @return a consumer object
    * @since 3.2
    */
   public static Consumer throwAssertionError() {
-    return throwAssertionError("for value: %s");
+    return DEFAULT_FAIL_OPERATION;
+  }
+
+  /**
+   * Returns a consumer that throws a {@link LightweightAssertionError} based on the
+   * given object. The message is only formatted if it is requested.
+   *
+   * @param format the format to apply to the message
+   *               (see {@link String#format(String, Object...)}), there will
+   *               be only one parameter to the message
+   * @return a consumer object
+   * @since 4.1
+   */
+  public static Consumer throwLightweightError(String format) {
+    return object -> {
+      throw new LightweightAssertionError(() -> String.format(format, object));
+    };
+  }
+
+  /**
+   * Returns a consumer that throws a {@link LightweightAssertionError} with the
+   * following format: {@code "for value: %s"}.
+   * <p>
+   * Use it with {@link SpecDefinition#onFail(Consumer)} for runs with a high
+   * failure rate.
+   *
+   * @return a consumer object
+   * @since 4.1
+   */
+  public static Consumer throwLightweightError() {
+    return LIGHTWEIGHT_FAIL_OPERATION;
   }
 
 }
@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+/**
+ * Describes a failed expectation.
+ *
+ * @author Marcelo Guimarães
+ * @see FailureHandler
+ * @since 4.1
+ */
+public class Failure {
+
+  private final String description;
+  private final Object target;
+  private final int index;
+  private final Object value;
+  private final String explanation;
+
+  /**
+   * Creates a new failure.
+   *
+   * @param description the description of the spec
+   * @param target      the target of the spec
+   * @param index       the position (starting at 1) of the expectation in the spec
+   * @param value       the value that failed the expectation
+   */
+  public Failure(String description, Object target, int index, Object value) {
+    this(description, target, index, value, null);
+  }
+
+  /**
+   * Creates a new failure.
+   *
+   * @param description the description of the spec
+   * @param target      the target of the spec
+   * @param index       the position (starting at 1) of the expectation in the spec
+   * @param value       the value that failed the expectation
+   * @param explanation why the value failed the expectation, like which of the
+   *                    composed predicates rejected it
+   * @since 4.1
+   */
+  public Failure(String description, Object target, int index, Object value, String explanation) {
+    this.description = description;
+    this.target = target;
+    this.index = index;
+    this.value = value;
+    this.explanation = explanation;
+  }
+
+  /**
+   * @return the description of the spec, or an empty string if the spec has no description
+   */
+  public String description() {
+    return description == null ? "" : description;
+  }
+
+  /**
+   * @return the target of the spec
+   */
+  public Object target() {
+    return target;
+  }
+
+  /**
+   * @return the position (starting at 1) of the expectation in the spec, or
+   * {@code 0} if it is unknown
+   */
+  public int index() {
+    return index;
+  }
+
+  /**
+   * @return the value that failed the expectation
+   */
+  public Object value() {
+    return value;
+  }
+
+  /**
+   * @return why the value failed the expectation (like which of the predicates
+   * composed by {@link Expectation#satisfyAll(java.util.function.Predicate[])}
+   * rejected it), or an empty string if the expectation can't tell
+   * @since 4.1
+   */
+  public String explanation() {
+    return explanation == null ? "" : explanation;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    if (!description().isEmpty()) {
+      result.append(description).append(": ");
+    }
+    if (index > 0) {
+      result.append("expectation #").append(index).append(' ');
+    }
+    result.append("for value: ").append(value);
+    if (!explanation().isEmpty()) {
+      result.append(" (").append(explanation).append(')');
+    }
+    return result.toString();
+  }
+
+}
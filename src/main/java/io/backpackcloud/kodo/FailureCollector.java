@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fail operation that collects the failures instead of throwing on the first one.
+ * <p>
+ * Only the first failures (up to the configured capacity) are kept, so the memory
+ * stays bounded even if millions of expectations fail; the others are only counted.
+ * The collector is thread safe and can be shared by specs running concurrently.
+ * <p>
+ * <code>
+ * FailureCollector failures = FailureCollector.create();<br>
+ * Spec.given(records).onFail(failures).each(Record.class, ...);<br>
+ * failures.verify();
+ * </code>
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+public class FailureCollector implements FailureHandler<Object> {
+
+  private static final int DEFAULT_CAPACITY = 1000;
+
+  private final AtomicReferenceArray<Failure> failures;
+  private final AtomicLong count = new AtomicLong();
+
+  private FailureCollector(int capacity) {
+    this.failures = new AtomicReferenceArray<>(capacity);
+  }
+
+  /**
+   * Creates a new collector that keeps up to 1000 failures.
+   *
+   * @return a new collector
+   */
+  public static FailureCollector create() {
+    return bounded(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a new collector that keeps up to the given number of failures.
+   *
+   * @param capacity the maximum number of failures to keep
+   * @return a new collector
+   */
+  public static FailureCollector bounded(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must not be negative");
+    }
+    return new FailureCollector(capacity);
+  }
+
+  @Override
+  public void handle(Failure failure) {
+    long position = count.getAndIncrement();
+    if (position < failures.length()) {
+      failures.set((int) position, failure);
+    }
+  }
+
+  /**
+   * @return the number of failures, including the ones that were not kept
+   */
+  public long count() {
+    return count.get();
+  }
+
+  /**
+   * @return {@code true} if no failure was collected
+   */
+  public boolean isEmpty() {
+    return count.get() == 0;
+  }
+
+  /**
+   * @return the kept failures, in the order they were collected
+   */
+  public List<Failure> failures() {
+    int size = (int) Math.min(count.get(), failures.length());
+    List<Failure> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Failure failure = failures.get(i);
+      if (failure != null) {
+        result.add(failure);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reports every collected failure.
+   *
+   * @throws MultipleFailuresError if any failure was collected
+   */
+  public void verify() {
+    long total = count.get();
+    if (total > 0) {
+      List<AssertionError> errors = new ArrayList<>();
+      for (Failure failure : failures()) {
+        errors.add(new AssertionError(failure.toString()));
+      }
+      throw new MultipleFailuresError(String.format("%d expectations failed", total), errors, total);
+    }
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.function.Consumer;
+
+/**
+ * A fail operation that receives the whole context of the failure instead
+ * of only the value that failed the expectation.
+ * <p>
+ * Register it as any other fail operation (through
+ * {@link SpecDefinition#onFail(Consumer)} or by passing it to an
+ * {@code expect} method).
+ *
+ * @author Marcelo Guimarães
+ * @see FailureCollector
+ * @since 4.1
+ */
+public interface FailureHandler<T> extends Consumer<T> {
+
+  /**
+   * Handles the given failure.
+   *
+   * @param failure the failure to handle
+   */
+  void handle(Failure failure);
+
+  /**
+   * Handles a failure without any context other than the failed value.
+   *
+   * @param value the value that failed the expectation
+   */
+  @Override
+  default void accept(T value) {
+    handle(new Failure("", null, 0, value));
+  }
+
+}
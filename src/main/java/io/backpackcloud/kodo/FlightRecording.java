@@ -0,0 +1,268 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits JDK Flight Recorder events for the specs.
+ * <p>
+ * This listener is only registered while a running recording enables any of
+ * the events, so specs don't pay anything when they are not being recorded.
+ * The events can be enabled or disabled through the usual JFR settings, using
+ * their names ({@code io.backpackcloud.kodo.Expectation}, for instance). The
+ * events are committed after the operations they describe, so their duration
+ * is in the {@code elapsed} field and JFR thresholds don't apply to them.
+ * <p>
+ * Set the system property {@code kodo.jfr} to {@code false} to never emit the
+ * events. Runtimes without JFR are detected and ignored.
+ *
+ * @author Marcelo Guimarães
+ * @see FlightRecordingSummary
+ * @since 4.1
+ */
+final class FlightRecording implements SpecListener, FlightRecorderListener {
+
+  static final String CATEGORY = "Kodo";
+  static final String START = "io.backpackcloud.kodo.SpecStart";
+  static final String END = "io.backpackcloud.kodo.SpecEnd";
+  static final String WHEN = "io.backpackcloud.kodo.When";
+  static final String EXPECTATION = "io.backpackcloud.kodo.Expectation";
+  static final String FAILURE = "io.backpackcloud.kodo.Failure";
+
+  private EventType[] types;
+
+  private FlightRecording() {
+
+  }
+
+  /**
+   * Starts following the recordings, if JFR is available.
+   * <p>
+   * This must not be called from the initializer of {@link Listeners}: JFR
+   * notifies the recordings from its own threads, which register this
+   * listener there.
+   */
+  static void install() {
+    if (!Boolean.parseBoolean(System.getProperty("kodo.jfr", "true"))) {
+      return;
+    }
+    try {
+      Class.forName("jdk.jfr.FlightRecorder");
+      FlightRecording recording = new FlightRecording();
+      FlightRecorder.addListener(recording);
+      if (FlightRecorder.isAvailable() && FlightRecorder.isInitialized()) {
+        recording.update();
+      }
+    } catch (ClassNotFoundException | LinkageError | SecurityException | IllegalStateException e) {
+      // JFR is not available in this runtime
+    }
+  }
+
+  @Override
+  public void recordingStateChanged(Recording recording) {
+    update();
+  }
+
+  /**
+   * Registers this listener while any of the events is enabled by a running
+   * recording.
+   */
+  private void update() {
+    // the condition is evaluated under the lock of the listeners, so
+    // concurrent notifications leave the latest state
+    Listeners.toggle(this, this::enabled);
+  }
+
+  private boolean enabled() {
+    EventType[] types = this.types;
+    if (types == null) {
+      // looking up the types registers the events, so it waits for JFR
+      types = new EventType[]{
+          EventType.getEventType(SpecStartEvent.class),
+          EventType.getEventType(SpecEndEvent.class),
+          EventType.getEventType(WhenEvent.class),
+          EventType.getEventType(ExpectationEvent.class),
+          EventType.getEventType(FailureEvent.class)
+      };
+      this.types = types;
+    }
+    for (EventType type : types) {
+      if (type.isEnabled()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void onStart(String description, Object target) {
+    SpecStartEvent event = new SpecStartEvent();
+    if (event.shouldCommit()) {
+      event.description = description;
+      event.targetType = target == null ? null : target.getClass().getName();
+      event.commit();
+    }
+  }
+
+  @Override
+  public void onWhen(String description, long nanos) {
+    WhenEvent event = new WhenEvent();
+    if (event.shouldCommit()) {
+      event.description = description;
+      event.elapsed = nanos;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void onExpectation(String description, int index, long nanos, boolean passed) {
+    ExpectationEvent event = new ExpectationEvent();
+    if (event.shouldCommit()) {
+      event.description = description;
+      event.index = index;
+      event.elapsed = nanos;
+      event.passed = passed;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void onFailure(String description, int index, Object value) {
+    FailureEvent event = new FailureEvent();
+    if (event.shouldCommit()) {
+      event.description = description;
+      event.index = index;
+      event.value = String.valueOf(value);
+      event.commit();
+    }
+  }
+
+  @Override
+  public void onEnd(String description, int expectations, int failures) {
+    SpecEndEvent event = new SpecEndEvent();
+    if (event.shouldCommit()) {
+      event.description = description;
+      event.expectations = expectations;
+      event.failures = failures;
+      event.commit();
+    }
+  }
+
+  @Name(START)
+  @Label("Spec Start")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static class SpecStartEvent extends Event {
+
+    @Label("Description")
+    String description;
+
+    @Label("Target Type")
+    String targetType;
+
+  }
+
+  @Name(END)
+  @Label("Spec End")
+  @Description("The end of a nested spec")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static class SpecEndEvent extends Event {
+
+    @Label("Description")
+    String description;
+
+    @Label("Expectations")
+    int expectations;
+
+    @Label("Failures")
+    int failures;
+
+  }
+
+  @Name(WHEN)
+  @Label("When")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static class WhenEvent extends Event {
+
+    @Label("Description")
+    String description;
+
+    @Label("Elapsed")
+    @Timespan
+    long elapsed;
+
+  }
+
+  @Name(EXPECTATION)
+  @Label("Expectation")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static class ExpectationEvent extends Event {
+
+    @Label("Description")
+    String description;
+
+    @Label("Index")
+    int index;
+
+    @Label("Elapsed")
+    @Timespan
+    long elapsed;
+
+    @Label("Passed")
+    boolean passed;
+
+  }
+
+  @Name(FAILURE)
+  @Label("Failure")
+  @Category(CATEGORY)
+  static class FailureEvent extends Event {
+
+    @Label("Description")
+    String description;
+
+    @Label("Index")
+    int index;
+
+    @Label("Value")
+    String value;
+
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Summarizes the spec events of a {@code .jfr} file: the specs that took the
+ * longest (adding up their {@code when} operations and expectations) and the
+ * expectations that failed the most. The events are replayed in a
+ * {@link ResultSummary}, like the ones of a {@link ResultFile}.
+ * <p>
+ * It can also be used from the command line:
+ * <p>
+ * <code>
+ * java -cp kodo.jar io.backpackcloud.kodo.FlightRecordingSummary recording.jfr [limit]
+ * </code>
+ *
+ * @author Marcelo Guimarães
+ * @see ResultSummary
+ * @since 4.1
+ */
+public final class FlightRecordingSummary {
+
+  private final ResultSummary summary = new ResultSummary();
+  private long events;
+
+  private FlightRecordingSummary() {
+
+  }
+
+  /**
+   * Reads the spec events of the given recording.
+   *
+   * @param recording the path of the {@code .jfr} file
+   * @return the summary of the recording
+   * @throws IOException if the file can't be read
+   */
+  public static FlightRecordingSummary read(Path recording) throws IOException {
+    FlightRecordingSummary summary = new FlightRecordingSummary();
+    try (RecordingFile file = new RecordingFile(recording)) {
+      while (file.hasMoreEvents()) {
+        summary.add(file.readEvent());
+      }
+    }
+    return summary;
+  }
+
+  /**
+   * Replays the event in the summary.
+   */
+  private void add(RecordedEvent event) {
+    String type = event.getEventType().getName();
+    switch (type) {
+      case FlightRecording.START:
+        summary.onStart(event.getString("description"), null);
+        break;
+      case FlightRecording.END:
+        summary.onEnd(event.getString("description"), event.getInt("expectations"), event.getInt("failures"));
+        break;
+      case FlightRecording.WHEN:
+        events++;
+        summary.onWhen(event.getString("description"), event.getLong("elapsed"));
+        break;
+      case FlightRecording.EXPECTATION:
+        events++;
+        summary.onExpectation(event.getString("description"), event.getInt("index"), event.getLong("elapsed"),
+            event.getBoolean("passed"));
+        break;
+      case FlightRecording.FAILURE:
+        events++;
+        summary.onFailure(event.getString("description"), event.getInt("index"), event.getString("value"));
+        break;
+      default:
+        // not a spec event
+    }
+  }
+
+  /**
+   * @return how many timed spec events (operations, expectations and failures) were read
+   */
+  public long events() {
+    return events;
+  }
+
+  /**
+   * @return the summary of the spec events
+   */
+  public ResultSummary summary() {
+    return summary;
+  }
+
+  /**
+   * @param limit the maximum number of specs
+   * @return the specs that took the longest, by description
+   */
+  public List<ResultSummary.Entry> slowest(int limit) {
+    return summary.slowest(limit);
+  }
+
+  /**
+   * @param limit the maximum number of expectations
+   * @return the expectations that failed the most, by description and index
+   */
+  public List<ResultSummary.Entry> hotSpots(int limit) {
+    return summary.hotSpots(limit);
+  }
+
+  /**
+   * @param limit the maximum number of entries in each section
+   * @return a readable summary
+   */
+  public String toString(int limit) {
+    StringBuilder result = new StringBuilder();
+    result.append(String.format("%d spec events%n%nSlowest specs:%n", events));
+    for (ResultSummary.Entry entry : slowest(limit)) {
+      result.append(String.format("  %s: %s in %d events (max %s)%n", entry.name(),
+          Measurement.format(entry.totalNanos()), entry.count(), Measurement.format(entry.maxNanos())));
+    }
+    result.append(String.format("%nFailure hot spots:%n"));
+    for (ResultSummary.Entry entry : hotSpots(limit)) {
+      result.append(String.format("  %s: %d failures (last value: %s)%n", entry.name(), entry.count(),
+          entry.sample()));
+    }
+    return result.toString();
+  }
+
+  @Override
+  public String toString() {
+    return toString(10);
+  }
+
+  /**
+   * Prints the summary of a recording.
+   *
+   * @param args the path of the recording and, optionally, how many entries to print
+   * @throws IOException if the recording can't be read
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: FlightRecordingSummary <recording.jfr> [limit]");
+      System.exit(1);
+    }
+    int limit = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    System.out.print(read(Paths.get(args[0])).toString(limit));
+  }
+
+}
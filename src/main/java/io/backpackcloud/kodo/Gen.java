@@ -0,0 +1,312 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A generator of random values for {@link Spec#forAll(Gen, java.util.function.Consumer) properties}.
+ * <p>
+ * Generators take every random decision from a {@link Source}, which records
+ * them. Shrinking a failing value means replaying smaller decisions, so every
+ * generator (including the ones built with {@link #map(Function)},
+ * {@link #flatMap(Function)} or {@link #zip(Gen, Gen, BiFunction)}) shrinks
+ * for free: numbers go towards zero, collections and strings get shorter and
+ * choices go towards the first option.
+ * <p>
+ * <code>
+ * Gen&lt;Order&gt; orders = Gen.zip(Gen.strings(1, 10), Gen.ints(1, 100), Order::new);
+ * </code>
+ *
+ * @author Marcelo Guimarães
+ * @see Spec#forAll(Gen, java.util.function.Consumer)
+ * @since 4.1
+ */
+@FunctionalInterface
+public interface Gen<T> {
+
+  /**
+   * The characters used by {@link #strings(int, int)}.
+   */
+  String ALPHANUMERIC = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+  /**
+   * Generates a value using the choices of the given source.
+   *
+   * @param source the source of random choices
+   * @return the generated value
+   */
+  T generate(Source source);
+
+  /**
+   * @param function the function to apply to the generated values
+   * @return a generator of the results of the given function
+   */
+  default <R> Gen<R> map(Function<? super T, ? extends R> function) {
+    return source -> function.apply(generate(source));
+  }
+
+  /**
+   * @param function the function that gives the generator to use for a value
+   * @return a generator that depends on the values of this one
+   */
+  default <R> Gen<R> flatMap(Function<? super T, ? extends Gen<? extends R>> function) {
+    return source -> function.apply(generate(source)).generate(source);
+  }
+
+  /**
+   * Returns a generator that only gives values accepted by the given predicate.
+   * Since rejected values are generated again, the predicate should accept most
+   * of the values.
+   *
+   * @param predicate the predicate to test the values
+   * @return a generator of the accepted values
+   * @throws IllegalStateException if no value is accepted after 100 attempts
+   */
+  default Gen<T> filter(Predicate<? super T> predicate) {
+    return source -> {
+      for (int i = 0; i < 100; i++) {
+        T value = generate(source);
+        if (predicate.test(value)) {
+          return value;
+        }
+      }
+      throw new IllegalStateException("No generated value was accepted after 100 attempts");
+    };
+  }
+
+  /**
+   * @param value the value to give
+   * @return a generator that always gives the same value
+   */
+  static <T> Gen<T> constant(T value) {
+    return source -> value;
+  }
+
+  /**
+   * @return a generator of booleans
+   */
+  static Gen<Boolean> booleans() {
+    return Source::nextBoolean;
+  }
+
+  /**
+   * @param min the lower bound
+   * @param max the upper bound (inclusive)
+   * @return a generator of ints in the given range
+   */
+  static Gen<Integer> ints(int min, int max) {
+    if (min > max) {
+      throw new IllegalArgumentException("min must not be greater than max");
+    }
+    return source -> source.nextInt(min, max);
+  }
+
+  /**
+   * @return a generator of any int
+   */
+  static Gen<Integer> ints() {
+    return ints(Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param min the lower bound
+   * @param max the upper bound (inclusive)
+   * @return a generator of longs in the given range
+   */
+  static Gen<Long> longs(long min, long max) {
+    if (min > max) {
+      throw new IllegalArgumentException("min must not be greater than max");
+    }
+    return source -> source.nextLong(min, max);
+  }
+
+  /**
+   * @return a generator of any long
+   */
+  static Gen<Long> longs() {
+    return longs(Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param min the lower bound
+   * @param max the upper bound (exclusive)
+   * @return a generator of doubles in the given range
+   */
+  static Gen<Double> doubles(double min, double max) {
+    if (!(min < max)) {
+      throw new IllegalArgumentException("min must be lower than max");
+    }
+    return source -> source.nextDouble(min, max);
+  }
+
+  /**
+   * @param characters the characters to choose from
+   * @return a generator of the given characters
+   */
+  static Gen<Character> chars(String characters) {
+    if (characters.isEmpty()) {
+      throw new IllegalArgumentException("No characters to choose from");
+    }
+    int last = characters.length() - 1;
+    return source -> characters.charAt(source.nextInt(0, last));
+  }
+
+  /**
+   * @param minLength the minimum length
+   * @param maxLength the maximum length
+   * @param characters the characters to choose from
+   * @return a generator of strings made of the given characters
+   */
+  static Gen<String> strings(int minLength, int maxLength, String characters) {
+    Source.checkLength(minLength, maxLength);
+    if (characters.isEmpty()) {
+      throw new IllegalArgumentException("No characters to choose from");
+    }
+    int last = characters.length() - 1;
+    return source -> {
+      int length = source.nextLength(minLength, maxLength);
+      char[] result = new char[length];
+      for (int i = 0; i < length; i++) {
+        result[i] = characters.charAt(source.nextInt(0, last));
+      }
+      return new String(result);
+    };
+  }
+
+  /**
+   * @param minLength the minimum length
+   * @param maxLength the maximum length
+   * @return a generator of {@link #ALPHANUMERIC alphanumeric} strings
+   */
+  static Gen<String> strings(int minLength, int maxLength) {
+    return strings(minLength, maxLength, ALPHANUMERIC);
+  }
+
+  /**
+   * @param elements  the generator of the elements
+   * @param minSize the minimum size
+   * @param maxSize the maximum size
+   * @return a generator of lists
+   */
+  static <T> Gen<List<T>> lists(Gen<? extends T> elements, int minSize, int maxSize) {
+    Source.checkLength(minSize, maxSize);
+    return source -> {
+      List<T> result = new ArrayList<>();
+      for (int i = 0, size = source.nextLength(minSize, maxSize); i < size; i++) {
+        result.add(elements.generate(source));
+      }
+      return result;
+    };
+  }
+
+  /**
+   * @param elements the generator of the elements
+   * @param maxSize  the maximum size
+   * @return a generator of lists
+   */
+  static <T> Gen<List<T>> lists(Gen<? extends T> elements, int maxSize) {
+    return lists(elements, 0, maxSize);
+  }
+
+  /**
+   * @param values the values to choose from
+   * @return a generator that chooses one of the given values
+   */
+  @SafeVarargs
+  static <T> Gen<T> oneOf(T... values) {
+    return oneOf(Collections.unmodifiableList(Arrays.asList(values.clone())));
+  }
+
+  /**
+   * @param values the values to choose from
+   * @return a generator that chooses one of the given values
+   */
+  static <T> Gen<T> oneOf(List<? extends T> values) {
+    if (values.isEmpty()) {
+      throw new IllegalArgumentException("No values to choose from");
+    }
+    int last = values.size() - 1;
+    return source -> values.get(source.nextInt(0, last));
+  }
+
+  /**
+   * @param generators the generators to choose from
+   * @return a generator that uses one of the given generators for each value
+   */
+  @SafeVarargs
+  static <T> Gen<T> choose(Gen<? extends T>... generators) {
+    Gen<? extends T>[] copy = generators.clone();
+    if (copy.length == 0) {
+      throw new IllegalArgumentException("No generators to choose from");
+    }
+    int last = copy.length - 1;
+    return source -> copy[source.nextInt(0, last)].generate(source);
+  }
+
+  /**
+   * Combines the values of two generators, to generate composed values.
+   *
+   * @param first    the first generator
+   * @param second   the second generator
+   * @param function the function to combine the values
+   * @return a generator of the combined values
+   */
+  static <A, B, R> Gen<R> zip(Gen<? extends A> first, Gen<? extends B> second,
+                              BiFunction<? super A, ? super B, ? extends R> function) {
+    return source -> function.apply(first.generate(source), second.generate(source));
+  }
+
+  /**
+   * Combines the values of three generators, to generate composed values.
+   *
+   * @param first    the first generator
+   * @param second   the second generator
+   * @param third    the third generator
+   * @param function the function to combine the values
+   * @return a generator of the combined values
+   */
+  static <A, B, C, R> Gen<R> zip(Gen<? extends A> first, Gen<? extends B> second, Gen<? extends C> third,
+                                 Function3<? super A, ? super B, ? super C, ? extends R> function) {
+    return source -> function.apply(first.generate(source), second.generate(source), third.generate(source));
+  }
+
+  /**
+   * A function of three arguments, used to combine generated values.
+   */
+  @FunctionalInterface
+  interface Function3<A, B, C, R> {
+
+    R apply(A a, B b, C c);
+
+  }
+
+}
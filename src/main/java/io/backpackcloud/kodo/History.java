@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Records a concurrent history of operations on an object, to check whether it
+ * is linearizable.
+ * <p>
+ * Each thread appends its operations to its own log, so recording doesn't add
+ * contention between the threads. Check the history only after the recording
+ * threads are finished.
+ * <p>
+ * <code>
+ * History&lt;Op, Object&gt; history = History.create();<br>
+ * <br>
+ * Spec.given(queue)<br>
+ * &nbsp;&nbsp;.concurrently(4, 1_000,<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;q -&gt; history.record(offer(1), () -&gt; q.offer(1)),<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;q -&gt; history.record(poll(), q::poll));<br>
+ * <br>
+ * Spec.given(history)<br>
+ * &nbsp;&nbsp;.expect(h -&gt; h.check(queueModel), to().beLinearizable());
+ * </code>
+ *
+ * @param <I> the type of the operation descriptions
+ * @param <O> the type of the outputs
+ * @author Marcelo Guimarães
+ * @see Model
+ * @since 4.1
+ */
+public final class History<I, O> {
+
+  private final ConcurrentLinkedQueue<List<Operation<I, O>>> logs = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<List<Operation<I, O>>> log = ThreadLocal.withInitial(() -> {
+    List<Operation<I, O>> result = new ArrayList<>();
+    logs.add(result);
+    return result;
+  });
+
+  private History() {
+
+  }
+
+  /**
+   * @return a new empty history
+   */
+  public static <I, O> History<I, O> create() {
+    return new History<>();
+  }
+
+  /**
+   * Executes and records an operation. If the operation raises an exception, the
+   * exception is recorded as its {@link Operation#error() error} and rethrown.
+   *
+   * @param input     the description of the operation
+   * @param operation the operation
+   * @return the output of the operation
+   */
+  public <R extends O> R record(I input, Supplier<R> operation) {
+    List<Operation<I, O>> operations = log.get();
+    long invokedAt = System.nanoTime();
+    R output;
+    try {
+      output = operation.get();
+    } catch (RuntimeException | Error e) {
+      operations.add(new Operation<>(Thread.currentThread().getId(), input, null, e, invokedAt, System.nanoTime()));
+      throw e;
+    }
+    operations.add(new Operation<>(Thread.currentThread().getId(), input, output, null, invokedAt,
+        System.nanoTime()));
+    return output;
+  }
+
+  /**
+   * Executes and records an operation that doesn't return a value.
+   *
+   * @param input     the description of the operation
+   * @param operation the operation
+   */
+  public void record(I input, Runnable operation) {
+    record(input, () -> {
+      operation.run();
+      return null;
+    });
+  }
+
+  /**
+   * @return every recorded operation, in the order they were invoked
+   */
+  public List<Operation<I, O>> operations() {
+    List<Operation<I, O>> result = new ArrayList<>();
+    logs.forEach(result::addAll);
+    result.sort(Comparator.comparingLong(Operation::invokedAt));
+    return result;
+  }
+
+  /**
+   * @return the number of recorded operations
+   */
+  public int size() {
+    int size = 0;
+    for (List<Operation<I, O>> operations : logs) {
+      size += operations.size();
+    }
+    return size;
+  }
+
+  /**
+   * Checks whether this history is linearizable according to the given model.
+   * Operations that raised an exception are assumed to have had no effect, so
+   * they are not given to the model.
+   *
+   * @param model the sequential specification of the object
+   * @return the result of the check
+   * @see Expectation#beLinearizable()
+   */
+  public <S> LinearizabilityResult check(Model<S, I, O> model) {
+    return new LinearizabilityChecker<>(model).check(operations());
+  }
+
+  @Override
+  public String toString() {
+    return String.format("history of %d operations", size());
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * A measurement of how long an operation takes to complete.
+ * <p>
+ * By default, the operation is executed once. Use {@link #repeat(int)} and
+ * {@link #warmup(int)} to execute it many times (the warmup runs are not
+ * recorded) and {@link #percentile(double, Duration)} to bound the distribution
+ * of the latencies.
+ * <p>
+ * <code>
+ * Spec.given(cache)<br>
+ * &nbsp;&nbsp;.expect(cache -&gt; cache.get("key"), to().completeWithin(Duration.ofMillis(5))<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.warmup(1_000)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.repeat(10_000)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.percentile(99, Duration.ofMicros(100)));
+ * </code>
+ * <p>
+ * Instances are immutable.
+ *
+ * @author Marcelo Guimarães
+ * @see Expectation#completeWithin(Duration)
+ * @since 4.1
+ */
+public final class LatencyExpectation extends Measurement {
+
+  private final long limit;
+  private final int repeat;
+  private final int warmup;
+  private final double[] percentiles;
+  private final long[] bounds;
+
+  private LatencyExpectation(boolean negate, long limit, int repeat, int warmup, double[] percentiles,
+                             long[] bounds) {
+    super(negate);
+    this.limit = limit;
+    this.repeat = repeat;
+    this.warmup = warmup;
+    this.percentiles = percentiles;
+    this.bounds = bounds;
+  }
+
+  LatencyExpectation(Duration limit, boolean negate) {
+    this(negate, limit.toNanos(), 1, 0, new double[0], new long[0]);
+  }
+
+  /**
+   * Executes the operation the given number of times. Every execution must still
+   * complete within the limit.
+   *
+   * @param times the number of measured executions
+   * @return a new LatencyExpectation
+   */
+  public LatencyExpectation repeat(int times) {
+    if (times < 1) {
+      throw new IllegalArgumentException("times must be positive");
+    }
+    return new LatencyExpectation(negate(), limit, times, warmup, percentiles, bounds);
+  }
+
+  /**
+   * Executes the operation the given number of times before measuring it, so the
+   * JIT compiler and the caches can settle.
+   *
+   * @param times the number of executions that are not measured
+   * @return a new LatencyExpectation
+   */
+  public LatencyExpectation warmup(int times) {
+    if (times < 0) {
+      throw new IllegalArgumentException("times must not be negative");
+    }
+    return new LatencyExpectation(negate(), limit, repeat, times, percentiles, bounds);
+  }
+
+  /**
+   * Bounds the latency at the given percentile, {@code percentile(99.9, ...)} for
+   * instance.
+   *
+   * @param percentile the percentile, from 0 to 100
+   * @param bound      the maximum latency at the percentile
+   * @return a new LatencyExpectation
+   */
+  public LatencyExpectation percentile(double percentile, Duration bound) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100");
+    }
+    double[] newPercentiles = Arrays.copyOf(percentiles, percentiles.length + 1);
+    long[] newBounds = Arrays.copyOf(bounds, bounds.length + 1);
+    newPercentiles[percentiles.length] = percentile;
+    newBounds[bounds.length] = bound.toNanos();
+    return new LatencyExpectation(negate(), limit, repeat, warmup, newPercentiles, newBounds);
+  }
+
+  @Override
+  Object measure(Runnable operation) {
+    for (int i = 0; i < warmup; i++) {
+      operation.run();
+    }
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < repeat; i++) {
+      long start = System.nanoTime();
+      operation.run();
+      histogram.record(System.nanoTime() - start);
+    }
+    return check(histogram);
+  }
+
+  Object check(LatencyHistogram histogram) {
+    StringBuilder violations = new StringBuilder();
+    if (histogram.max() > limit) {
+      violations.append(String.format("max %s > %s", Measurement.format(histogram.max()), Measurement.format(limit)));
+    }
+    for (int i = 0; i < percentiles.length; i++) {
+      long value = histogram.percentile(percentiles[i]);
+      if (value > bounds[i]) {
+        if (violations.length() > 0) {
+          violations.append(", ");
+        }
+        violations.append(String.format("p%s %s > %s",
+            trim(percentiles[i]), Measurement.format(value), Measurement.format(bounds[i])));
+      }
+    }
+    if (violations.length() == 0) {
+      return null;
+    }
+    return repeat == 1 && percentiles.length == 0 ?
+        String.format("took %s (expected at most %s)", Measurement.format(histogram.max()), Measurement.format(limit)) :
+        String.format("%s (%s)", violations, histogram);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("complete within ").append(Measurement.format(limit));
+    for (int i = 0; i < percentiles.length; i++) {
+      result.append(String.format(", p%s within %s", trim(percentiles[i]), Measurement.format(bounds[i])));
+    }
+    return result.toString();
+  }
+
+  private static String trim(double percentile) {
+    return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+  }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+/**
+ * A histogram of latencies, in nanoseconds, with a fixed memory footprint.
+ * <p>
+ * Values are recorded in logarithmic buckets, each one split in 64 linear
+ * sub-buckets, so every value is kept with a relative error below 1.6% no
+ * matter its magnitude (values below 128 ns are exact). Percentiles report the
+ * upper bound of the bucket, so they never underestimate a latency. The minimum
+ * and the maximum are exact.
+ * <p>
+ * This class is not thread safe, use one histogram per thread and
+ * {@link #add(LatencyHistogram) add} them afterwards.
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+  private static final int SIZE = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final long[] counts = new long[SIZE];
+  private long count;
+  private long total;
+  private long min = Long.MAX_VALUE;
+  private long max;
+
+  /**
+   * Records a latency.
+   *
+   * @param nanos the latency, in nanoseconds
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts[indexOf(value)]++;
+    count++;
+    total += value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Records a latency, correcting it for coordinated omission.
+   * <p>
+   * When an operation is expected every {@code expectedInterval} nanoseconds, a
+   * latency longer than the interval delayed the operations that should have been
+   * started meanwhile. Their latencies are recorded too, decreasing by the interval,
+   * so a stall is not hidden by the fact that fewer operations were executed
+   * during it. The missing values are counted per bucket, so the cost doesn't
+   * depend on how many operations were missed.
+   *
+   * @param nanos            the latency, in nanoseconds
+   * @param expectedInterval the expected interval between operations, in nanoseconds
+   */
+  public void record(long nanos, long expectedInterval) {
+    record(nanos);
+    if (expectedInterval <= 0) {
+      return;
+    }
+    long missing = nanos / expectedInterval - 1;
+    if (missing <= 0) {
+      return;
+    }
+    // the missing values are nanos - k * expectedInterval, for k from 1 to missing
+    long lowest = nanos - missing * expectedInterval;
+    long highest = nanos - expectedInterval;
+    for (int index = indexOf(lowest), last = indexOf(highest); index <= last; index++) {
+      long from = Math.max(lowest, lowerBoundOf(index));
+      long to = Math.min(highest, upperBoundOf(index));
+      long first = (nanos - to + expectedInterval - 1) / expectedInterval;
+      long latest = (nanos - from) / expectedInterval;
+      if (latest >= first) {
+        counts[index] += latest - first + 1;
+      }
+    }
+    count += missing;
+    total += (long) Math.min(Long.MAX_VALUE - total, missing * ((double) lowest + highest) / 2);
+    min = Math.min(min, lowest);
+  }
+
+  /**
+   * Adds every value recorded in the given histogram to this one.
+   *
+   * @param other the histogram to add
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < SIZE; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    total += other.total;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * @return the number of recorded values
+   */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * @return the lowest recorded value, or 0 if nothing was recorded
+   */
+  public long min() {
+    return count == 0 ? 0 : min;
+  }
+
+  /**
+   * @return the highest recorded value
+   */
+  public long max() {
+    return max;
+  }
+
+  /**
+   * @return the mean of the recorded values
+   */
+  public double mean() {
+    return count == 0 ? 0 : (double) total / count;
+  }
+
+  /**
+   * Returns the value below which the given percentage of the recorded values fall.
+   *
+   * @param percentile the percentile, from 0 to 100
+   * @return the value at the given percentile, or 0 if nothing was recorded
+   */
+  public long percentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100");
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < SIZE; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        return Math.max(min, Math.min(max, upperBoundOf(i)));
+      }
+    }
+    return max;
+  }
+
+  private static int indexOf(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+  }
+
+  private static long lowerBoundOf(int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+    int shift = (index >>> SUB_BUCKET_BITS) - 1;
+    long subBucket = index - ((long) shift << SUB_BUCKET_BITS);
+    return subBucket << shift;
+  }
+
+  private static long upperBoundOf(int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+    int shift = (index >>> SUB_BUCKET_BITS) - 1;
+    long subBucket = index - ((long) shift << SUB_BUCKET_BITS);
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d values: p50 %s, p99 %s, p99.9 %s, max %s",
+        count,
+        Measurement.format(percentile(50)),
+        Measurement.format(percentile(99)),
+        Measurement.format(percentile(99.9)),
+        Measurement.format(max));
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.function.Supplier;
+
+/**
+ * An {@link AssertionError} that is cheap to create: it doesn't fill in its stack
+ * trace and its message is only formatted when it is requested.
+ * <p>
+ * Use it when a high number of failures is expected, as in data validation, so the
+ * cost of a run is not dominated by the construction of the errors.
+ *
+ * @author Marcelo Guimarães
+ * @see Expectation#throwLightweightError()
+ * @since 4.1
+ */
+public class LightweightAssertionError extends AssertionError {
+
+  private final transient Supplier<String> messageSupplier;
+  private String message;
+
+  /**
+   * Creates a new error.
+   *
+   * @param messageSupplier the supplier of the message, called at most once
+   */
+  public LightweightAssertionError(Supplier<String> messageSupplier) {
+    this.messageSupplier = messageSupplier;
+  }
+
+  @Override
+  public synchronized String getMessage() {
+    if (message == null && messageSupplier != null) {
+      message = messageSupplier.get();
+    }
+    return message;
+  }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+
+}
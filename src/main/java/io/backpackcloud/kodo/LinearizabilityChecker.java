@@ -0,0 +1,230 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Checks histories with the Wing and Gong search, memoizing the visited
+ * configurations (the set of linearized operations plus the state) as proposed
+ * by Lowe. Partitions are checked independently and concurrently.
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+final class LinearizabilityChecker<S, I, O> {
+
+  private final Model<S, I, O> model;
+
+  LinearizabilityChecker(Model<S, I, O> model) {
+    this.model = model;
+  }
+
+  LinearizabilityResult check(List<Operation<I, O>> operations) {
+    long start = System.nanoTime();
+    Map<Object, List<Operation<I, O>>> partitions = new LinkedHashMap<>();
+    for (Operation<I, O> operation : operations) {
+      if (operation.error() != null) {
+        // assumed to have had no effect
+        continue;
+      }
+      partitions.computeIfAbsent(model.partition(operation.input()), key -> new ArrayList<>()).add(operation);
+    }
+    LinearizabilityResult failure = partitions.entrySet().parallelStream()
+        .map(partition -> check(partition.getKey(), partition.getValue()))
+        .filter(Objects::nonNull)
+        .findFirst()
+        .orElse(null);
+    long elapsed = System.nanoTime() - start;
+    if (failure != null) {
+      return failure.withTotals(operations.size(), partitions.size(), elapsed);
+    }
+    return new LinearizabilityResult(operations.size(), partitions.size(), elapsed, null, null, 0, 0);
+  }
+
+  /**
+   * @return {@code null} if the partition is linearizable, or the failure
+   */
+  private LinearizabilityResult check(Object key, List<Operation<I, O>> operations) {
+    Entry<I, O> head = entries(operations);
+    Set<Configuration<S>> visited = new HashSet<>();
+    Deque<Frame<S, I, O>> calls = new ArrayDeque<>();
+    BitSet linearized = new BitSet(operations.size());
+    S state = model.initial();
+    Entry<I, O> entry = head.next;
+    Operation<I, O> blocking = null;
+    int deepest = -1;
+    while (head.next != null) {
+      if (entry.call) {
+        S next = model.step(state, entry.operation.input(), entry.operation.output());
+        boolean lifted = false;
+        if (next != null) {
+          linearized.set(entry.id);
+          if (visited.add(new Configuration<>((BitSet) linearized.clone(), next))) {
+            calls.push(new Frame<>(entry, state));
+            state = next;
+            entry.lift();
+            entry = head.next;
+            lifted = true;
+          } else {
+            linearized.clear(entry.id);
+          }
+        }
+        if (!lifted) {
+          entry = entry.next;
+        }
+      } else {
+        // the operation returned before any order could linearize it
+        if (calls.size() > deepest) {
+          deepest = calls.size();
+          blocking = entry.operation;
+        }
+        if (calls.isEmpty()) {
+          return new LinearizabilityResult(0, 0, 0, key, blocking, deepest, operations.size());
+        }
+        Frame<S, I, O> frame = calls.pop();
+        entry = frame.entry;
+        state = frame.state;
+        linearized.clear(entry.id);
+        entry.unlift();
+        entry = entry.next;
+      }
+    }
+    return null;
+  }
+
+  private static <I, O> Entry<I, O> entries(List<Operation<I, O>> operations) {
+    List<Entry<I, O>> entries = new ArrayList<>(operations.size() * 2);
+    for (int i = 0; i < operations.size(); i++) {
+      Operation<I, O> operation = operations.get(i);
+      Entry<I, O> call = new Entry<>(i, operation, true, operation.invokedAt());
+      Entry<I, O> ret = new Entry<>(i, operation, false, operation.returnedAt());
+      call.match = ret;
+      entries.add(call);
+      entries.add(ret);
+    }
+    // on ties, calls come first, so the operations are taken as concurrent
+    entries.sort((a, b) -> a.time != b.time ? Long.compare(a.time, b.time) : Boolean.compare(b.call, a.call));
+    Entry<I, O> head = new Entry<>(-1, null, false, Long.MIN_VALUE);
+    Entry<I, O> previous = head;
+    for (Entry<I, O> entry : entries) {
+      previous.next = entry;
+      entry.prev = previous;
+      previous = entry;
+    }
+    return head;
+  }
+
+  private static final class Entry<I, O> {
+
+    private final int id;
+    private final Operation<I, O> operation;
+    private final boolean call;
+    private final long time;
+    private Entry<I, O> match;
+    private Entry<I, O> prev;
+    private Entry<I, O> next;
+
+    Entry(int id, Operation<I, O> operation, boolean call, long time) {
+      this.id = id;
+      this.operation = operation;
+      this.call = call;
+      this.time = time;
+    }
+
+    /**
+     * Removes this call and its return from the list.
+     */
+    void lift() {
+      prev.next = next;
+      next.prev = prev;
+      match.prev.next = match.next;
+      if (match.next != null) {
+        match.next.prev = match.prev;
+      }
+    }
+
+    /**
+     * Puts this call and its return back in the list.
+     */
+    void unlift() {
+      match.prev.next = match;
+      if (match.next != null) {
+        match.next.prev = match;
+      }
+      prev.next = this;
+      next.prev = this;
+    }
+
+  }
+
+  private static final class Frame<S, I, O> {
+
+    private final Entry<I, O> entry;
+    private final S state;
+
+    Frame(Entry<I, O> entry, S state) {
+      this.entry = entry;
+      this.state = state;
+    }
+
+  }
+
+  private static final class Configuration<S> {
+
+    private final BitSet linearized;
+    private final S state;
+
+    Configuration(BitSet linearized, S state) {
+      this.linearized = linearized;
+      this.state = state;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Configuration)) {
+        return false;
+      }
+      Configuration<?> other = (Configuration<?>) o;
+      return linearized.equals(other.linearized) && Objects.equals(state, other.state);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * linearized.hashCode() + Objects.hashCode(state);
+    }
+
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+/**
+ * The result of a linearizability check.
+ *
+ * @author Marcelo Guimarães
+ * @see History#check(Model)
+ * @since 4.1
+ */
+public final class LinearizabilityResult {
+
+  private final int operations;
+  private final int partitions;
+  private final long elapsed;
+  private final Object partition;
+  private final Operation<?, ?> operation;
+  private final int linearized;
+  private final int partitionSize;
+
+  LinearizabilityResult(int operations, int partitions, long elapsed, Object partition,
+                        Operation<?, ?> operation, int linearized, int partitionSize) {
+    this.operations = operations;
+    this.partitions = partitions;
+    this.elapsed = elapsed;
+    this.partition = partition;
+    this.operation = operation;
+    this.linearized = linearized;
+    this.partitionSize = partitionSize;
+  }
+
+  LinearizabilityResult withTotals(int operations, int partitions, long elapsed) {
+    return new LinearizabilityResult(operations, partitions, elapsed, partition, operation, linearized, partitionSize);
+  }
+
+  /**
+   * @return {@code true} if the history is linearizable
+   */
+  public boolean isLinearizable() {
+    return operation == null;
+  }
+
+  /**
+   * @return the number of checked operations
+   */
+  public int operations() {
+    return operations;
+  }
+
+  /**
+   * @return the number of checked partitions
+   */
+  public int partitions() {
+    return partitions;
+  }
+
+  /**
+   * @return the time spent checking the history, in nanoseconds
+   */
+  public long elapsedNanos() {
+    return elapsed;
+  }
+
+  /**
+   * @return the operation that couldn't be linearized, or {@code null} if the
+   * history is linearizable
+   */
+  public Operation<?, ?> operation() {
+    return operation;
+  }
+
+  @Override
+  public String toString() {
+    if (isLinearizable()) {
+      return String.format("linearizable (%d operations in %d partitions, checked in %d ms)",
+          operations, partitions, elapsed / 1_000_000);
+    }
+    return String.format("not linearizable: %s can't be linearized after %d of %d operations%s",
+        operation, linearized, partitionSize, partition == null ? "" : " in partition " + partition);
+  }
+
+}
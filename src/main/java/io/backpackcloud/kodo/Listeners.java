@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Holds the registered {@link SpecListener listeners}. The current listener is
+ * {@code null} when there is none, so specs can skip the notifications with a
+ * single check.
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+final class Listeners {
+
+  private static final List<SpecListener> registered = new ArrayList<>();
+  private static volatile SpecListener current;
+
+  static {
+    for (SpecListener listener : ServiceLoader.load(SpecListener.class)) {
+      registered.add(listener);
+    }
+    update();
+  }
+
+  private Listeners() {
+
+  }
+
+  /**
+   * @return the listener to notify, or {@code null} if there is none
+   */
+  static SpecListener current() {
+    return current;
+  }
+
+  static synchronized void add(SpecListener listener) {
+    if (listener == null) {
+      throw new NullPointerException("listener");
+    }
+    registered.add(listener);
+    update();
+  }
+
+  static synchronized void remove(SpecListener listener) {
+    registered.remove(listener);
+    update();
+  }
+
+  /**
+   * Registers the given listener if the condition holds, and removes it
+   * otherwise. The condition is evaluated while holding the lock.
+   */
+  static synchronized void toggle(SpecListener listener, BooleanSupplier condition) {
+    boolean present = registered.contains(listener);
+    if (condition.getAsBoolean() != present) {
+      if (present) {
+        registered.remove(listener);
+      } else {
+        registered.add(listener);
+      }
+      update();
+    }
+  }
+
+  private static void update() {
+    switch (registered.size()) {
+      case 0:
+        current = null;
+        break;
+      case 1:
+        current = registered.get(0);
+        break;
+      default:
+        current = new Composite(registered.toArray(new SpecListener[0]));
+    }
+  }
+
+  private static class Composite implements SpecListener {
+
+    private final SpecListener[] listeners;
+
+    Composite(SpecListener[] listeners) {
+      this.listeners = listeners;
+    }
+
+    @Override
+    public void onStart(String description, Object target) {
+      for (SpecListener listener : listeners) {
+        listener.onStart(description, target);
+      }
+    }
+
+    @Override
+    public void onWhen(String description, long nanos) {
+      for (SpecListener listener : listeners) {
+        listener.onWhen(description, nanos);
+      }
+    }
+
+    @Override
+    public void onExpectation(String description, int index, long nanos, boolean passed) {
+      for (SpecListener listener : listeners) {
+        listener.onExpectation(description, index, nanos, passed);
+      }
+    }
+
+    @Override
+    public void onFailure(String description, int index, Object value) {
+      for (SpecListener listener : listeners) {
+        listener.onFailure(description, index, value);
+      }
+    }
+
+    @Override
+    public void onEnd(String description, int expectations, int failures) {
+      for (SpecListener listener : listeners) {
+        listener.onEnd(description, expectations, failures);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.toString(listeners);
+    }
+
+  }
+
+}
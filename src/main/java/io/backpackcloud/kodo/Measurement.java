@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.function.Consumer;
+
+/**
+ * An expectation that measures an operation instead of testing its outcome.
+ * <p>
+ * Measurements are given to {@link SpecDefinition#expect(Consumer, Measurement)},
+ * which gives them the operation to run as many times as they need. If the
+ * measurement is not within its bounds, the fail operation receives a report of
+ * what was measured.
+ * <p>
+ * Measurements created through {@link Expectation#to()} and
+ * {@link Expectation#not()} fail, respectively, when the operation is out of
+ * and within the bounds.
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+public abstract class Measurement {
+
+  private final boolean negate;
+
+  Measurement(boolean negate) {
+    this.negate = negate;
+  }
+
+  /**
+   * @return {@code true} if the measurement should fail when the operation is
+   * within the bounds
+   */
+  boolean negate() {
+    return negate;
+  }
+
+  /**
+   * Measures the given operation.
+   *
+   * @param operation the operation to measure
+   * @return {@code null} if the measurement is within its bounds, or a report of it
+   */
+  abstract Object measure(Runnable operation);
+
+  /**
+   * Measures the given operation, inverting the outcome if this measurement is
+   * negated.
+   *
+   * @param operation the operation to measure
+   * @return {@code null} if the measurement passes, or a report of it
+   */
+  final Object evaluate(Runnable operation) {
+    Object report = measure(operation);
+    if (!negate) {
+      return report;
+    }
+    return report == null ? "expected not to " + this : null;
+  }
+
+  static String format(long nanos) {
+    return String.format("%.3f ms", nanos / 1e6);
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A sequential specification of an object, used to check whether a concurrent
+ * {@link History} of the object is linearizable.
+ * <p>
+ * States should be immutable, can't be {@code null} and must implement
+ * {@code equals} and {@code hashCode}, since the checker memoizes the states it
+ * has already visited.
+ * Every method must be free of side effects, partitions may be checked
+ * concurrently. Operations that raised an exception are not given to the
+ * model, they are assumed to have had no effect.
+ *
+ * @param <S> the type of the states
+ * @param <I> the type of the operation descriptions
+ * @param <O> the type of the outputs
+ * @author Marcelo Guimarães
+ * @see History#check(Model)
+ * @since 4.1
+ */
+public interface Model<S, I, O> {
+
+  /**
+   * @return the initial state of the object
+   */
+  S initial();
+
+  /**
+   * Applies an operation to a state.
+   *
+   * @param state  the current state
+   * @param input  the description of the operation
+   * @param output the value returned by the operation
+   * @return the next state, or {@code null} if the output is not possible from the
+   * given state
+   */
+  S step(S state, I input, O output);
+
+  /**
+   * Returns the partition of the given operation. Operations in different
+   * partitions must not affect each other (operations on different keys of a map,
+   * for instance), which allows each partition to be checked on its own.
+   *
+   * @param input the description of the operation
+   * @return the partition of the operation ({@code null} means a single partition)
+   */
+  default Object partition(I input) {
+    return null;
+  }
+
+  /**
+   * Returns a copy of this model that partitions the operations by the given key.
+   *
+   * @param key the function that returns the partition of an operation
+   * @return a new Model
+   * @see #partition(Object)
+   */
+  default Model<S, I, O> partitionedBy(Function<? super I, ?> key) {
+    Model<S, I, O> model = this;
+    return new Model<S, I, O>() {
+      @Override
+      public S initial() {
+        return model.initial();
+      }
+
+      @Override
+      public S step(S state, I input, O output) {
+        return model.step(state, input, output);
+      }
+
+      @Override
+      public Object partition(I input) {
+        return key.apply(input);
+      }
+    };
+  }
+
+  /**
+   * Creates a deterministic model, in which each operation has a single possible
+   * output.
+   *
+   * @param initial the initial state
+   * @param next    the function that returns the state after an operation
+   * @param output  the function that returns the expected output of an operation
+   * @return a new Model
+   */
+  static <S, I, O> Model<S, I, O> of(S initial, BiFunction<S, I, S> next, BiFunction<S, I, ?> output) {
+    return new Model<S, I, O>() {
+      @Override
+      public S initial() {
+        return initial;
+      }
+
+      @Override
+      public S step(S state, I input, O actual) {
+        return Objects.equals(output.apply(state, input), actual) ? next.apply(state, input) : null;
+      }
+    };
+  }
+
+}
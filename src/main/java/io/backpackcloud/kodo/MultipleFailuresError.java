@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An {@link AssertionError} that aggregates the failures of a set of specs.
+ * <p>
+ * Only a bounded number of failures is kept (see {@link #failures()}), the
+ * total number of failures is available through {@link #count()}.
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+public class MultipleFailuresError extends AssertionError {
+
+  private final List<Throwable> failures;
+  private final long count;
+
+  /**
+   * Creates a new error.
+   *
+   * @param header   the first line of the message
+   * @param failures the failures to report
+   * @param count    the total number of failures (may be greater than the
+   *                 number of reported failures)
+   */
+  public MultipleFailuresError(String header, List<? extends Throwable> failures, long count) {
+    super(message(header, failures, count));
+    this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+    this.count = count;
+    failures.forEach(this::addSuppressed);
+  }
+
+  /**
+   * @return the reported failures
+   */
+  public List<Throwable> failures() {
+    return failures;
+  }
+
+  /**
+   * @return the total number of failures, including the ones that were not kept
+   */
+  public long count() {
+    return count;
+  }
+
+  private static String message(String header, List<? extends Throwable> failures, long count) {
+    StringBuilder message = new StringBuilder(header);
+    for (Throwable failure : failures) {
+      message.append(System.lineSeparator()).append("  - ").append(failure.getMessage());
+    }
+    if (count > failures.size()) {
+      message.append(System.lineSeparator())
+          .append("  ... and ").append(count - failures.size()).append(" more");
+    }
+    return message.toString();
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+/**
+ * An operation recorded in a {@link History}.
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+public final class Operation<I, O> {
+
+  private final long thread;
+  private final I input;
+  private final O output;
+  private final Throwable error;
+  private final long invokedAt;
+  private final long returnedAt;
+
+  Operation(long thread, I input, O output, Throwable error, long invokedAt, long returnedAt) {
+    this.thread = thread;
+    this.input = input;
+    this.output = output;
+    this.error = error;
+    this.invokedAt = invokedAt;
+    this.returnedAt = returnedAt;
+  }
+
+  /**
+   * @return the id of the thread that executed the operation
+   */
+  public long thread() {
+    return thread;
+  }
+
+  /**
+   * @return the description of the operation, as given to the history
+   */
+  public I input() {
+    return input;
+  }
+
+  /**
+   * @return the value returned by the operation, or {@code null} if it raised an
+   * exception
+   */
+  public O output() {
+    return output;
+  }
+
+  /**
+   * @return the exception raised by the operation, or {@code null} if it returned
+   */
+  public Throwable error() {
+    return error;
+  }
+
+  /**
+   * @return when the operation was invoked, as given by {@link System#nanoTime()}
+   */
+  public long invokedAt() {
+    return invokedAt;
+  }
+
+  /**
+   * @return when the operation returned, as given by {@link System#nanoTime()}
+   */
+  public long returnedAt() {
+    return returnedAt;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[thread %d] %s -> %s", thread, input, error != null ? error : output);
+  }
+
+}
@@ -0,0 +1,367 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Defines how the elements of a spec are evaluated concurrently.
+ * <p>
+ * The elements are split through their {@link Spliterator} and evaluated in a
+ * {@link ForkJoinPool}. Every failure raised by an element (an
+ * {@link AssertionError} or a {@link RuntimeException}) is collected and, after
+ * all elements are evaluated, reported in a single {@link MultipleFailuresError}.
+ * <p>
+ * For specs that block (on I/O, for instance), use {@link #virtualThreads(int)}
+ * to evaluate each element in its own virtual thread instead.
+ * <p>
+ * Instances are immutable, use the builder methods to create new ones.
+ *
+ * @author Marcelo Guimarães
+ * @see SpecDefinition#parallelEach(Class, Function, Consumer, Parallelism)
+ * @since 4.1
+ */
+public final class Parallelism {
+
+  private static final int MAX_REPORTED_FAILURES = 100;
+  private static final int UNKNOWN_SIZE_THRESHOLD = 256;
+  private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = virtualThreadExecutorFactory();
+
+  private final ForkJoinPool pool;
+  private final int threads;
+  private final boolean failFast;
+  private final boolean virtual;
+
+  private Parallelism(ForkJoinPool pool, int threads, boolean failFast, boolean virtual) {
+    this.pool = pool;
+    this.threads = threads;
+    this.failFast = failFast;
+    this.virtual = virtual;
+  }
+
+  /**
+   * Evaluates the elements using the {@link ForkJoinPool#commonPool() common pool}.
+   *
+   * @return a new Parallelism
+   */
+  public static Parallelism commonPool() {
+    return new Parallelism(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(), false, false);
+  }
+
+  /**
+   * Evaluates the elements using a dedicated pool with the given parallelism. The
+   * pool is created for each execution and shut down right after it.
+   *
+   * @param threads the parallelism level
+   * @return a new Parallelism
+   */
+  public static Parallelism of(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+    return new Parallelism(null, threads, false, false);
+  }
+
+  /**
+   * Evaluates the elements using the given pool.
+   *
+   * @param pool the pool to use
+   * @return a new Parallelism
+   */
+  public static Parallelism on(ForkJoinPool pool) {
+    return new Parallelism(pool, pool.getParallelism(), false, false);
+  }
+
+  /**
+   * Evaluates each element in its own virtual thread, with at most the given
+   * number of elements being evaluated at the same time. This suits specs that
+   * block, since a blocked virtual thread doesn't hold a platform thread.
+   * <p>
+   * Virtual threads require Java 21. On older runtimes, the elements are evaluated
+   * in a cached pool of platform threads, still bounded by the given concurrency.
+   *
+   * @param maxConcurrency the maximum number of elements evaluated at the same time
+   * @return a new Parallelism
+   * @see #supportsVirtualThreads()
+   */
+  public static Parallelism virtualThreads(int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be positive");
+    }
+    return new Parallelism(null, maxConcurrency, false, true);
+  }
+
+  /**
+   * @return {@code true} if the runtime supports virtual threads
+   */
+  public static boolean supportsVirtualThreads() {
+    return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+  }
+
+  /**
+   * Stops evaluating the remaining elements as soon as one of them fails. Elements
+   * that are already being evaluated still run to completion.
+   *
+   * @return a new Parallelism that fails fast
+   */
+  public Parallelism failFast() {
+    return new Parallelism(this.pool, this.threads, true, this.virtual);
+  }
+
+  /**
+   * @return the parallelism level (the maximum concurrency for virtual threads)
+   */
+  public int threads() {
+    return threads;
+  }
+
+  /**
+   * @return {@code true} if the execution stops on the first failure
+   */
+  public boolean isFailFast() {
+    return failFast;
+  }
+
+  /**
+   * Evaluates the given action for each element and waits for all of them.
+   *
+   * @param elements the elements to evaluate
+   * @param action   the action to apply to each element
+   * @throws MultipleFailuresError if any element fails
+   */
+  public <E> void execute(Iterable<E> elements, Consumer<? super E> action) {
+    if (virtual) {
+      executeBounded(elements, new Execution<>(action, 0, failFast));
+      return;
+    }
+    Spliterator<E> spliterator = elements.spliterator();
+    long size = spliterator.estimateSize();
+    long threshold = size == Long.MAX_VALUE ?
+        UNKNOWN_SIZE_THRESHOLD : Math.max(1, size / ((long) threads << 2));
+    Execution<E> execution = new Execution<>(action, threshold, failFast);
+    if (pool != null) {
+      pool.invoke(new EachTask<>(spliterator, execution));
+    } else {
+      ForkJoinPool dedicated = new ForkJoinPool(threads);
+      try {
+        dedicated.invoke(new EachTask<>(spliterator, execution));
+      } finally {
+        dedicated.shutdown();
+      }
+    }
+    execution.report();
+  }
+
+  /**
+   * Runs the given independent specs concurrently and waits for all of them.
+   * <p>
+   * <code>
+   * Parallelism.virtualThreads(1000).run(<br>
+   * &nbsp;&nbsp;() -&gt; Spec.given(client).when(fetch("a")).expect(...),<br>
+   * &nbsp;&nbsp;() -&gt; Spec.given(client).when(fetch("b")).expect(...)<br>
+   * );
+   * </code>
+   *
+   * @param specs the specs to run
+   * @throws MultipleFailuresError if any spec fails
+   */
+  public void run(Runnable... specs) {
+    run(Arrays.asList(specs));
+  }
+
+  /**
+   * Runs the given independent specs concurrently and waits for all of them.
+   *
+   * @param specs the specs to run
+   * @throws MultipleFailuresError if any spec fails
+   */
+  public void run(Iterable<? extends Runnable> specs) {
+    execute(specs, Runnable::run);
+  }
+
+  private <E> void executeBounded(Iterable<E> elements, Execution<E> execution) {
+    ExecutorService executor = newVirtualThreadExecutor();
+    Semaphore permits = new Semaphore(threads);
+    try {
+      for (E element : elements) {
+        permits.acquireUninterruptibly();
+        if (execution.stopped) {
+          permits.release();
+          break;
+        }
+        executor.execute(() -> {
+          try {
+            execution.evaluate(element);
+          } catch (Throwable e) {
+            // the fork join pool propagates errors instead of collecting them
+            execution.abort(e);
+          } finally {
+            permits.release();
+          }
+        });
+      }
+      permits.acquireUninterruptibly(threads);
+    } finally {
+      executor.shutdown();
+    }
+    execution.report();
+  }
+
+  private static ExecutorService newVirtualThreadExecutor() {
+    if (NEW_VIRTUAL_THREAD_EXECUTOR != null) {
+      try {
+        return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+      } catch (ReflectiveOperationException e) {
+        // falls back to platform threads
+      }
+    }
+    return Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "kodo-parallelism");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private static Method virtualThreadExecutorFactory() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private static class Execution<E> {
+
+    private final Consumer<? super E> action;
+    private final long threshold;
+    private final boolean failFast;
+
+    private final LongAdder evaluated = new LongAdder();
+    private final AtomicLong failed = new AtomicLong();
+    private final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    private volatile boolean stopped;
+
+    Execution(Consumer<? super E> action, long threshold, boolean failFast) {
+      this.action = action;
+      this.threshold = threshold;
+      this.failFast = failFast;
+    }
+
+    void evaluate(E element) {
+      evaluated.increment();
+      try {
+        action.accept(element);
+      } catch (AssertionError | RuntimeException e) {
+        if (failed.incrementAndGet() <= MAX_REPORTED_FAILURES) {
+          failures.add(e);
+        }
+        if (failFast) {
+          stopped = true;
+        }
+      }
+    }
+
+    /**
+     * Stops the execution because of an error that is not a failure of an
+     * element (like a {@link StackOverflowError}), which is rethrown by
+     * {@link #report()}.
+     */
+    void abort(Throwable e) {
+      if (!error.compareAndSet(null, e)) {
+        error.get().addSuppressed(e);
+      }
+      stopped = true;
+    }
+
+    void report() {
+      Throwable e = error.get();
+      if (e instanceof Error) {
+        throw (Error) e;
+      }
+      if (e != null) {
+        throw new UndeclaredThrowableException(e);
+      }
+      long count = failed.get();
+      if (count > 0) {
+        List<Throwable> reported = new ArrayList<>(failures);
+        throw new MultipleFailuresError(
+            String.format("%d of %d elements failed", count, evaluated.sum()), reported, count);
+      }
+    }
+
+  }
+
+  private static class EachTask<E> extends RecursiveAction {
+
+    private final Spliterator<E> spliterator;
+    private final Execution<E> execution;
+
+    EachTask(Spliterator<E> spliterator, Execution<E> execution) {
+      this.spliterator = spliterator;
+      this.execution = execution;
+    }
+
+    @Override
+    protected void compute() {
+      Spliterator<E> remaining = spliterator;
+      List<EachTask<E>> forked = new ArrayList<>();
+      Spliterator<E> split;
+      while (!execution.stopped
+          && remaining.estimateSize() > execution.threshold
+          && (split = remaining.trySplit()) != null) {
+        EachTask<E> task = new EachTask<>(split, execution);
+        task.fork();
+        forked.add(task);
+      }
+      Consumer<E> evaluate = execution::evaluate;
+      while (!execution.stopped && remaining.tryAdvance(evaluate)) {
+        // evaluates until the end or until a fail fast failure stops the execution
+      }
+      for (EachTask<E> task : forked) {
+        task.join();
+      }
+    }
+
+  }
+
+}
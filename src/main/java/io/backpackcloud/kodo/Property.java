@@ -0,0 +1,358 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A spec that should hold for every value of a {@link Gen generator}.
+ * <p>
+ * Each case is generated from its own seed (derived from the property seed and
+ * the case index), so cases are evaluated concurrently and still reproducible.
+ * The failing case with the lowest index is then shrunk, by replaying smaller
+ * random choices, until no smaller value fails.
+ * <p>
+ * <code>
+ * Spec.forAll(Gen.lists(Gen.ints(), 100))<br>
+ * &nbsp;&nbsp;.cases(1_000_000)<br>
+ * &nbsp;&nbsp;.check(list -&gt; list<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.expect(l -&gt; reverse(reverse(l)).equals(l)));
+ * </code>
+ * <p>
+ * Unless a seed is given, the system property {@code kodo.seed} is used, or a
+ * random one. Properties are immutable and each builder method returns a new
+ * property.
+ *
+ * @author Marcelo Guimarães
+ * @see Spec#forAll(Gen)
+ * @since 4.1
+ */
+public final class Property<T> {
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private static final int CHUNK = 256;
+
+  private final Gen<T> gen;
+  private final long cases;
+  private final Long seed;
+  private final Parallelism parallelism;
+  private final int maxShrinks;
+
+  private Property(Gen<T> gen, long cases, Long seed, Parallelism parallelism, int maxShrinks) {
+    this.gen = gen;
+    this.cases = cases;
+    this.seed = seed;
+    this.parallelism = parallelism;
+    this.maxShrinks = maxShrinks;
+  }
+
+  Property(Gen<T> gen) {
+    this(gen, 100, Long.getLong("kodo.seed"), Parallelism.commonPool(), 10_000);
+  }
+
+  /**
+   * @param cases how many cases should be generated (defaults to 100)
+   * @return a new property
+   */
+  public Property<T> cases(long cases) {
+    if (cases < 1) {
+      throw new IllegalArgumentException("cases must be positive");
+    }
+    return new Property<>(gen, cases, seed, parallelism, maxShrinks);
+  }
+
+  /**
+   * @param seed the seed of the cases, to reproduce a failure
+   * @return a new property
+   */
+  public Property<T> seed(long seed) {
+    return new Property<>(gen, cases, seed, parallelism, maxShrinks);
+  }
+
+  /**
+   * @param parallelism how the cases should be evaluated (defaults to the common pool)
+   * @return a new property
+   */
+  public Property<T> parallelism(Parallelism parallelism) {
+    return new Property<>(gen, cases, seed, parallelism, maxShrinks);
+  }
+
+  /**
+   * @param maxShrinks how many attempts to shrink a counterexample can be made
+   *                   (defaults to 10000)
+   * @return a new property
+   */
+  public Property<T> maxShrinks(int maxShrinks) {
+    if (maxShrinks < 0) {
+      throw new IllegalArgumentException("maxShrinks must not be negative");
+    }
+    return new Property<>(gen, cases, seed, parallelism, maxShrinks);
+  }
+
+  /**
+   * Checks the given spec against the generated values.
+   *
+   * @param spec the spec to check, like the ones given to
+   *             {@link SpecDefinition#each(Class, Consumer)}
+   * @throws PropertyFailedError if the spec fails for any value
+   */
+  public void check(Consumer<SpecDefinition<T>> spec) {
+    long seed = this.seed != null ? this.seed : mix(System.nanoTime() ^ Thread.currentThread().getId());
+    Search<T> search = new Search<>(gen, spec, seed, cases);
+    int workers = (int) Math.min(parallelism.threads(), (cases + CHUNK - 1) / CHUNK);
+    if (workers <= 1) {
+      search.run();
+    } else {
+      List<Runnable> runs = new ArrayList<>(workers);
+      for (int i = 0; i < workers; i++) {
+        runs.add(search);
+      }
+      parallelism.run(runs);
+    }
+    if (search.failingCase >= 0) {
+      if (search.choices == null) {
+        // the generator failed, so there is no value to shrink
+        throw new PropertyFailedError(seed, search.failingCase, search.failure);
+      }
+      throw shrink(spec, seed, search);
+    }
+  }
+
+  private PropertyFailedError shrink(Consumer<SpecDefinition<T>> spec, long seed, Search<T> search) {
+    Shrinker<T> shrinker = new Shrinker<>(gen, spec, search.choices, search.value, search.failure, maxShrinks);
+    shrinker.shrink();
+    return new PropertyFailedError(seed, search.failingCase, shrinker.value, search.value, shrinker.shrinks,
+        shrinker.failure);
+  }
+
+  static long mix(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return z ^ (z >>> 33);
+  }
+
+  /**
+   * Runs the spec against a value, returning its failure (or {@code null}). A
+   * failure handed to a fail operation that doesn't throw it also fails the case.
+   */
+  static <T> Throwable evaluate(Consumer<SpecDefinition<T>> spec, T value) {
+    try {
+      int failures = DefaultSpecDefinition.failures(
+          element -> DefaultSpecDefinition.run("", element, Expectation.throwAssertionError(), spec), value);
+      return failures == 0 ? null : new AssertionError(failures + " failure(s) handed to the fail operation");
+    } catch (AssertionError | RuntimeException e) {
+      return e;
+    }
+  }
+
+  /**
+   * Evaluates the cases in chunks, shared by every worker. Chunks are taken in
+   * order and no chunk after a failing case is taken, so the failing case with
+   * the lowest index is always the one reported.
+   */
+  private static class Search<T> implements Runnable {
+
+    private final Gen<T> gen;
+    private final Consumer<SpecDefinition<T>> spec;
+    private final long seed;
+    private final long cases;
+    private final AtomicLong next = new AtomicLong();
+
+    private volatile long failingCase = -1;
+    private long[] choices;
+    private T value;
+    private Throwable failure;
+
+    Search(Gen<T> gen, Consumer<SpecDefinition<T>> spec, long seed, long cases) {
+      this.gen = gen;
+      this.spec = spec;
+      this.seed = seed;
+      this.cases = cases;
+    }
+
+    @Override
+    public void run() {
+      Source source = new Source();
+      long start;
+      while ((start = next.getAndAdd(CHUNK)) < cases) {
+        long failing = failingCase;
+        if (failing >= 0 && start > failing) {
+          return;
+        }
+        for (long i = start, end = Math.min(cases, start + CHUNK); i < end; i++) {
+          source.reset(mix(seed + i * GOLDEN_GAMMA));
+          T value;
+          try {
+            value = gen.generate(source);
+          } catch (RuntimeException e) {
+            found(i, null, null, e);
+            break;
+          }
+          Throwable failure = evaluate(spec, value);
+          if (failure != null) {
+            found(i, source.choices(), value, failure);
+            break;
+          }
+        }
+      }
+    }
+
+    private synchronized void found(long index, long[] choices, T value, Throwable failure) {
+      if (failingCase < 0 || index < failingCase) {
+        this.choices = choices;
+        this.value = value;
+        this.failure = failure;
+        this.failingCase = index;
+      }
+    }
+
+  }
+
+  /**
+   * Shrinks the choices of a failing case by deleting blocks of choices and
+   * then by lowering each choice, keeping any smaller sequence that still
+   * fails, until nothing smaller fails or the attempts are over.
+   */
+  private static class Shrinker<T> {
+
+    private final Gen<T> gen;
+    private final Consumer<SpecDefinition<T>> spec;
+    private final Source source = new Source();
+    private int attempts;
+
+    private long[] choices;
+    private T value;
+    private Throwable failure;
+    private int shrinks;
+
+    Shrinker(Gen<T> gen, Consumer<SpecDefinition<T>> spec, long[] choices, T value, Throwable failure,
+             int attempts) {
+      this.gen = gen;
+      this.spec = spec;
+      this.choices = choices;
+      this.value = value;
+      this.failure = failure;
+      this.attempts = attempts;
+    }
+
+    void shrink() {
+      boolean improved = true;
+      while (improved && attempts > 0) {
+        improved = false;
+        for (int size = 8; size > 0; size >>= 1) {
+          for (int i = choices.length - size; i >= 0 && attempts > 0; i--) {
+            if (i + size <= choices.length && attempt(delete(choices, i, size))) {
+              improved = true;
+            }
+          }
+        }
+        for (int i = 0; i < choices.length && attempts > 0; i++) {
+          if (choices[i] != 0 && lower(i)) {
+            improved = true;
+          }
+        }
+      }
+    }
+
+    /**
+     * Lowers the choice at the given index with a binary search.
+     */
+    private boolean lower(int index) {
+      long[] candidate = choices.clone();
+      candidate[index] = 0;
+      if (attempt(candidate)) {
+        return true;
+      }
+      boolean improved = false;
+      long low = 0;
+      long high = choices[index];
+      while (attempts > 0 && index < choices.length && Long.compareUnsigned(high - low, 1) > 0) {
+        long middle = low + ((high - low) >>> 1);
+        candidate = choices.clone();
+        candidate[index] = middle;
+        if (attempt(candidate)) {
+          improved = true;
+          high = middle;
+        } else {
+          low = middle;
+        }
+      }
+      return improved;
+    }
+
+    private boolean attempt(long[] candidate) {
+      attempts--;
+      source.replay(candidate, candidate.length);
+      T value;
+      try {
+        value = gen.generate(source);
+      } catch (RuntimeException e) {
+        return false;
+      }
+      long[] used = source.choices();
+      if (!smaller(used, choices)) {
+        return false;
+      }
+      Throwable failure = evaluate(spec, value);
+      if (failure == null) {
+        return false;
+      }
+      this.choices = used;
+      this.value = value;
+      this.failure = failure;
+      this.shrinks++;
+      return true;
+    }
+
+    private static long[] delete(long[] choices, int index, int size) {
+      long[] result = new long[choices.length - size];
+      System.arraycopy(choices, 0, result, 0, index);
+      System.arraycopy(choices, index + size, result, index, result.length - index);
+      return result;
+    }
+
+    /**
+     * Shorter sequences are smaller; sequences of the same length are compared
+     * choice by choice.
+     */
+    private static boolean smaller(long[] a, long[] b) {
+      if (a.length != b.length) {
+        return a.length < b.length;
+      }
+      for (int i = 0; i < a.length; i++) {
+        int comparison = Long.compareUnsigned(a[i], b[i]);
+        if (comparison != 0) {
+          return comparison < 0;
+        }
+      }
+      return false;
+    }
+
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+/**
+ * The error thrown when a {@link Property} is falsified.
+ * <p>
+ * The cause is the failure of the shrunk counterexample, or the exception of
+ * the generator if it couldn't generate a case. The seed and the case can be
+ * given to {@link Property#seed(long)} to reproduce the failure.
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+public class PropertyFailedError extends AssertionError {
+
+  private final long seed;
+  private final long failingCase;
+  private final Object counterexample;
+  private final Object original;
+  private final int shrinks;
+
+  PropertyFailedError(long seed, long failingCase, Object counterexample, Object original, int shrinks,
+                      Throwable cause) {
+    super(String.format("property falsified by case #%d (seed %d), shrunk %d times%n" +
+            "  counterexample: %s%n  original: %s%n  failure: %s",
+        failingCase, seed, shrinks, counterexample, original, cause), cause);
+    this.seed = seed;
+    this.failingCase = failingCase;
+    this.counterexample = counterexample;
+    this.original = original;
+    this.shrinks = shrinks;
+  }
+
+  PropertyFailedError(long seed, long failingCase, Throwable cause) {
+    super(String.format("generator failed for case #%d (seed %d)%n  failure: %s", failingCase, seed, cause), cause);
+    this.seed = seed;
+    this.failingCase = failingCase;
+    this.counterexample = null;
+    this.original = null;
+    this.shrinks = 0;
+  }
+
+  /**
+   * @return the seed of the property
+   */
+  public long seed() {
+    return seed;
+  }
+
+  /**
+   * @return the index of the first failing case
+   */
+  public long failingCase() {
+    return failingCase;
+  }
+
+  /**
+   * @return the smallest value found that falsifies the property
+   */
+  public Object counterexample() {
+    return counterexample;
+  }
+
+  /**
+   * @return the value of the first failing case, before shrinking
+   */
+  public Object original() {
+    return original;
+  }
+
+  /**
+   * @return how many times the counterexample was made smaller
+   */
+  public int shrinks() {
+    return shrinks;
+  }
+
+}
@@ -0,0 +1,485 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A source of records backed by a memory-mapped file.
+ * <p>
+ * Records are views over the mapped bytes, nothing is copied while iterating.
+ * Since it is an {@link Iterable}, a source can be used directly as the
+ * target of {@link SpecDefinition#each(Class, Consumer)}. Its
+ * {@link #spliterator() spliterator} splits the file by byte ranges, so
+ * {@link SpecDefinition#parallelEach(Class, Consumer, Parallelism)} validates
+ * different parts of the file concurrently.
+ * <p>
+ * <code>
+ * Spec.given(RecordSource.lines(path))<br>
+ * &nbsp;&nbsp;.parallelEach(CharSequence.class, line -&gt; line<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.expectInt(CharSequence::length, to().beBetween(1, 80)));
+ * </code>
+ * <p>
+ * Records are only valid while the source is reachable and must not be
+ * changed (the file is mapped as read only).
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+public final class RecordSource<R> implements Iterable<R> {
+
+  private static final long SEGMENT_SIZE = 1L << 30;
+
+  private final ByteBuffer[] segments;
+  private final long[] offsets;
+  private final Format<R> format;
+  private final long start;
+  private final long end;
+
+  private RecordSource(ByteBuffer[] segments, long[] offsets, Format<R> format, long start, long end) {
+    this.segments = segments;
+    this.offsets = offsets;
+    this.format = format;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Creates a source of newline delimited records. Each record is a
+   * {@link CharSequence} that maps each byte to a char (as in ISO-8859-1), without
+   * the line terminator ({@code \n} or {@code \r\n}).
+   * <p>
+   * The view is exact for ASCII and Latin-1 files. For other charsets, decode the
+   * record from its {@link #fixedWidth(Path, int) raw bytes} or call
+   * {@code toString()} and decode the result.
+   *
+   * @param file the file to map
+   * @return a new source
+   * @throws UncheckedIOException if the file can't be mapped
+   */
+  public static RecordSource<CharSequence> lines(Path file) {
+    return open(file, new Lines(), SEGMENT_SIZE);
+  }
+
+  /**
+   * Creates a source of fixed width binary records. Each record is a read only
+   * {@link ByteBuffer} sharing the mapped memory. If the size of the file is not a
+   * multiple of the record length, the last record is shorter.
+   *
+   * @param file         the file to map
+   * @param recordLength the length of each record, in bytes
+   * @return a new source
+   * @throws UncheckedIOException if the file can't be mapped
+   */
+  public static RecordSource<ByteBuffer> fixedWidth(Path file, int recordLength) {
+    if (recordLength < 1) {
+      throw new IllegalArgumentException("recordLength must be positive");
+    }
+    return open(file, new FixedWidth(recordLength), SEGMENT_SIZE);
+  }
+
+  static <R> RecordSource<R> open(Path file, Format<R> format, long segmentSize) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      List<ByteBuffer> segments = new ArrayList<>();
+      List<Long> offsets = new ArrayList<>();
+      long position = 0;
+      while (position < size) {
+        long windowSize = format.windowSize(Math.min(segmentSize, size - position));
+        ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+        int length = format.segmentLength(window, position + windowSize == size);
+        // through Buffer, so the class still runs on Java 8 when built on a newer JDK
+        ((Buffer) window).limit(length);
+        segments.add(window.slice().asReadOnlyBuffer());
+        offsets.add(position);
+        position += length;
+      }
+      long[] starts = new long[offsets.size()];
+      for (int i = 0; i < starts.length; i++) {
+        starts[i] = offsets.get(i);
+      }
+      return new RecordSource<>(segments.toArray(new ByteBuffer[0]), starts, format, 0, size);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return the size, in bytes, of the range covered by this source
+   */
+  public long size() {
+    return end - start;
+  }
+
+  /**
+   * Splits this source into sources covering consecutive byte ranges. Range bounds
+   * are moved to the start of the next record, so no record is split.
+   *
+   * @param parts the maximum number of parts
+   * @return the non empty parts of this source
+   */
+  public List<RecordSource<R>> partition(int parts) {
+    if (parts < 1) {
+      throw new IllegalArgumentException("parts must be positive");
+    }
+    List<RecordSource<R>> result = new ArrayList<>(parts);
+    long from = start;
+    for (int i = 1; i <= parts && from < end; i++) {
+      long to = i == parts ? end : Math.min(end, align(start + size() * i / parts));
+      if (to > from) {
+        result.add(new RecordSource<>(segments, offsets, format, from, to));
+        from = to;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a sequential stream of the records
+   * @see Spec#stream(Stream)
+   */
+  public Stream<R> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  @Override
+  public Iterator<R> iterator() {
+    Cursor cursor = new Cursor(start, end);
+    return new Iterator<R>() {
+      @Override
+      public boolean hasNext() {
+        return cursor.position < cursor.end;
+      }
+
+      @Override
+      public R next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return cursor.next();
+      }
+    };
+  }
+
+  @Override
+  public Spliterator<R> spliterator() {
+    return new RecordSpliterator(start, end);
+  }
+
+  private int segmentOf(long position) {
+    int low = 0;
+    int high = offsets.length - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (offsets[middle] <= position) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  private long align(long position) {
+    if (position <= 0) {
+      return 0;
+    }
+    int segment = segmentOf(position);
+    ByteBuffer buffer = segments[segment];
+    int local = (int) (position - offsets[segment]);
+    return offsets[segment] + format.align(buffer, local);
+  }
+
+  private class Cursor {
+
+    private long position;
+    private final long end;
+
+    Cursor(long position, long end) {
+      this.position = position;
+      this.end = end;
+    }
+
+    R next() {
+      int segment = segmentOf(position);
+      ByteBuffer buffer = segments[segment];
+      long offset = offsets[segment];
+      int local = (int) (position - offset);
+      int next = format.next(buffer, local);
+      position = offset + next;
+      return format.record(buffer, local, next);
+    }
+
+  }
+
+  private class RecordSpliterator implements Spliterator<R> {
+
+    private final Cursor cursor;
+
+    RecordSpliterator(long start, long end) {
+      this.cursor = new Cursor(start, end);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super R> action) {
+      if (cursor.position >= cursor.end) {
+        return false;
+      }
+      action.accept(cursor.next());
+      return true;
+    }
+
+    @Override
+    public Spliterator<R> trySplit() {
+      long from = cursor.position;
+      long middle = align(from + (cursor.end - from) / 2);
+      if (middle <= from || middle >= cursor.end) {
+        return null;
+      }
+      cursor.position = middle;
+      return new RecordSpliterator(from, middle);
+    }
+
+    @Override
+    public long estimateSize() {
+      return format.estimateRecords(cursor.end - cursor.position);
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL | IMMUTABLE | format.characteristics();
+    }
+
+  }
+
+  /**
+   * Defines how records are laid out in the file. Positions are relative to a
+   * mapped segment.
+   */
+  interface Format<R> {
+
+    /**
+     * @return the size of the window to map, given the maximum size
+     */
+    long windowSize(long maximum);
+
+    /**
+     * @return the length of the segment, which must end at a record boundary
+     */
+    int segmentLength(ByteBuffer window, boolean last);
+
+    /**
+     * @return the start of the record that follows the one starting at the given position
+     */
+    int next(ByteBuffer segment, int position);
+
+    /**
+     * @return the start of the first record that starts at or after the given position
+     */
+    int align(ByteBuffer segment, int position);
+
+    R record(ByteBuffer segment, int position, int next);
+
+    long estimateRecords(long bytes);
+
+    int characteristics();
+
+  }
+
+  static class Lines implements Format<CharSequence> {
+
+    private static final int ESTIMATED_LINE_LENGTH = 64;
+
+    @Override
+    public long windowSize(long maximum) {
+      return maximum;
+    }
+
+    @Override
+    public int segmentLength(ByteBuffer window, boolean last) {
+      if (last) {
+        return window.limit();
+      }
+      for (int i = window.limit() - 1; i >= 0; i--) {
+        if (window.get(i) == '\n') {
+          return i + 1;
+        }
+      }
+      throw new IllegalStateException("A line is longer than the maximum segment size");
+    }
+
+    @Override
+    public int next(ByteBuffer segment, int position) {
+      int limit = segment.limit();
+      for (int i = position; i < limit; i++) {
+        if (segment.get(i) == '\n') {
+          return i + 1;
+        }
+      }
+      return limit;
+    }
+
+    @Override
+    public int align(ByteBuffer segment, int position) {
+      if (position == 0) {
+        return 0;
+      }
+      return next(segment, position - 1);
+    }
+
+    @Override
+    public CharSequence record(ByteBuffer segment, int position, int next) {
+      int end = next;
+      if (end > position && segment.get(end - 1) == '\n') {
+        end--;
+        if (end > position && segment.get(end - 1) == '\r') {
+          end--;
+        }
+      }
+      return new ByteSequence(segment, position, end - position);
+    }
+
+    @Override
+    public long estimateRecords(long bytes) {
+      return Math.max(bytes > 0 ? 1 : 0, bytes / ESTIMATED_LINE_LENGTH);
+    }
+
+    @Override
+    public int characteristics() {
+      return 0;
+    }
+
+  }
+
+  static class FixedWidth implements Format<ByteBuffer> {
+
+    private final int length;
+
+    FixedWidth(int length) {
+      this.length = length;
+    }
+
+    @Override
+    public long windowSize(long maximum) {
+      return maximum < length ? maximum : maximum - maximum % length;
+    }
+
+    @Override
+    public int segmentLength(ByteBuffer window, boolean last) {
+      return window.limit();
+    }
+
+    @Override
+    public int next(ByteBuffer segment, int position) {
+      return Math.min(segment.limit(), position + length);
+    }
+
+    @Override
+    public int align(ByteBuffer segment, int position) {
+      int remainder = position % length;
+      return remainder == 0 ? position : Math.min(segment.limit(), position + length - remainder);
+    }
+
+    @Override
+    public ByteBuffer record(ByteBuffer segment, int position, int next) {
+      ByteBuffer record = segment.duplicate();
+      ((Buffer) record).limit(next).position(position);
+      return record.slice();
+    }
+
+    @Override
+    public long estimateRecords(long bytes) {
+      return (bytes + length - 1) / length;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.SIZED | Spliterator.SUBSIZED;
+    }
+
+  }
+
+  /**
+   * A char sequence view over bytes, mapping each byte to one char.
+   */
+  private static class ByteSequence implements CharSequence {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    ByteSequence(ByteBuffer buffer, int offset, int length) {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+      }
+      return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      if (start < 0 || end > length || start > end) {
+        throw new IndexOutOfBoundsException(start + ", " + end);
+      }
+      return new ByteSequence(buffer, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+      }
+      return new String(chars);
+    }
+
+  }
+
+}
@@ -0,0 +1,344 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the files written by a {@link ResultSink}.
+ * <p>
+ * The events of a file are replayed to a {@link SpecListener}, so anything
+ * that aggregates the events of the specs can aggregate a file as well (the
+ * durations are the recorded ones). The format is detected from the file.
+ * <p>
+ * <code>
+ * ResultSummary summary = ResultFile.summarize(Paths.get("results.bin"));
+ * </code>
+ *
+ * @author Marcelo Guimarães
+ * @see ResultSink
+ * @since 4.1
+ */
+public final class ResultFile {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private ResultFile() {
+
+  }
+
+  /**
+   * Replays the events of the given file to the listener, in the order they
+   * were written. The targets of the specs are not recorded, so
+   * {@link SpecListener#onStart(String, Object)} receives {@code null}.
+   *
+   * @param path     the file to read
+   * @param listener the listener to notify
+   * @throws IOException if the file can't be read or is not a result file
+   */
+  public static void replay(Path path, SpecListener listener) throws IOException {
+    try (InputStream input = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+      input.mark(ResultSink.MAGIC.length);
+      byte[] magic = new byte[ResultSink.MAGIC.length];
+      int read = input.read(magic);
+      if (read == magic.length && Arrays.equals(magic, ResultSink.MAGIC)) {
+        replayBinary(new DataInputStream(input), listener);
+      } else {
+        input.reset();
+        replayJsonLines(input, listener);
+      }
+    }
+  }
+
+  /**
+   * @param path the file to read
+   * @return the summary of the events of the given file
+   * @throws IOException if the file can't be read or is not a result file
+   */
+  public static ResultSummary summarize(Path path) throws IOException {
+    ResultSummary summary = new ResultSummary();
+    replay(path, summary);
+    return summary;
+  }
+
+  static String eventName(byte type) {
+    switch (type) {
+      case ResultSink.START:
+        return "start";
+      case ResultSink.WHEN:
+        return "when";
+      case ResultSink.EXPECTATION:
+        return "expect";
+      case ResultSink.FAILURE:
+        return "failure";
+      case ResultSink.END:
+        return "end";
+      default:
+        throw new IllegalArgumentException("Unknown event: " + type);
+    }
+  }
+
+  private static void replayBinary(DataInputStream input, SpecListener listener) throws IOException {
+    int version = input.read();
+    if (version != ResultSink.VERSION) {
+      throw new IOException("Unsupported result file version: " + version);
+    }
+    List<String> descriptions = new ArrayList<>();
+    Payload payload = new Payload();
+    while (payload.read(input)) {
+      byte type = payload.next();
+      switch (type) {
+        case ResultSink.DEFINE:
+          payload.varLong();
+          descriptions.add(payload.rest());
+          break;
+        case ResultSink.START:
+          listener.onStart(payload.description(descriptions), null);
+          break;
+        case ResultSink.WHEN:
+          String description = payload.description(descriptions);
+          listener.onWhen(description, payload.varLong());
+          break;
+        case ResultSink.EXPECTATION:
+          description = payload.description(descriptions);
+          int index = (int) payload.varLong();
+          long nanos = payload.varLong();
+          listener.onExpectation(description, index, nanos, payload.next() == 1);
+          break;
+        case ResultSink.FAILURE:
+          description = payload.description(descriptions);
+          listener.onFailure(description, (int) payload.varLong(), payload.rest());
+          break;
+        case ResultSink.END:
+          description = payload.description(descriptions);
+          int expectations = (int) payload.varLong();
+          listener.onEnd(description, expectations, (int) payload.varLong());
+          break;
+        default:
+          // written by a newer version, the length prefix allows skipping it
+          // without reading its payload
+      }
+    }
+  }
+
+  private static void replayJsonLines(InputStream input, SpecListener listener) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8),
+        BUFFER_SIZE);
+    String line;
+    int number = 0;
+    while ((line = reader.readLine()) != null) {
+      number++;
+      if (line.isEmpty()) {
+        continue;
+      }
+      Map<String, Object> event = parse(line, number);
+      String description = (String) event.get("description");
+      String type = String.valueOf(event.get("event"));
+      switch (type) {
+        case "start":
+          listener.onStart(description, null);
+          break;
+        case "when":
+          listener.onWhen(description, number(event, "nanos"));
+          break;
+        case "expect":
+          listener.onExpectation(description, (int) number(event, "index"), number(event, "nanos"),
+              Boolean.TRUE.equals(event.get("passed")));
+          break;
+        case "failure":
+          listener.onFailure(description, (int) number(event, "index"), event.get("value"));
+          break;
+        case "end":
+          listener.onEnd(description, (int) number(event, "expectations"), (int) number(event, "failures"));
+          break;
+        default:
+          throw new IOException("Unknown event at line " + number + ": " + type);
+      }
+    }
+  }
+
+  private static long number(Map<String, Object> event, String key) {
+    Object value = event.get(key);
+    return value == null ? 0 : (Long) value;
+  }
+
+  /**
+   * Parses the flat objects written by the sink: string, integer and boolean
+   * values only.
+   */
+  private static Map<String, Object> parse(String line, int number) throws IOException {
+    Map<String, Object> result = new HashMap<>();
+    int[] position = {0};
+    try {
+      expect(line, position, '{');
+      while (line.charAt(position[0]) != '}') {
+        String key = string(line, position);
+        expect(line, position, ':');
+        char c = line.charAt(position[0]);
+        Object value;
+        if (c == '"') {
+          value = string(line, position);
+        } else if (line.startsWith("true", position[0])) {
+          value = Boolean.TRUE;
+          position[0] += 4;
+        } else if (line.startsWith("false", position[0])) {
+          value = Boolean.FALSE;
+          position[0] += 5;
+        } else {
+          int start = position[0];
+          while (position[0] < line.length() && (line.charAt(position[0]) == '-'
+              || Character.isDigit(line.charAt(position[0])))) {
+            position[0]++;
+          }
+          value = Long.parseLong(line.substring(start, position[0]));
+        }
+        result.put(key, value);
+        if (line.charAt(position[0]) == ',') {
+          position[0]++;
+        }
+      }
+    } catch (RuntimeException e) {
+      throw new IOException("Invalid event at line " + number + ": " + line, e);
+    }
+    return result;
+  }
+
+  private static void expect(String line, int[] position, char expected) {
+    if (line.charAt(position[0]) != expected) {
+      throw new IllegalArgumentException("Expected '" + expected + "' at " + position[0]);
+    }
+    position[0]++;
+  }
+
+  private static String string(String line, int[] position) {
+    expect(line, position, '"');
+    StringBuilder result = new StringBuilder();
+    char c;
+    while ((c = line.charAt(position[0]++)) != '"') {
+      if (c == '\\') {
+        c = line.charAt(position[0]++);
+        switch (c) {
+          case 'n':
+            c = '\n';
+            break;
+          case 'r':
+            c = '\r';
+            break;
+          case 't':
+            c = '\t';
+            break;
+          case 'u':
+            c = (char) Integer.parseInt(line.substring(position[0], position[0] + 4), 16);
+            position[0] += 4;
+            break;
+          default:
+            // quotes and backslashes
+        }
+      }
+      result.append(c);
+    }
+    return result.toString();
+  }
+
+  /**
+   * A reusable buffer for the payload of a binary record.
+   */
+  private static final class Payload {
+
+    private byte[] bytes = new byte[256];
+    private int size;
+    private int position;
+
+    boolean read(DataInputStream input) throws IOException {
+      int first = input.read();
+      if (first < 0) {
+        return false;
+      }
+      long length = first & 0x7F;
+      for (int shift = 7; (first & 0x80) != 0; shift += 7) {
+        first = input.read();
+        if (first < 0) {
+          throw new EOFException("Truncated record");
+        }
+        length |= (long) (first & 0x7F) << shift;
+      }
+      size = (int) length;
+      if (size > bytes.length) {
+        bytes = new byte[Math.max(size, bytes.length << 1)];
+      }
+      input.readFully(bytes, 0, size);
+      position = 0;
+      return true;
+    }
+
+    byte next() throws IOException {
+      if (position >= size) {
+        throw new EOFException("Truncated record");
+      }
+      return bytes[position++];
+    }
+
+    long varLong() throws IOException {
+      long result = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = next();
+        result |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return result;
+        }
+      }
+    }
+
+    String description(List<String> descriptions) throws IOException {
+      long id = varLong();
+      if (id < 0 || id >= descriptions.size()) {
+        throw new IOException("Undefined description: " + id);
+      }
+      return descriptions.get((int) id);
+    }
+
+    String rest() {
+      String result = new String(bytes, position, size - position, StandardCharsets.UTF_8);
+      position = size;
+      return result;
+    }
+
+  }
+
+}
@@ -0,0 +1,510 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link SpecListener} that streams the events of the specs to a file, so
+ * the results of huge runs never need to be held in memory.
+ * <p>
+ * The specs only enqueue their events in a bounded buffer (they never do I/O
+ * themselves): a background thread writes them in batches. When the specs
+ * outrun the writer and the buffer is full, the {@link Overflow overflow
+ * policy} decides whether they wait for room or drop the events (which are
+ * counted by {@link #dropped()}). Two formats are supported:
+ * JSON Lines, one object per event, and a compact binary format of
+ * length-prefixed records (with descriptions written once and then referenced
+ * by id). Both can be read back with {@link ResultFile}.
+ * <p>
+ * <code>
+ * try (ResultSink sink = ResultSink.binary(Paths.get("results.bin"))) {<br>
+ * &nbsp;&nbsp;Spec.addListener(sink);<br>
+ * &nbsp;&nbsp;Spec.given(records).parallelEach(Record.class, record -&gt; ...);<br>
+ * } finally {<br>
+ * &nbsp;&nbsp;Spec.removeListener(sink);<br>
+ * }
+ * </code>
+ * <p>
+ * Failing values are written with their {@code toString()}, taken when the
+ * failure happens.
+ *
+ * @author Marcelo Guimarães
+ * @see ResultFile
+ * @since 4.1
+ */
+public final class ResultSink implements SpecListener, Closeable {
+
+  static final byte[] MAGIC = {'K', 'O', 'D', 'O'};
+  static final int VERSION = 1;
+
+  static final byte DEFINE = 0;
+  static final byte START = 1;
+  static final byte WHEN = 2;
+  static final byte EXPECTATION = 3;
+  static final byte FAILURE = 4;
+  static final byte END = 5;
+
+  /**
+   * The default number of events the buffer holds.
+   */
+  public static final int DEFAULT_CAPACITY = 1 << 16;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int BATCH_SIZE = 1024;
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /**
+   * What to do with an event when the buffer is full.
+   */
+  public enum Overflow {
+
+    /**
+     * The spec waits until the writer makes room for the event.
+     */
+    BLOCK,
+
+    /**
+     * The event is dropped and counted.
+     */
+    DROP
+
+  }
+
+  private final ArrayBlockingQueue<Event> queue;
+  private final Overflow overflow;
+  private final Encoder encoder;
+  private final Thread writer;
+  private final LongAdder dropped = new LongAdder();
+  private volatile boolean closed;
+  private volatile IOException error;
+  private volatile long written;
+
+  private ResultSink(Encoder encoder, int capacity, Overflow overflow) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.overflow = Objects.requireNonNull(overflow);
+    this.encoder = encoder;
+    this.writer = new Thread(this::write, "kodo-result-sink");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * @param path the file to write
+   * @return a sink that writes JSON Lines, blocking the specs while its buffer
+   * is full
+   * @throws IOException if the file can't be created
+   */
+  public static ResultSink jsonLines(Path path) throws IOException {
+    return jsonLines(path, DEFAULT_CAPACITY, Overflow.BLOCK);
+  }
+
+  /**
+   * @param path     the file to write
+   * @param capacity how many events the buffer holds
+   * @param overflow what to do with an event when the buffer is full
+   * @return a sink that writes JSON Lines
+   * @throws IOException if the file can't be created
+   */
+  public static ResultSink jsonLines(Path path, int capacity, Overflow overflow) throws IOException {
+    return new ResultSink(new JsonLines(open(path)), capacity, overflow);
+  }
+
+  /**
+   * @param path the file to write
+   * @return a sink that writes the binary format, blocking the specs while
+   * its buffer is full
+   * @throws IOException if the file can't be created
+   */
+  public static ResultSink binary(Path path) throws IOException {
+    return binary(path, DEFAULT_CAPACITY, Overflow.BLOCK);
+  }
+
+  /**
+   * @param path     the file to write
+   * @param capacity how many events the buffer holds
+   * @param overflow what to do with an event when the buffer is full
+   * @return a sink that writes the binary format
+   * @throws IOException if the file can't be created
+   */
+  public static ResultSink binary(Path path, int capacity, Overflow overflow) throws IOException {
+    Binary encoder = new Binary(open(path));
+    encoder.header();
+    return new ResultSink(encoder, capacity, overflow);
+  }
+
+  private static OutputStream open(Path path) throws IOException {
+    return new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+  }
+
+  @Override
+  public void onStart(String description, Object target) {
+    if (closed || error != null) {
+      return;
+    }
+    enqueue(new Event(START, description, 0, 0, 0, null));
+  }
+
+  @Override
+  public void onWhen(String description, long nanos) {
+    if (closed || error != null) {
+      return;
+    }
+    enqueue(new Event(WHEN, description, 0, nanos, 0, null));
+  }
+
+  @Override
+  public void onFailure(String description, int index, Object value) {
+    if (closed || error != null) {
+      return;
+    }
+    enqueue(new Event(FAILURE, description, index, 0, 0, String.valueOf(value)));
+  }
+
+  @Override
+  public void onExpectation(String description, int index, long nanos, boolean passed) {
+    if (closed || error != null) {
+      return;
+    }
+    enqueue(new Event(EXPECTATION, description, index, nanos, passed ? 1 : 0, null));
+  }
+
+  @Override
+  public void onEnd(String description, int expectations, int failures) {
+    if (closed || error != null) {
+      return;
+    }
+    enqueue(new Event(END, description, expectations, 0, failures, null));
+  }
+
+  private void enqueue(Event event) {
+    if (queue.offer(event)) {
+      return;
+    }
+    if (overflow == Overflow.DROP) {
+      dropped.increment();
+      return;
+    }
+    try {
+      // waits in slices, so a sink closed or failed meanwhile releases the spec
+      while (!queue.offer(event, IDLE_NANOS, TimeUnit.NANOSECONDS)) {
+        if (closed || error != null) {
+          dropped.increment();
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      dropped.increment();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void write() {
+    List<Event> batch = new ArrayList<>(BATCH_SIZE);
+    try {
+      while (true) {
+        boolean done = closed;
+        if (queue.drainTo(batch, BATCH_SIZE) == 0) {
+          encoder.flush();
+          if (done) {
+            return;
+          }
+          LockSupport.parkNanos(this, IDLE_NANOS);
+          continue;
+        }
+        for (Event event : batch) {
+          encoder.write(event);
+        }
+        written += batch.size();
+        batch.clear();
+      }
+    } catch (IOException e) {
+      error = e;
+      queue.clear();
+    }
+  }
+
+  /**
+   * Writes the pending events and closes the file. Events received after
+   * closing are ignored.
+   *
+   * @throws UncheckedIOException if the events couldn't be written
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    LockSupport.unpark(writer);
+    boolean interrupted = false;
+    while (writer.isAlive()) {
+      try {
+        writer.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      encoder.close();
+    } catch (IOException e) {
+      if (error == null) {
+        error = e;
+      }
+    }
+    if (error != null) {
+      throw new UncheckedIOException("Couldn't write the results", error);
+    }
+  }
+
+  /**
+   * @return how many events were written so far
+   */
+  public long written() {
+    return written;
+  }
+
+  /**
+   * @return how many events were dropped because the buffer was full (or
+   * because the sink was closed while a spec was waiting for room)
+   */
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  private static final class Event {
+
+    private final byte type;
+    private final String description;
+    private final int index;
+    private final long nanos;
+    private final int value;
+    private final String failure;
+
+    Event(byte type, String description, int index, long nanos, int value, String failure) {
+      this.type = type;
+      this.description = description == null ? "" : description;
+      this.index = index;
+      this.nanos = nanos;
+      this.value = value;
+      this.failure = failure;
+    }
+
+  }
+
+  private interface Encoder extends Closeable {
+
+    void write(Event event) throws IOException;
+
+    void flush() throws IOException;
+
+  }
+
+  private static final class JsonLines implements Encoder {
+
+    private final OutputStream output;
+    private final StringBuilder line = new StringBuilder(128);
+
+    JsonLines(OutputStream output) {
+      this.output = output;
+    }
+
+    @Override
+    public void write(Event event) throws IOException {
+      line.setLength(0);
+      line.append("{\"event\":\"").append(ResultFile.eventName(event.type)).append("\",\"description\":");
+      SpecResult.quote(line, event.description);
+      switch (event.type) {
+        case WHEN:
+          line.append(",\"nanos\":").append(event.nanos);
+          break;
+        case EXPECTATION:
+          line.append(",\"index\":").append(event.index)
+              .append(",\"nanos\":").append(event.nanos)
+              .append(",\"passed\":").append(event.value == 1);
+          break;
+        case FAILURE:
+          line.append(",\"index\":").append(event.index).append(",\"value\":");
+          SpecResult.quote(line, event.failure);
+          break;
+        case END:
+          line.append(",\"expectations\":").append(event.index)
+              .append(",\"failures\":").append(event.value);
+          break;
+        default:
+          // only the description
+      }
+      line.append("}\n");
+      output.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void flush() throws IOException {
+      output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      output.close();
+    }
+
+  }
+
+  /**
+   * Each record is a varint with the size of the payload followed by the
+   * payload: the type of the event and its fields. Descriptions are defined
+   * once, by a {@link #DEFINE} record, and referenced by id.
+   */
+  private static final class Binary implements Encoder {
+
+    private final OutputStream output;
+    private final Map<String, Integer> descriptions = new HashMap<>();
+    private byte[] payload = new byte[256];
+    private int size;
+
+    Binary(OutputStream output) {
+      this.output = output;
+    }
+
+    void header() throws IOException {
+      output.write(MAGIC);
+      output.write(VERSION);
+    }
+
+    @Override
+    public void write(Event event) throws IOException {
+      int description = describe(event.description);
+      size = 0;
+      put(event.type);
+      putVarLong(description);
+      switch (event.type) {
+        case WHEN:
+          putVarLong(event.nanos);
+          break;
+        case EXPECTATION:
+          putVarLong(event.index);
+          putVarLong(event.nanos);
+          put((byte) event.value);
+          break;
+        case FAILURE:
+          putVarLong(event.index);
+          put(event.failure.getBytes(StandardCharsets.UTF_8));
+          break;
+        case END:
+          putVarLong(event.index);
+          putVarLong(event.value);
+          break;
+        default:
+          // only the description
+      }
+      record();
+    }
+
+    private int describe(String description) throws IOException {
+      Integer id = descriptions.get(description);
+      if (id == null) {
+        id = descriptions.size();
+        descriptions.put(description, id);
+        size = 0;
+        put(DEFINE);
+        putVarLong(id);
+        put(description.getBytes(StandardCharsets.UTF_8));
+        record();
+      }
+      return id;
+    }
+
+    private void record() throws IOException {
+      long length = size;
+      while ((length & ~0x7FL) != 0) {
+        output.write((int) (length & 0x7F) | 0x80);
+        length >>>= 7;
+      }
+      output.write((int) length);
+      output.write(payload, 0, size);
+    }
+
+    private void put(byte value) {
+      ensure(1);
+      payload[size++] = value;
+    }
+
+    private void put(byte[] bytes) {
+      ensure(bytes.length);
+      System.arraycopy(bytes, 0, payload, size, bytes.length);
+      size += bytes.length;
+    }
+
+    private void putVarLong(long value) {
+      ensure(10);
+      while ((value & ~0x7FL) != 0) {
+        payload[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      payload[size++] = (byte) value;
+    }
+
+    private void ensure(int bytes) {
+      if (size + bytes > payload.length) {
+        payload = Arrays.copyOf(payload, Math.max(payload.length << 1, size + bytes));
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      output.close();
+    }
+
+  }
+
+}
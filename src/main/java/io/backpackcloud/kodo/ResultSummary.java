@@ -0,0 +1,245 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates the events of the specs: how many specs, operations and
+ * expectations were executed, how long they took, the specs that took the
+ * longest and the expectations that failed the most.
+ * <p>
+ * It's usually built by {@link ResultFile#summarize(java.nio.file.Path)} or
+ * {@link FlightRecordingSummary#read(java.nio.file.Path)}, but it can also be
+ * registered as a listener.
+ *
+ * @author Marcelo Guimarães
+ * @see ResultFile
+ * @since 4.1
+ */
+public final class ResultSummary implements SpecListener {
+
+  private final Map<String, Entry> specs = new HashMap<>();
+  private final Map<String, Entry> failures = new HashMap<>();
+  private long started;
+  private long ended;
+  private long operations;
+  private long expectations;
+  private long failed;
+  private long nanos;
+
+  @Override
+  public synchronized void onStart(String description, Object target) {
+    started++;
+  }
+
+  @Override
+  public synchronized void onWhen(String description, long nanos) {
+    operations++;
+    this.nanos += nanos;
+    specs.computeIfAbsent(name(description), Entry::new).add(nanos, null);
+  }
+
+  @Override
+  public synchronized void onExpectation(String description, int index, long nanos, boolean passed) {
+    expectations++;
+    if (!passed) {
+      failed++;
+    }
+    this.nanos += nanos;
+    specs.computeIfAbsent(name(description), Entry::new).add(nanos, null);
+  }
+
+  @Override
+  public synchronized void onFailure(String description, int index, Object value) {
+    failures.computeIfAbsent(name(description) + " #" + index, Entry::new).add(0, String.valueOf(value));
+  }
+
+  @Override
+  public synchronized void onEnd(String description, int expectations, int failures) {
+    ended++;
+  }
+
+  private static String name(String description) {
+    return description == null || description.isEmpty() ? "(no description)" : description;
+  }
+
+  /**
+   * @return how many specs were started
+   */
+  public synchronized long started() {
+    return started;
+  }
+
+  /**
+   * @return how many nested specs were finished
+   */
+  public synchronized long ended() {
+    return ended;
+  }
+
+  /**
+   * @return how many {@code when} operations were executed
+   */
+  public synchronized long operations() {
+    return operations;
+  }
+
+  /**
+   * @return how many expectations were evaluated
+   */
+  public synchronized long expectations() {
+    return expectations;
+  }
+
+  /**
+   * @return how many expectations failed
+   */
+  public synchronized long failures() {
+    return failed;
+  }
+
+  /**
+   * @return the sum of the durations of the operations and expectations
+   */
+  public synchronized long nanos() {
+    return nanos;
+  }
+
+  /**
+   * @param limit the maximum number of specs
+   * @return snapshots of the specs that took the longest, by description
+   */
+  public synchronized List<Entry> slowest(int limit) {
+    return top(specs, Comparator.comparingLong(Entry::totalNanos), limit);
+  }
+
+  /**
+   * @param limit the maximum number of expectations
+   * @return snapshots of the expectations that failed the most, by description and index
+   */
+  public synchronized List<Entry> hotSpots(int limit) {
+    return top(failures, Comparator.comparingLong(Entry::count), limit);
+  }
+
+  private static List<Entry> top(Map<String, Entry> entries, Comparator<Entry> comparator, int limit) {
+    List<Entry> result = new ArrayList<>(entries.values());
+    result.sort(comparator.reversed().thenComparing(Entry::name));
+    List<Entry> snapshots = new ArrayList<>(Math.min(limit, result.size()));
+    for (Entry entry : result.subList(0, Math.min(limit, result.size()))) {
+      snapshots.add(new Entry(entry));
+    }
+    return snapshots;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder result = new StringBuilder(String.format(
+        "%d specs, %d operations, %d expectations (%d failed) in %s%n",
+        started, operations, expectations, failed, Measurement.format(nanos)));
+    for (Entry entry : hotSpots(10)) {
+      result.append(String.format("  %s: %d failures (last value: %s)%n", entry.name, entry.count, entry.sample));
+    }
+    return result.toString();
+  }
+
+  /**
+   * The events of a spec or of a failing expectation. Entries returned by a
+   * summary are snapshots and are not updated by later events.
+   */
+  public static final class Entry {
+
+    private final String name;
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private String sample;
+
+    Entry(String name) {
+      this.name = name;
+    }
+
+    private Entry(Entry other) {
+      this.name = other.name;
+      this.count = other.count;
+      this.totalNanos = other.totalNanos;
+      this.maxNanos = other.maxNanos;
+      this.sample = other.sample;
+    }
+
+    void add(long nanos, String sample) {
+      count++;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+      this.sample = sample;
+    }
+
+    /**
+     * @return the description of the spec (and the index of the expectation for failures)
+     */
+    public String name() {
+      return name;
+    }
+
+    /**
+     * @return how many events were recorded
+     */
+    public long count() {
+      return count;
+    }
+
+    /**
+     * @return the sum of the durations of the events
+     */
+    public long totalNanos() {
+      return totalNanos;
+    }
+
+    /**
+     * @return the longest event
+     */
+    public long maxNanos() {
+      return maxNanos;
+    }
+
+    /**
+     * @return the last failing value, for failures
+     */
+    public String sample() {
+      return sample;
+    }
+
+    @Override
+    public String toString() {
+      return name + ": " + count;
+    }
+
+  }
+
+}
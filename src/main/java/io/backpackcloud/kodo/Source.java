@@ -0,0 +1,244 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.Arrays;
+
+/**
+ * The source of the random choices made by {@link Gen generators}.
+ * <p>
+ * Every choice is recorded, so a generated value can be reproduced and shrunk:
+ * to shrink a value, its choices are replayed with some of them removed or made
+ * smaller, and generators map smaller choices to simpler values (numbers closer
+ * to zero, shorter collections...). A choice that is not available while
+ * replaying is taken as zero, the simplest one.
+ * <p>
+ * Random choices come from a SplitMix64 generator (the algorithm behind
+ * {@link java.util.SplittableRandom}), seeded for each case, so the source can
+ * be reused across cases without allocating.
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+public final class Source {
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+  private long seed;
+  private long[] replay;
+  private int replayLength;
+  private long[] choices = new long[64];
+  private int length;
+
+  Source() {
+
+  }
+
+  /**
+   * Starts a new random case.
+   */
+  void reset(long seed) {
+    this.seed = seed;
+    this.replay = null;
+    this.length = 0;
+  }
+
+  /**
+   * Starts replaying the given choices.
+   */
+  void replay(long[] choices, int length) {
+    this.replay = choices;
+    this.replayLength = length;
+    this.length = 0;
+  }
+
+  /**
+   * @return a copy of the choices made since the last reset
+   */
+  long[] choices() {
+    return Arrays.copyOf(choices, length);
+  }
+
+  /**
+   * Draws a choice in {@code [0, bound)}. A bound of 0 means any long value.
+   */
+  private long draw(long bound) {
+    long choice;
+    if (replay != null) {
+      choice = length < replayLength ? replay[length] : 0;
+      if (bound != 0 && Long.compareUnsigned(choice, bound) >= 0) {
+        choice = Long.remainderUnsigned(choice, bound);
+      }
+    } else {
+      choice = bound == 0 ? next() : bounded(bound);
+    }
+    record(choice);
+    return choice;
+  }
+
+  private void record(long choice) {
+    if (length == choices.length) {
+      choices = Arrays.copyOf(choices, length << 1);
+    }
+    choices[length++] = choice;
+  }
+
+  private long bounded(long bound) {
+    long mask = bound - 1;
+    if ((bound & mask) == 0) {
+      return next() & mask;
+    }
+    long result;
+    if (bound > 0) {
+      long value = next() >>> 1;
+      while (value + mask - (result = value % bound) < 0) {
+        value = next() >>> 1;
+      }
+      return result;
+    }
+    do {
+      result = next();
+    } while (Long.compareUnsigned(result, bound) >= 0);
+    return result;
+  }
+
+  private long next() {
+    long z = (seed += GOLDEN_GAMMA);
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Returns a long in {@code [min, max]}, shrinking towards zero (or to the bound
+   * closest to zero).
+   *
+   * @param min the lower bound
+   * @param max the upper bound
+   * @return a long in the given range
+   */
+  public long nextLong(long min, long max) {
+    if (min > max) {
+      throw new IllegalArgumentException("min must not be greater than max");
+    }
+    if (min >= 0) {
+      return min + draw(max - min + 1);
+    }
+    if (max <= 0) {
+      return max - draw(max - min + 1);
+    }
+    if (replay == null) {
+      long span = max - min + 1;
+      long value = span == 0 ? next() : min + bounded(span);
+      record((value << 1) ^ (value >> 63));
+      return value;
+    }
+    long choice = draw(0);
+    long value = (choice >>> 1) ^ -(choice & 1);
+    return Math.max(min, Math.min(max, value));
+  }
+
+  /**
+   * Returns an int in {@code [min, max]}, shrinking towards zero (or to the bound
+   * closest to zero).
+   *
+   * @param min the lower bound
+   * @param max the upper bound
+   * @return an int in the given range
+   */
+  public int nextInt(int min, int max) {
+    return (int) nextLong(min, max);
+  }
+
+  /**
+   * Returns a double in {@code [min, max)}, shrinking towards zero (or to the
+   * bound closest to zero).
+   *
+   * @param min the lower bound
+   * @param max the upper bound
+   * @return a double in the given range
+   */
+  public double nextDouble(double min, double max) {
+    if (!(min < max)) {
+      throw new IllegalArgumentException("min must be lower than max");
+    }
+    if (min >= 0) {
+      return min + draw(1L << 53) * DOUBLE_UNIT * (max - min);
+    }
+    if (max <= 0) {
+      return max - draw(1L << 53) * DOUBLE_UNIT * (max - min);
+    }
+    // the lowest bit chooses the sign, the others the magnitude
+    long choice = draw(1L << 54);
+    double magnitude = (choice >>> 1) * DOUBLE_UNIT;
+    return (choice & 1) == 0 ? magnitude * max : magnitude * min;
+  }
+
+  /**
+   * Returns a boolean, shrinking towards {@code false}.
+   *
+   * @return a random boolean
+   */
+  public boolean nextBoolean() {
+    return draw(2) == 1;
+  }
+
+  /**
+   * Returns {@code true} with the given probability, shrinking towards
+   * {@code false}.
+   *
+   * @param probability the probability of returning {@code true}
+   * @return a random boolean
+   */
+  public boolean nextBoolean(double probability) {
+    if (replay != null) {
+      return draw(2) == 1;
+    }
+    boolean result = (next() >>> 11) * DOUBLE_UNIT < probability;
+    record(result ? 1 : 0);
+    return result;
+  }
+
+  /**
+   * Chooses a length by deciding, after the minimum length, if another element
+   * should be added, so removing those decisions while shrinking removes
+   * elements.
+   */
+  int nextLength(int min, int max) {
+    int length = min;
+    while (length < max && nextBoolean(0.9)) {
+      length++;
+    }
+    return length;
+  }
+
+  static void checkLength(int min, int max) {
+    if (min < 0 || min > max) {
+      throw new IllegalArgumentException("Invalid size range: " + min + ".." + max);
+    }
+  }
+
+}
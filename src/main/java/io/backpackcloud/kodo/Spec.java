@@ -24,7 +24,10 @@
 
 package io.backpackcloud.kodo;
 
+import java.time.Duration;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * A class to create Spec Definitions.
@@ -34,6 +37,14 @@ import java.util.function.Consumer;
  */
 public interface Spec {
 
+  /**
+   * The timeout of asynchronous expectations that don't define one.
+   *
+   * @see SpecDefinition#expectAsync(java.util.function.Function, java.util.function.Predicate)
+   * @since 4.1
+   */
+  Duration DEFAULT_ASYNC_TIMEOUT = Duration.ofSeconds(30);
+
   /**
    * Start defining a new {@link SpecDefinition} based on the given target.
    *
@@ -65,7 +76,95 @@ public interface Spec {
    * @return a new {@link SpecDefinition}
    */
   static SpecDefinition describe(String description) {
-    return new DefaultSpecDefinition(description);
+    return DefaultSpecDefinition.describe(description);
+  }
+
+  /**
+   * Starts recording a spec that can be executed against many targets.
+   *
+   * @param type the type of the targets
+   * @param <T>  the type of the targets
+   * @return a new {@link SpecPlan}
+   * @since 4.1
+   */
+  static <T> SpecPlan<T> plan(Class<T> type) {
+    return new SpecPlan<>();
+  }
+
+  /**
+   * Starts a spec that checks the elements of the given stream as they flow.
+   *
+   * @param stream the stream to check
+   * @param <T>    the type of the elements
+   * @return a new {@link StreamSpec}
+   * @since 4.1
+   */
+  static <T> StreamSpec<T> stream(Stream<T> stream) {
+    return new StreamSpec<>(stream);
+  }
+
+  /**
+   * Starts a property: a spec that should hold for every value of the given
+   * generator.
+   *
+   * @param gen the generator of the values
+   * @param <T> the type of the values
+   * @return a new {@link Property}
+   * @since 4.1
+   */
+  static <T> Property<T> forAll(Gen<T> gen) {
+    return new Property<>(gen);
+  }
+
+  /**
+   * Checks the given spec against 100 values of the given generator, shrinking
+   * the first failing value to a minimal counterexample.
+   *
+   * @param gen  the generator of the values
+   * @param spec the spec to check
+   * @param <T>  the type of the values
+   * @throws PropertyFailedError if the spec fails for any value
+   * @see Property
+   * @since 4.1
+   */
+  static <T> void forAll(Gen<T> gen, Consumer<SpecDefinition<T>> spec) {
+    forAll(gen).check(spec);
+  }
+
+  /**
+   * Starts a stateful property, checking sequences of commands applied to new
+   * instances of a system and of a model of it.
+   *
+   * @param system the factory of the system under test
+   * @param model  the factory of the model
+   * @param <S>    the type of the system under test
+   * @param <M>    the type of the model
+   * @return a new {@link StateMachine}
+   * @since 4.1
+   */
+  static <S, M> StateMachine<S, M> stateMachine(Supplier<? extends S> system, Supplier<? extends M> model) {
+    return new StateMachine<>(system, model);
+  }
+
+  /**
+   * Registers a listener to be notified by the specs created from now on.
+   * Listeners can also be registered with a {@link java.util.ServiceLoader}.
+   *
+   * @param listener the listener to register
+   * @since 4.1
+   */
+  static void addListener(SpecListener listener) {
+    Listeners.add(listener);
+  }
+
+  /**
+   * Removes a listener registered with {@link #addListener(SpecListener)}.
+   *
+   * @param listener the listener to remove
+   * @since 4.1
+   */
+  static void removeListener(SpecListener listener) {
+    Listeners.remove(listener);
   }
 
 }
@@ -24,10 +24,19 @@
 
 package io.backpackcloud.kodo;
 
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
 
 /**
  * Interface that defines a common set of methods to define a specification for a target
@@ -113,6 +122,30 @@ public interface SpecDefinition<T> {
    */
   SpecDefinition<T> expect(Consumer<? super T> operation, Predicate<? extends Exception> test, Consumer<? extends Exception> consumer);
 
+  /**
+   * Defines a measurement of an operation, like its latency or its throughput.
+   * The measurement may execute the operation many times.
+   *
+   * @param operation   the operation to measure
+   * @param measurement the measurement to take
+   * @return a reference to this object.
+   * @see Expectation#completeWithin(java.time.Duration)
+   * @since 4.1
+   */
+  SpecDefinition<T> expect(Consumer<? super T> operation, Measurement measurement);
+
+  /**
+   * Defines a measurement of an operation, like its latency or its throughput.
+   * The measurement may execute the operation many times.
+   *
+   * @param operation   the operation to measure
+   * @param measurement the measurement to take
+   * @param consumer    the operation to do with the report of a failed measurement
+   * @return a reference to this object
+   * @since 4.1
+   */
+  SpecDefinition<T> expect(Consumer<? super T> operation, Measurement measurement, Consumer<?> consumer);
+
   /**
    * Defines a test for some target operation that returns a value.
    *
@@ -199,6 +232,87 @@ public interface SpecDefinition<T> {
    */
   SpecDefinition<T> expect(boolean value, Consumer<Boolean> consumer);
 
+  /**
+   * Defines a test for some target operation that returns an int value. Neither the
+   * value nor the result of the test are boxed unless the test fails.
+   *
+   * @param function the operation to do with the target
+   * @param test     the test to execute with the value returned by the given
+   *                 function
+   * @return a reference to this object
+   * @see Expectation#beBetween(int, int)
+   * @since 4.1
+   */
+  SpecDefinition<T> expectInt(ToIntFunction<? super T> function, IntPredicate test);
+
+  /**
+   * Defines a test for some target operation that returns an int value. Neither the
+   * value nor the result of the test are boxed unless the test fails.
+   *
+   * @param function the operation to do with the target
+   * @param test     the test to execute with the value returned by the given
+   *                 function
+   * @param consumer the operation to do with the evaluated value
+   * @return a reference to this object
+   * @see Expectation#because(String)
+   * @since 4.1
+   */
+  SpecDefinition<T> expectInt(ToIntFunction<? super T> function, IntPredicate test, Consumer<Integer> consumer);
+
+  /**
+   * Defines a test for some target operation that returns a long value. Neither the
+   * value nor the result of the test are boxed unless the test fails.
+   *
+   * @param function the operation to do with the target
+   * @param test     the test to execute with the value returned by the given
+   *                 function
+   * @return a reference to this object
+   * @see Expectation#beBetween(long, long)
+   * @since 4.1
+   */
+  SpecDefinition<T> expectLong(ToLongFunction<? super T> function, LongPredicate test);
+
+  /**
+   * Defines a test for some target operation that returns a long value. Neither the
+   * value nor the result of the test are boxed unless the test fails.
+   *
+   * @param function the operation to do with the target
+   * @param test     the test to execute with the value returned by the given
+   *                 function
+   * @param consumer the operation to do with the evaluated value
+   * @return a reference to this object
+   * @see Expectation#because(String)
+   * @since 4.1
+   */
+  SpecDefinition<T> expectLong(ToLongFunction<? super T> function, LongPredicate test, Consumer<Long> consumer);
+
+  /**
+   * Defines a test for some target operation that returns a double value. Neither the
+   * value nor the result of the test are boxed unless the test fails.
+   *
+   * @param function the operation to do with the target
+   * @param test     the test to execute with the value returned by the given
+   *                 function
+   * @return a reference to this object
+   * @see Expectation#beCloseTo(double, double)
+   * @since 4.1
+   */
+  SpecDefinition<T> expectDouble(ToDoubleFunction<? super T> function, DoublePredicate test);
+
+  /**
+   * Defines a test for some target operation that returns a double value. Neither the
+   * value nor the result of the test are boxed unless the test fails.
+   *
+   * @param function the operation to do with the target
+   * @param test     the test to execute with the value returned by the given
+   *                 function
+   * @param consumer the operation to do with the evaluated value
+   * @return a reference to this object
+   * @see Expectation#because(String)
+   * @since 4.1
+   */
+  SpecDefinition<T> expectDouble(ToDoubleFunction<? super T> function, DoublePredicate test, Consumer<Double> consumer);
+
   /**
    * Splits the target object into smaller objects and passes each one to the given consumer.
    *
@@ -224,4 +338,179 @@ public interface SpecDefinition<T> {
     return each(type, target -> (Iterable) target, spec);
   }
 
+  /**
+   * Splits the target object into a stream of smaller objects and passes each one to the given
+   * consumer as they flow, so the elements don't need to be held in memory. The stream is
+   * closed afterwards.
+   *
+   * @param type     the type of the smaller object
+   * @param splitter a function to split the target object
+   * @param spec     the spec to execute
+   * @return a reference to this object
+   * @see Spec#stream(Stream)
+   * @since 4.1
+   */
+  <E> SpecDefinition<T> eachStreamed(Class<E> type, Function<T, Stream<E>> splitter, Consumer<SpecDefinition<E>> spec);
+
+  /**
+   * Splits the target object into smaller objects and passes each one to the given consumer,
+   * evaluating the elements concurrently.
+   * <p>
+   * The failures of every element are collected and reported together, after all elements
+   * are evaluated, in a {@link MultipleFailuresError}. If a custom fail operation is used,
+   * it must be thread safe.
+   *
+   * @param type        the type of the smaller object
+   * @param splitter    a function to split the target object
+   * @param spec        the spec to execute
+   * @param parallelism how the elements should be evaluated
+   * @return a reference to this object
+   * @since 4.1
+   */
+  <E> SpecDefinition<T> parallelEach(Class<E> type, Function<T, Iterable<E>> splitter,
+                                     Consumer<SpecDefinition<E>> spec, Parallelism parallelism);
+
+  /**
+   * Splits the target object into smaller objects and passes each one to the given consumer,
+   * evaluating the elements concurrently in the {@link Parallelism#commonPool() common pool}.
+   *
+   * @param type     the type of the smaller object
+   * @param splitter a function to split the target object
+   * @param spec     the spec to execute
+   * @return a reference to this object
+   * @see #parallelEach(Class, Function, Consumer, Parallelism)
+   * @since 4.1
+   */
+  default <E> SpecDefinition<T> parallelEach(Class<E> type, Function<T, Iterable<E>> splitter,
+                                             Consumer<SpecDefinition<E>> spec) {
+    return parallelEach(type, splitter, spec, Parallelism.commonPool());
+  }
+
+  /**
+   * Splits the target object into smaller objects and passes each one to the given consumer,
+   * evaluating the elements concurrently.
+   * <p>
+   * This method assumes that the target is an {@link Iterable}.
+   *
+   * @param type        the type of the smaller object
+   * @param spec        the spec to execute
+   * @param parallelism how the elements should be evaluated
+   * @return a reference to this object
+   * @see #parallelEach(Class, Function, Consumer, Parallelism)
+   * @since 4.1
+   */
+  default <E> SpecDefinition<T> parallelEach(Class<E> type, Consumer<SpecDefinition<E>> spec,
+                                             Parallelism parallelism) {
+    return parallelEach(type, target -> (Iterable) target, spec, parallelism);
+  }
+
+  /**
+   * Splits the target object into smaller objects and passes each one to the given consumer,
+   * evaluating the elements concurrently in the {@link Parallelism#commonPool() common pool}.
+   * <p>
+   * This method assumes that the target is an {@link Iterable}.
+   *
+   * @param type the type of the smaller object
+   * @param spec the spec to execute
+   * @return a reference to this object
+   * @see #parallelEach(Class, Function, Consumer, Parallelism)
+   * @since 4.1
+   */
+  default <E> SpecDefinition<T> parallelEach(Class<E> type, Consumer<SpecDefinition<E>> spec) {
+    return parallelEach(type, spec, Parallelism.commonPool());
+  }
+
+  /**
+   * Defines an expectation on the result of an asynchronous operation.
+   * <p>
+   * The caller is not blocked: the test is executed when the returned stage completes,
+   * so many asynchronous expectations can be in flight at once. Call {@link #await()}
+   * to wait for them and get the combined result.
+   * <p>
+   * If the stage doesn't complete within the given timeout, or completes
+   * exceptionally, the expectation fails. Only the test is executed by the
+   * thread that completes the stage: failures are handled by {@link #await()}.
+   *
+   * @param function the function that starts the operation
+   * @param test     the test to execute with the result of the operation
+   * @param timeout  how long to wait for the result
+   * @param <E>      the type of the result
+   * @return a reference to this object
+   * @since 4.1
+   */
+  <E> SpecDefinition<T> expectAsync(Function<? super T, ? extends CompletionStage<E>> function,
+                                    Predicate<? super E> test, Duration timeout);
+
+  /**
+   * Defines an expectation on the result of an asynchronous operation, which must
+   * complete within {@link Spec#DEFAULT_ASYNC_TIMEOUT}.
+   *
+   * @param function the function that starts the operation
+   * @param test     the test to execute with the result of the operation
+   * @param <E>      the type of the result
+   * @return a reference to this object
+   * @see #expectAsync(Function, Predicate, Duration)
+   * @since 4.1
+   */
+  default <E> SpecDefinition<T> expectAsync(Function<? super T, ? extends CompletionStage<E>> function,
+                                            Predicate<? super E> test) {
+    return expectAsync(function, test, Spec.DEFAULT_ASYNC_TIMEOUT);
+  }
+
+  /**
+   * Waits for every asynchronous expectation defined in this spec.
+   * <p>
+   * The failures are handed to the fail operation by the calling thread,
+   * including timeouts and exceptional completions (as an
+   * {@link AssertionError} describing them). The errors raised by the fail
+   * operation (the default one throws an {@link AssertionError}) are reported
+   * together in a {@link MultipleFailuresError}.
+   *
+   * @return a reference to this object
+   * @throws MultipleFailuresError if any asynchronous expectation failed
+   * @since 4.1
+   */
+  SpecDefinition<T> await();
+
+  /**
+   * Runs the actors of the given stress definition concurrently against the target,
+   * many times, to expose thread safety issues. The expectations defined after
+   * this call are evaluated against the resulting target.
+   * <p>
+   * If a forbidden outcome is observed, the fail operation receives the
+   * {@link StressReport}. Exceptions raised by the actors are rethrown after the
+   * run.
+   *
+   * @param stress how to stress the target
+   * @return a reference to this object
+   * @since 4.1
+   */
+  SpecDefinition<T> concurrently(Stress<T> stress);
+
+  /**
+   * Returns the result tree of this spec, with the timings and outcomes of
+   * every operation executed so far. Only specs started with
+   * {@link Spec#describe(String)} record results.
+   *
+   * @return the root of the result tree
+   * @throws IllegalStateException if this spec doesn't record results
+   * @since 4.1
+   */
+  SpecResult result();
+
+  /**
+   * Runs the given actors concurrently against the target, many times.
+   *
+   * @param threads    the number of threads
+   * @param iterations the number of times the actors run
+   * @param actors     the operations to run concurrently
+   * @return a reference to this object
+   * @see #concurrently(Stress)
+   * @since 4.1
+   */
+  @SuppressWarnings("unchecked")
+  default SpecDefinition<T> concurrently(int threads, int iterations, Consumer<? super T>... actors) {
+    return concurrently(Stress.<T>of(actors).threads(threads).iterations(iterations));
+  }
+
 }
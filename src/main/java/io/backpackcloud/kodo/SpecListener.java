@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+/**
+ * Receives the events of the specs, to time and count their expectations.
+ * <p>
+ * Listeners are found with a {@link java.util.ServiceLoader} (by listing them
+ * in {@code META-INF/services/io.backpackcloud.kodo.SpecListener}) or
+ * registered with {@link Spec#addListener(SpecListener)}. A spec notifies the
+ * listeners registered when it was created. When no listener is registered,
+ * specs only pay for a null check.
+ * <p>
+ * Every method does nothing by default. Specs may be evaluated concurrently
+ * (see {@link SpecDefinition#parallelEach(Class, java.util.function.Consumer, Parallelism)}),
+ * so listeners must be thread safe.
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+public interface SpecListener {
+
+  /**
+   * Called when a spec is started, by {@link Spec} or for each element of a
+   * nested spec.
+   *
+   * @param description the description of the spec
+   * @param target      the target of the spec
+   */
+  default void onStart(String description, Object target) {
+
+  }
+
+  /**
+   * Called after an operation given to {@code when} is executed.
+   *
+   * @param description the description of the spec
+   * @param nanos       how long the operation took
+   */
+  default void onWhen(String description, long nanos) {
+
+  }
+
+  /**
+   * Called after an expectation is evaluated (including the computation of the
+   * value being tested).
+   *
+   * @param description the description of the spec
+   * @param index       the index of the expectation in the spec, starting at 1
+   * @param nanos       how long the expectation took
+   * @param passed      if the expectation passed
+   */
+  default void onExpectation(String description, int index, long nanos, boolean passed) {
+
+  }
+
+  /**
+   * Called when an expectation fails, before {@link #onExpectation(String, int, long, boolean)},
+   * or when an operation given to {@code when} throws, before
+   * {@link #onWhen(String, long)} and with an index of {@code 0}.
+   *
+   * @param description the description of the spec
+   * @param index       the index of the expectation in the spec, starting at 1,
+   *                    or {@code 0} for an operation
+   * @param value       the value that failed the expectation (or the error of an
+   *                    asynchronous expectation or of an operation)
+   */
+  default void onFailure(String description, int index, Object value) {
+
+  }
+
+  /**
+   * Called when a spec is finished. Only nested specs (including the ones
+   * executed by plans and properties) have a known end, since a spec started
+   * by {@link Spec} can always be continued.
+   *
+   * @param description  the description of the spec
+   * @param expectations how many expectations were evaluated
+   * @param failures     how many expectations failed
+   */
+  default void onEnd(String description, int expectations, int failures) {
+
+  }
+
+}
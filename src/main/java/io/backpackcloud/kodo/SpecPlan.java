@@ -0,0 +1,492 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A spec that is recorded once and executed against many targets.
+ * <p>
+ * Instead of executing each operation as it is defined, a plan records the
+ * operations and only executes them when {@link #run(Object)} is called. The
+ * fluent chain (and every predicate and function given to it) is built only
+ * once, no matter how many targets are checked.
+ * <p>
+ * <code>
+ * SpecPlan&lt;Order&gt; plan = Spec.plan(Order.class)<br>
+ * &nbsp;&nbsp;.expect(Order::total, to().be(positive()))<br>
+ * &nbsp;&nbsp;.expectInt(Order::items, to().beBetween(1, 100));<br>
+ * <br>
+ * plan.runAll(orders);
+ * </code>
+ * <p>
+ * Plans are immutable (each operation returns a new plan) and thread safe as
+ * long as the recorded operations are.
+ * <p>
+ * Unless a listener is registered, a plan made only of operations and
+ * synchronous expectations runs directly against the target, without
+ * creating a spec definition. The gain comes from predicates that are costly
+ * to build or keep state (like {@link Expectation#satisfyAll(Predicate[])}),
+ * which a plan builds only once: a short fluent chain of constant lambdas is
+ * compiled by the JIT just as well.
+ * <p>
+ * Since the target is only known at execution time, {@link #given(Object)},
+ * {@link #given(Function)} and {@link #begin()} are not supported.
+ *
+ * @author Marcelo Guimarães
+ * @see Spec#plan(Class)
+ * @since 4.1
+ */
+public final class SpecPlan<T> implements SpecDefinition<T> {
+
+  private static final Predicate<Boolean> IS_TRUE = Boolean.TRUE::equals;
+
+  private final UnaryOperator<SpecDefinition<T>>[] steps;
+  // the same steps, compiled to run directly against the target (null if
+  // any of them needs a spec definition)
+  private final Check[] checks;
+  private final Consumer failOperation;
+  private final int expectations;
+
+  @SuppressWarnings("unchecked")
+  SpecPlan() {
+    this(new UnaryOperator[0], new Check[0], Expectation.throwAssertionError(), 0);
+  }
+
+  private SpecPlan(UnaryOperator<SpecDefinition<T>>[] steps, Check[] checks, Consumer failOperation,
+                   int expectations) {
+    this.steps = steps;
+    this.checks = checks;
+    this.failOperation = failOperation;
+    this.expectations = expectations;
+  }
+
+  /**
+   * Records a step that can only be executed on a spec definition.
+   */
+  private SpecPlan<T> then(UnaryOperator<SpecDefinition<T>> step) {
+    return new SpecPlan<>(append(steps, step), null, failOperation, expectations);
+  }
+
+  /**
+   * Records a step that can also be executed directly against the target.
+   */
+  private SpecPlan<T> then(UnaryOperator<SpecDefinition<T>> step, int kind, Object operation, Object test,
+                           Consumer consumer) {
+    int index = kind < Check.EXPECTATIONS ? expectations : expectations + 1;
+    Check[] checks = this.checks == null ? null
+        : append(this.checks, new Check(kind, operation, test, consumer, index));
+    return new SpecPlan<>(append(steps, step), checks, failOperation, index);
+  }
+
+  private static <E> E[] append(E[] array, E element) {
+    E[] result = Arrays.copyOf(array, array.length + 1);
+    result[array.length] = element;
+    return result;
+  }
+
+  /**
+   * Executes this plan against the given target.
+   *
+   * @param target the target to check
+   */
+  public void run(T target) {
+    if (checks != null && DefaultSpecDefinition.listener() == null) {
+      for (Check check : checks) {
+        check.run(target);
+      }
+      return;
+    }
+    DefaultSpecDefinition.run("", target, Expectation.throwAssertionError(), definition -> {
+      SpecDefinition<T> spec = definition;
+      for (UnaryOperator<SpecDefinition<T>> step : steps) {
+        spec = step.apply(spec);
+      }
+    });
+  }
+
+  /**
+   * Executes this plan against each one of the given targets, in order.
+   *
+   * @param targets the targets to check
+   */
+  public void runAll(Iterable<? extends T> targets) {
+    for (T target : targets) {
+      run(target);
+    }
+  }
+
+  /**
+   * Executes this plan concurrently against each one of the given targets.
+   *
+   * @param targets     the targets to check
+   * @param parallelism how the targets should be checked
+   * @throws MultipleFailuresError if any target fails
+   */
+  public void runAll(Iterable<? extends T> targets, Parallelism parallelism) {
+    parallelism.execute(targets, this::run);
+  }
+
+  /**
+   * @return the number of recorded operations
+   */
+  public int size() {
+    return steps.length;
+  }
+
+  /**
+   * Not supported, since the target of a plan is given at execution time.
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public <R> SpecDefinition<R> given(R object) {
+    throw new UnsupportedOperationException("The target of a plan is given at execution time");
+  }
+
+  /**
+   * Not supported, since the target of a plan is given at execution time.
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public <R> SpecDefinition<R> given(Function<T, R> function) {
+    throw new UnsupportedOperationException("The target of a plan is given at execution time");
+  }
+
+  /**
+   * Not supported, since the target of a plan is given at execution time.
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public SpecDefinition begin() {
+    throw new UnsupportedOperationException("The target of a plan is given at execution time");
+  }
+
+  @Override
+  public SpecPlan<T> onFail(Consumer<?> operation) {
+    // a fresh spec definition counts expectations from the start
+    return new SpecPlan<>(append(steps, spec -> spec.onFail(operation)), checks, operation, 0);
+  }
+
+  @Override
+  public SpecPlan<T> when(Consumer<? super T> operation) {
+    return then(spec -> spec.when(operation), Check.ACTION, operation, null, null);
+  }
+
+  @Override
+  public SpecPlan<T> when(Runnable operation) {
+    return then(spec -> spec.when(operation), Check.RUNNABLE, operation, null, null);
+  }
+
+  @Override
+  public SpecPlan<T> expect(Consumer<? super T> operation, Predicate<? extends Exception> test) {
+    return then(spec -> spec.expect(operation, test));
+  }
+
+  @Override
+  public SpecPlan<T> expect(Consumer<? super T> operation, Predicate<? extends Exception> test,
+                            Consumer<? extends Exception> consumer) {
+    return then(spec -> spec.expect(operation, test, consumer));
+  }
+
+  @Override
+  public SpecPlan<T> expect(Consumer<? super T> operation, Measurement measurement) {
+    return then(spec -> spec.expect(operation, measurement));
+  }
+
+  @Override
+  public SpecPlan<T> expect(Consumer<? super T> operation, Measurement measurement, Consumer<?> consumer) {
+    return then(spec -> spec.expect(operation, measurement, consumer));
+  }
+
+  @Override
+  public <E> SpecPlan<T> expect(Function<? super T, E> function, Predicate<? super E> test) {
+    return expect(function, test, (Consumer<E>) failOperation);
+  }
+
+  @Override
+  public <E> SpecPlan<T> expect(Function<? super T, E> function, Predicate<? super E> test, Consumer<E> consumer) {
+    if (function instanceof Derived || test instanceof Eventually) {
+      return then(spec -> spec.expect(function, test, consumer));
+    }
+    return then(spec -> spec.expect(function, test, consumer), Check.OBJECT, function, test, consumer);
+  }
+
+  @Override
+  public <E> SpecPlan<T> expect(Supplier<E> supplier, Predicate<? super E> test) {
+    return then(spec -> spec.expect(supplier, test));
+  }
+
+  @Override
+  public <E> SpecPlan<T> expect(Supplier<E> supplier, Predicate<? super E> test, Consumer<E> consumer) {
+    return then(spec -> spec.expect(supplier, test, consumer));
+  }
+
+  @Override
+  public SpecPlan<T> expect(Function<? super T, Boolean> function) {
+    return expect(function, (Consumer<Boolean>) failOperation);
+  }
+
+  @Override
+  public SpecPlan<T> expect(Function<? super T, Boolean> function, Consumer<Boolean> consumer) {
+    if (function instanceof Derived) {
+      return then(spec -> spec.expect(function, consumer));
+    }
+    return then(spec -> spec.expect(function, consumer), Check.OBJECT, function, IS_TRUE, consumer);
+  }
+
+  @Override
+  public SpecPlan<T> expect(boolean value) {
+    return expect(value, (Consumer<Boolean>) failOperation);
+  }
+
+  @Override
+  public SpecPlan<T> expect(boolean value, Consumer<Boolean> consumer) {
+    return then(spec -> spec.expect(value, consumer), Check.VALUE, value, null, consumer);
+  }
+
+  @Override
+  public SpecPlan<T> expectInt(ToIntFunction<? super T> function, IntPredicate test) {
+    return expectInt(function, test, (Consumer<Integer>) failOperation);
+  }
+
+  @Override
+  public SpecPlan<T> expectInt(ToIntFunction<? super T> function, IntPredicate test, Consumer<Integer> consumer) {
+    return then(spec -> spec.expectInt(function, test, consumer), Check.INT, function, test, consumer);
+  }
+
+  @Override
+  public SpecPlan<T> expectLong(ToLongFunction<? super T> function, LongPredicate test) {
+    return expectLong(function, test, (Consumer<Long>) failOperation);
+  }
+
+  @Override
+  public SpecPlan<T> expectLong(ToLongFunction<? super T> function, LongPredicate test, Consumer<Long> consumer) {
+    return then(spec -> spec.expectLong(function, test, consumer), Check.LONG, function, test, consumer);
+  }
+
+  @Override
+  public SpecPlan<T> expectDouble(ToDoubleFunction<? super T> function, DoublePredicate test) {
+    return expectDouble(function, test, (Consumer<Double>) failOperation);
+  }
+
+  @Override
+  public SpecPlan<T> expectDouble(ToDoubleFunction<? super T> function, DoublePredicate test,
+                                  Consumer<Double> consumer) {
+    return then(spec -> spec.expectDouble(function, test, consumer), Check.DOUBLE, function, test, consumer);
+  }
+
+  /**
+   * Records a nested spec for the elements of the target.
+   * <p>
+   * The given spec is evaluated for each element at execution time. To also
+   * record the nested spec, use another plan:
+   * {@code .when(order -> itemsPlan.runAll(order.items()))}.
+   */
+  @Override
+  public <E> SpecPlan<T> each(Class<E> type, Function<T, Iterable<E>> splitter, Consumer<SpecDefinition<E>> spec) {
+    return then(s -> s.each(type, splitter, spec));
+  }
+
+  @Override
+  public <E> SpecPlan<T> each(Class<E> type, Consumer<SpecDefinition<E>> spec) {
+    return then(s -> s.each(type, spec));
+  }
+
+  @Override
+  public <E> SpecPlan<T> eachStreamed(Class<E> type, Function<T, Stream<E>> splitter,
+                                      Consumer<SpecDefinition<E>> spec) {
+    return then(s -> s.eachStreamed(type, splitter, spec));
+  }
+
+  @Override
+  public <E> SpecPlan<T> parallelEach(Class<E> type, Function<T, Iterable<E>> splitter,
+                                      Consumer<SpecDefinition<E>> spec, Parallelism parallelism) {
+    return then(s -> s.parallelEach(type, splitter, spec, parallelism));
+  }
+
+  @Override
+  public <E> SpecPlan<T> parallelEach(Class<E> type, Function<T, Iterable<E>> splitter,
+                                      Consumer<SpecDefinition<E>> spec) {
+    return then(s -> s.parallelEach(type, splitter, spec));
+  }
+
+  @Override
+  public <E> SpecPlan<T> parallelEach(Class<E> type, Consumer<SpecDefinition<E>> spec, Parallelism parallelism) {
+    return then(s -> s.parallelEach(type, spec, parallelism));
+  }
+
+  @Override
+  public <E> SpecPlan<T> parallelEach(Class<E> type, Consumer<SpecDefinition<E>> spec) {
+    return then(s -> s.parallelEach(type, spec));
+  }
+
+  @Override
+  public <E> SpecPlan<T> expectAsync(Function<? super T, ? extends CompletionStage<E>> function,
+                                     Predicate<? super E> test, Duration timeout) {
+    return then(spec -> spec.expectAsync(function, test, timeout));
+  }
+
+  @Override
+  public <E> SpecPlan<T> expectAsync(Function<? super T, ? extends CompletionStage<E>> function,
+                                     Predicate<? super E> test) {
+    return then(spec -> spec.expectAsync(function, test));
+  }
+
+  @Override
+  public SpecPlan<T> await() {
+    return then(SpecDefinition::await);
+  }
+
+  /**
+   * Not supported, since a plan records operations instead of executing them.
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public SpecResult result() {
+    throw new UnsupportedOperationException("A plan has no results, only its executions");
+  }
+
+  @Override
+  public SpecPlan<T> concurrently(Stress<T> stress) {
+    return then(spec -> spec.concurrently(stress));
+  }
+
+  @Override
+  @SafeVarargs
+  public final SpecPlan<T> concurrently(int threads, int iterations, Consumer<? super T>... actors) {
+    Stress<T> stress = Stress.<T>of(actors).threads(threads).iterations(iterations);
+    return concurrently(stress);
+  }
+
+  /**
+   * A recorded step executed directly against the target. A single class
+   * (instead of a lambda per step) keeps the call in {@link #run(Object)}
+   * monomorphic.
+   */
+  private static final class Check {
+
+    static final int ACTION = 0;
+    static final int RUNNABLE = 1;
+    // kinds from here on are expectations
+    static final int EXPECTATIONS = 2;
+    static final int OBJECT = 2;
+    static final int INT = 3;
+    static final int LONG = 4;
+    static final int DOUBLE = 5;
+    static final int VALUE = 6;
+
+    // typed fields avoid casting the recorded operations on every run
+    private final int kind;
+    private final Consumer action;
+    private final Runnable runnable;
+    private final Function function;
+    private final Predicate predicate;
+    private final ToIntFunction intFunction;
+    private final IntPredicate intPredicate;
+    private final ToLongFunction longFunction;
+    private final LongPredicate longPredicate;
+    private final ToDoubleFunction doubleFunction;
+    private final DoublePredicate doublePredicate;
+    private final boolean value;
+    private final Consumer consumer;
+    private final int index;
+
+    Check(int kind, Object operation, Object test, Consumer consumer, int index) {
+      this.kind = kind;
+      this.action = kind == ACTION ? (Consumer) operation : null;
+      this.runnable = kind == RUNNABLE ? (Runnable) operation : null;
+      this.function = kind == OBJECT ? (Function) operation : null;
+      this.predicate = kind == OBJECT ? (Predicate) test : null;
+      this.intFunction = kind == INT ? (ToIntFunction) operation : null;
+      this.intPredicate = kind == INT ? (IntPredicate) test : null;
+      this.longFunction = kind == LONG ? (ToLongFunction) operation : null;
+      this.longPredicate = kind == LONG ? (LongPredicate) test : null;
+      this.doubleFunction = kind == DOUBLE ? (ToDoubleFunction) operation : null;
+      this.doublePredicate = kind == DOUBLE ? (DoublePredicate) test : null;
+      this.value = kind == VALUE && (Boolean) operation;
+      this.consumer = consumer;
+      this.index = index;
+    }
+
+    void run(Object target) {
+      switch (kind) {
+        case ACTION:
+          action.accept(target);
+          break;
+        case RUNNABLE:
+          runnable.run();
+          break;
+        case OBJECT:
+          Object result = function.apply(target);
+          if (!predicate.test(result)) {
+            DefaultSpecDefinition.fail("", target, index, predicate, result, consumer);
+          }
+          break;
+        case INT:
+          int intResult = intFunction.applyAsInt(target);
+          if (!intPredicate.test(intResult)) {
+            DefaultSpecDefinition.fail("", target, index, intResult, consumer);
+          }
+          break;
+        case LONG:
+          long longResult = longFunction.applyAsLong(target);
+          if (!longPredicate.test(longResult)) {
+            DefaultSpecDefinition.fail("", target, index, longResult, consumer);
+          }
+          break;
+        case DOUBLE:
+          double doubleResult = doubleFunction.applyAsDouble(target);
+          if (!doublePredicate.test(doubleResult)) {
+            DefaultSpecDefinition.fail("", target, index, doubleResult, consumer);
+          }
+          break;
+        default:
+          if (!value) {
+            DefaultSpecDefinition.fail("", target, index, Boolean.FALSE, consumer);
+          }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,450 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a spec started with {@link Spec#describe(String)}, as a tree:
+ * the description, the targets given to it, their {@code when} operations and
+ * expectations, and the elements of nested specs.
+ * <p>
+ * Nodes keep their operations in arrays (the duration, the outcome and the
+ * failing value), allocated on the first operation, and the labels are only
+ * built when the tree is read, so recording adds little to the cost of a spec.
+ * Strings, boxed primitives and enums are kept as labels. Other targets are
+ * not retained by default and are labeled by their type and identity hash
+ * code. Set the system property {@value #RETAIN_TARGETS_PROPERTY} to
+ * {@code true} to keep them and label them by their {@code toString()} when
+ * the tree is read.
+ * <p>
+ * <code>
+ * SpecDefinition&lt;Order&gt; spec = Spec.describe("orders").given(order);<br>
+ * ...<br>
+ * System.out.println(spec.result().render());
+ * </code>
+ *
+ * @author Marcelo Guimarães
+ * @see SpecDefinition#result()
+ * @since 4.1
+ */
+public final class SpecResult {
+
+  /**
+   * The system property that makes the results keep the targets, so they are
+   * labeled by their {@code toString()}.
+   */
+  public static final String RETAIN_TARGETS_PROPERTY = "kodo.result.retainTargets";
+
+  /**
+   * The kinds of nodes.
+   */
+  public enum Kind {
+
+    /**
+     * The root, holding the description.
+     */
+    DESCRIBE,
+
+    /**
+     * A target given to the spec.
+     */
+    GIVEN,
+
+    /**
+     * An element of a nested spec.
+     */
+    ELEMENT,
+
+    /**
+     * An operation given to {@code when}.
+     */
+    WHEN,
+
+    /**
+     * An expectation.
+     */
+    EXPECT
+
+  }
+
+  private static final int INITIAL_CAPACITY = 8;
+  private static final Object PASSED = new Object();
+
+  private final Kind kind;
+  // the description, the target (or its identity), or the index of an expectation
+  private final Object subject;
+  private final long nanos;
+  private final Object outcome;
+  private final boolean retainTargets;
+
+  // operations and children, in order (children have a null outcome)
+  private int size;
+  private Kind[] kinds;
+  private int[] indexes;
+  private long[] durations;
+  private Object[] outcomes;
+
+  private SpecResult(Kind kind, Object subject, long nanos, Object outcome, boolean retainTargets) {
+    this.kind = kind;
+    this.subject = subject;
+    this.nanos = nanos;
+    this.outcome = outcome;
+    this.retainTargets = retainTargets;
+  }
+
+  private SpecResult(Kind kind, Object subject, boolean retainTargets) {
+    this(kind, subject, 0, null, retainTargets);
+  }
+
+  private synchronized void add(Kind kind, int index, long nanos, Object outcome) {
+    if (kinds == null) {
+      kinds = new Kind[INITIAL_CAPACITY];
+      indexes = new int[INITIAL_CAPACITY];
+      durations = new long[INITIAL_CAPACITY];
+      outcomes = new Object[INITIAL_CAPACITY];
+    } else if (size == kinds.length) {
+      int capacity = size << 1;
+      kinds = Arrays.copyOf(kinds, capacity);
+      indexes = Arrays.copyOf(indexes, capacity);
+      durations = Arrays.copyOf(durations, capacity);
+      outcomes = Arrays.copyOf(outcomes, capacity);
+    }
+    kinds[size] = kind;
+    indexes[size] = index;
+    durations[size] = nanos;
+    outcomes[size] = outcome;
+    size++;
+  }
+
+  private SpecResult child(Kind kind, Object target) {
+    Object subject = retainTargets || target == null || isValue(target) ? target : new Identity(target);
+    SpecResult child = new SpecResult(kind, subject, retainTargets);
+    add(kind, 0, 0, child);
+    return child;
+  }
+
+  private static boolean isValue(Object target) {
+    return target instanceof String || target instanceof Integer || target instanceof Long
+        || target instanceof Boolean || target instanceof Character || target instanceof Double
+        || target instanceof Float || target instanceof Short || target instanceof Byte
+        || target instanceof Enum;
+  }
+
+  /**
+   * @return the kind of this node
+   */
+  public Kind kind() {
+    return kind;
+  }
+
+  /**
+   * @return the description, the target, or the name of the operation
+   */
+  public String label() {
+    switch (kind) {
+      case DESCRIBE:
+      case GIVEN:
+      case ELEMENT:
+        return String.valueOf(subject);
+      case WHEN:
+        return "when";
+      default:
+        return "expectation #" + subject;
+    }
+  }
+
+  /**
+   * @return how long this operation took, or the sum of the children
+   */
+  public long nanos() {
+    if (leaf()) {
+      return nanos;
+    }
+    long total = 0;
+    for (SpecResult child : children()) {
+      total += child.nanos();
+    }
+    return total;
+  }
+
+  /**
+   * @return {@code false} if this operation, or any child, failed
+   */
+  public boolean passed() {
+    if (leaf()) {
+      return outcome == PASSED || kind == Kind.WHEN && outcome == null;
+    }
+    for (SpecResult child : children()) {
+      if (!child.passed()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean leaf() {
+    return kind == Kind.WHEN || kind == Kind.EXPECT;
+  }
+
+  /**
+   * @return the value that failed this expectation, or {@code null}
+   */
+  public Object failure() {
+    return outcome == PASSED ? null : outcome;
+  }
+
+  /**
+   * @return the operations and nested nodes, in the order they were executed
+   */
+  public synchronized List<SpecResult> children() {
+    if (kinds == null) {
+      return Collections.emptyList();
+    }
+    List<SpecResult> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      switch (kinds[i]) {
+        case WHEN:
+          result.add(new SpecResult(Kind.WHEN, null, durations[i], outcomes[i], false));
+          break;
+        case EXPECT:
+          result.add(new SpecResult(Kind.EXPECT, indexes[i], durations[i], outcomes[i], false));
+          break;
+        default:
+          result.add((SpecResult) outcomes[i]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the tree as indented lines, with the durations and failures
+   */
+  public String render() {
+    StringBuilder builder = new StringBuilder();
+    render(builder, 0);
+    return builder.toString();
+  }
+
+  private void render(StringBuilder builder, int depth) {
+    for (int i = 0; i < depth; i++) {
+      builder.append("  ");
+    }
+    builder.append(kind.name().toLowerCase()).append(' ').append(kind == Kind.WHEN ? "" : label())
+        .append(" (").append(Measurement.format(nanos())).append(')');
+    if (!passed()) {
+      builder.append(" FAILED");
+      if (leaf() && outcome != null) {
+        builder.append(": ").append(outcome);
+      }
+    }
+    builder.append(System.lineSeparator());
+    for (SpecResult child : children()) {
+      child.render(builder, depth + 1);
+    }
+  }
+
+  /**
+   * @return the tree as a JSON object
+   */
+  public String toJson() {
+    StringBuilder builder = new StringBuilder();
+    toJson(builder);
+    return builder.toString();
+  }
+
+  private void toJson(StringBuilder builder) {
+    builder.append("{\"kind\":\"").append(kind.name().toLowerCase()).append("\",\"label\":");
+    quote(builder, label());
+    builder.append(",\"nanos\":").append(nanos()).append(",\"passed\":").append(passed());
+    if (leaf() && !passed() && outcome != null) {
+      builder.append(",\"failure\":");
+      quote(builder, String.valueOf(outcome));
+    }
+    List<SpecResult> children = children();
+    if (!children.isEmpty()) {
+      builder.append(",\"children\":[");
+      for (int i = 0; i < children.size(); i++) {
+        if (i > 0) {
+          builder.append(',');
+        }
+        children.get(i).toJson(builder);
+      }
+      builder.append(']');
+    }
+    builder.append('}');
+  }
+
+  static void quote(StringBuilder builder, String value) {
+    builder.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          builder.append("\\\"");
+          break;
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            builder.append(String.format("\\u%04x", (int) c));
+          } else {
+            builder.append(c);
+          }
+      }
+    }
+    builder.append('"');
+  }
+
+  @Override
+  public String toString() {
+    return render();
+  }
+
+  /**
+   * A target that is not retained, labeled like {@link Object#toString()}.
+   */
+  private static final class Identity {
+
+    private final Class<?> type;
+    private final int hash;
+
+    Identity(Object target) {
+      this.type = target.getClass();
+      this.hash = System.identityHashCode(target);
+    }
+
+    @Override
+    public String toString() {
+      return type.getName() + '@' + Integer.toHexString(hash);
+    }
+
+  }
+
+  /**
+   * Records the events of a spec in a node, forwarding them to the registered
+   * listeners.
+   */
+  static final class Recorder implements SpecListener {
+
+    private final SpecResult root;
+    private final SpecResult node;
+    private final SpecListener delegate;
+    private Object failure;
+
+    private Recorder(SpecResult root, SpecResult node, SpecListener delegate) {
+      this.root = root;
+      this.node = node;
+      this.delegate = delegate;
+    }
+
+    static Recorder describe(String description) {
+      SpecResult root = new SpecResult(Kind.DESCRIBE, description, Boolean.getBoolean(RETAIN_TARGETS_PROPERTY));
+      return new Recorder(root, root, Listeners.current());
+    }
+
+    /**
+     * @return a recorder of the root node, for a spec started over
+     */
+    Recorder restart() {
+      return new Recorder(root, root, delegate);
+    }
+
+    /**
+     * @return a recorder of a new child node
+     */
+    Recorder child(Kind kind, Object target) {
+      return new Recorder(root, node.child(kind, target), delegate);
+    }
+
+    SpecResult root() {
+      return root;
+    }
+
+    @Override
+    public void onStart(String description, Object target) {
+      if (delegate != null) {
+        delegate.onStart(description, target);
+      }
+    }
+
+    @Override
+    public void onWhen(String description, long nanos) {
+      Object outcome;
+      synchronized (this) {
+        // the exception of a failed operation, given to onFailure right before
+        outcome = failure;
+        failure = null;
+      }
+      node.add(Kind.WHEN, 0, nanos, outcome);
+      if (delegate != null) {
+        delegate.onWhen(description, nanos);
+      }
+    }
+
+    @Override
+    public synchronized void onFailure(String description, int index, Object value) {
+      failure = value;
+      if (delegate != null) {
+        delegate.onFailure(description, index, value);
+      }
+    }
+
+    @Override
+    public synchronized void onExpectation(String description, int index, long nanos, boolean passed) {
+      Object outcome = PASSED;
+      if (!passed) {
+        outcome = failure;
+        failure = null;
+      }
+      node.add(Kind.EXPECT, index, nanos, outcome);
+      if (delegate != null) {
+        delegate.onExpectation(description, index, nanos, passed);
+      }
+    }
+
+    @Override
+    public void onEnd(String description, int expectations, int failures) {
+      if (delegate != null) {
+        delegate.onEnd(description, expectations, failures);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,377 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A property over sequences of commands, to test stateful systems against a
+ * simple model.
+ * <p>
+ * Each case generates a random sequence of commands (only the ones whose
+ * precondition holds for the model at that point) and runs it against a new
+ * target: each command is applied to the target with
+ * {@link SpecDefinition#when(java.util.function.Consumer) when} and to the
+ * model, and the invariants are checked after every step. Sequences run
+ * concurrently on independent targets and a failing sequence is shrunk to the
+ * shortest reproducer.
+ * <p>
+ * <code>
+ * Spec.&lt;BoundedQueue, List&lt;Integer&gt;&gt;stateMachine(BoundedQueue::new, ArrayList::new)<br>
+ * &nbsp;&nbsp;.command("offer", m -&gt; m.size() &lt; 10, Gen.ints(), BoundedQueue::offer, List::add)<br>
+ * &nbsp;&nbsp;.call("poll", m -&gt; !m.isEmpty(), Gen.constant(0), (q, x) -&gt; q.poll(), (m, x) -&gt; m.remove(0))<br>
+ * &nbsp;&nbsp;.invariant((queue, model) -&gt; queue.expect(BoundedQueue::size, to().be(model.size())))<br>
+ * &nbsp;&nbsp;.cases(10_000)<br>
+ * &nbsp;&nbsp;.check();
+ * </code>
+ * <p>
+ * The model is also used while generating the sequences (to check the
+ * preconditions), so its updates should be deterministic. State machines are
+ * immutable and each builder method returns a new one.
+ *
+ * @param <S> the type of the system under test
+ * @param <M> the type of the model
+ * @author Marcelo Guimarães
+ * @see Spec#stateMachine(Supplier, Supplier)
+ * @since 4.1
+ */
+public final class StateMachine<S, M> {
+
+  private static final double CONTINUE = 0.95;
+
+  private final Supplier<? extends S> system;
+  private final Supplier<? extends M> model;
+  private List<Command<S, M, ?>> commands = new ArrayList<>();
+  private List<BiConsumer<SpecDefinition<S>, ? super M>> invariants = new ArrayList<>();
+  private int maxSteps = 50;
+  private long cases = 100;
+  private Long seed;
+  private Parallelism parallelism = Parallelism.commonPool();
+  private int maxShrinks = 10_000;
+
+  StateMachine(Supplier<? extends S> system, Supplier<? extends M> model) {
+    this.system = system;
+    this.model = model;
+  }
+
+  private StateMachine<S, M> copy() {
+    StateMachine<S, M> copy = new StateMachine<>(system, model);
+    copy.commands = new ArrayList<>(commands);
+    copy.invariants = new ArrayList<>(invariants);
+    copy.maxSteps = maxSteps;
+    copy.cases = cases;
+    copy.seed = seed;
+    copy.parallelism = parallelism;
+    copy.maxShrinks = maxShrinks;
+    return copy;
+  }
+
+  /**
+   * Adds a command that changes the system.
+   *
+   * @param name         the name of the command, used in the reports
+   * @param precondition when the command can be generated
+   * @param arguments    the generator of the arguments
+   * @param action       applies the command to the system
+   * @param update       applies the command to the model
+   * @return a new state machine
+   */
+  public <A> StateMachine<S, M> command(String name, Predicate<? super M> precondition, Gen<A> arguments,
+                                        BiConsumer<? super S, ? super A> action,
+                                        BiConsumer<? super M, ? super A> update) {
+    StateMachine<S, M> result = copy();
+    result.commands.add(new Command<S, M, A>(name, precondition, arguments, update::accept,
+        (spec, model, argument) -> {
+          spec.when(system -> action.accept(system, argument));
+          update.accept(model, argument);
+        }));
+    return result;
+  }
+
+  /**
+   * Adds a command that can always be generated.
+   *
+   * @see #command(String, Predicate, Gen, BiConsumer, BiConsumer)
+   */
+  public <A> StateMachine<S, M> command(String name, Gen<A> arguments,
+                                        BiConsumer<? super S, ? super A> action,
+                                        BiConsumer<? super M, ? super A> update) {
+    return command(name, model -> true, arguments, action, update);
+  }
+
+  /**
+   * Adds a command that returns a value. The value returned by the system is
+   * expected to be equal to the one returned by the model.
+   *
+   * @param name         the name of the command, used in the reports
+   * @param precondition when the command can be generated
+   * @param arguments    the generator of the arguments
+   * @param action       applies the command to the system
+   * @param update       applies the command to the model, returning the expected value
+   * @return a new state machine
+   */
+  public <A, R> StateMachine<S, M> call(String name, Predicate<? super M> precondition, Gen<A> arguments,
+                                        BiFunction<? super S, ? super A, ? extends R> action,
+                                        BiFunction<? super M, ? super A, ? extends R> update) {
+    StateMachine<S, M> result = copy();
+    result.commands.add(new Command<S, M, A>(name, precondition, arguments, update::apply,
+        (spec, model, argument) -> {
+          Object expected = update.apply(model, argument);
+          spec.expect(system -> action.apply(system, argument), Expectation.to().be(expected));
+        }));
+    return result;
+  }
+
+  /**
+   * Adds a command that returns a value and can always be generated.
+   *
+   * @see #call(String, Predicate, Gen, BiFunction, BiFunction)
+   */
+  public <A, R> StateMachine<S, M> call(String name, Gen<A> arguments,
+                                        BiFunction<? super S, ? super A, ? extends R> action,
+                                        BiFunction<? super M, ? super A, ? extends R> update) {
+    return call(name, model -> true, arguments, action, update);
+  }
+
+  /**
+   * Adds an invariant, checked after every step.
+   *
+   * @param invariant the expectations on the system, given the model
+   * @return a new state machine
+   */
+  public StateMachine<S, M> invariant(BiConsumer<SpecDefinition<S>, ? super M> invariant) {
+    StateMachine<S, M> result = copy();
+    result.invariants.add(invariant);
+    return result;
+  }
+
+  /**
+   * @param maxSteps the maximum length of the sequences (defaults to 50)
+   * @return a new state machine
+   */
+  public StateMachine<S, M> maxSteps(int maxSteps) {
+    if (maxSteps < 1) {
+      throw new IllegalArgumentException("maxSteps must be positive");
+    }
+    StateMachine<S, M> result = copy();
+    result.maxSteps = maxSteps;
+    return result;
+  }
+
+  /**
+   * @see Property#cases(long)
+   */
+  public StateMachine<S, M> cases(long cases) {
+    if (cases < 1) {
+      throw new IllegalArgumentException("cases must be positive");
+    }
+    StateMachine<S, M> result = copy();
+    result.cases = cases;
+    return result;
+  }
+
+  /**
+   * @see Property#seed(long)
+   */
+  public StateMachine<S, M> seed(long seed) {
+    StateMachine<S, M> result = copy();
+    result.seed = seed;
+    return result;
+  }
+
+  /**
+   * @see Property#parallelism(Parallelism)
+   */
+  public StateMachine<S, M> parallelism(Parallelism parallelism) {
+    StateMachine<S, M> result = copy();
+    result.parallelism = parallelism;
+    return result;
+  }
+
+  /**
+   * @see Property#maxShrinks(int)
+   */
+  public StateMachine<S, M> maxShrinks(int maxShrinks) {
+    if (maxShrinks < 0) {
+      throw new IllegalArgumentException("maxShrinks must not be negative");
+    }
+    StateMachine<S, M> result = copy();
+    result.maxShrinks = maxShrinks;
+    return result;
+  }
+
+  /**
+   * Runs the generated sequences. The counterexample of a failure is the
+   * shrunk sequence of commands.
+   *
+   * @throws PropertyFailedError if any sequence fails
+   */
+  public void check() {
+    if (commands.isEmpty()) {
+      throw new IllegalStateException("No commands defined");
+    }
+    Property<Program<S, M>> property = Spec.forAll(programs())
+        .cases(cases)
+        .parallelism(parallelism)
+        .maxShrinks(maxShrinks);
+    if (seed != null) {
+      property = property.seed(seed);
+    }
+    property.check(spec -> spec.when(Program::run));
+  }
+
+  /**
+   * Generates the sequences, deciding before each step if the sequence should
+   * continue, so removing a step while shrinking removes its choices.
+   */
+  private Gen<Program<S, M>> programs() {
+    List<Command<S, M, ?>> commands = Collections.unmodifiableList(new ArrayList<>(this.commands));
+    List<BiConsumer<SpecDefinition<S>, ? super M>> invariants =
+        Collections.unmodifiableList(new ArrayList<>(this.invariants));
+    int maxSteps = this.maxSteps;
+    return source -> {
+      M state = model.get();
+      List<Step<S, M, ?>> steps = new ArrayList<>();
+      List<Command<S, M, ?>> enabled = new ArrayList<>(commands.size());
+      while (steps.size() < maxSteps && source.nextBoolean(CONTINUE)) {
+        enabled.clear();
+        for (Command<S, M, ?> command : commands) {
+          if (command.precondition.test(state)) {
+            enabled.add(command);
+          }
+        }
+        if (enabled.isEmpty()) {
+          break;
+        }
+        steps.add(enabled.get(source.nextInt(0, enabled.size() - 1)).step(source, state));
+      }
+      return new Program<>(system, model, steps, invariants);
+    };
+  }
+
+  @FunctionalInterface
+  private interface Action<S, M, A> {
+
+    void run(SpecDefinition<S> spec, M model, A argument);
+
+  }
+
+  private static class Command<S, M, A> {
+
+    private final String name;
+    private final Predicate<? super M> precondition;
+    private final Gen<A> arguments;
+    private final BiConsumer<? super M, ? super A> update;
+    private final Action<S, M, A> action;
+
+    Command(String name, Predicate<? super M> precondition, Gen<A> arguments,
+            BiConsumer<? super M, ? super A> update, Action<S, M, A> action) {
+      this.name = name;
+      this.precondition = precondition;
+      this.arguments = arguments;
+      this.update = update;
+      this.action = action;
+    }
+
+    /**
+     * Generates a step, applying it to the model being simulated.
+     */
+    Step<S, M, A> step(Source source, M model) {
+      A argument = arguments.generate(source);
+      update.accept(model, argument);
+      return new Step<>(this, argument);
+    }
+
+  }
+
+  private static class Step<S, M, A> {
+
+    private final Command<S, M, A> command;
+    private final A argument;
+
+    Step(Command<S, M, A> command, A argument) {
+      this.command = command;
+      this.argument = argument;
+    }
+
+    void run(SpecDefinition<S> spec, M model) {
+      command.action.run(spec, model, argument);
+    }
+
+    @Override
+    public String toString() {
+      return command.name + "(" + argument + ")";
+    }
+
+  }
+
+  /**
+   * A generated sequence of commands.
+   */
+  private static class Program<S, M> {
+
+    private final Supplier<? extends S> system;
+    private final Supplier<? extends M> model;
+    private final List<Step<S, M, ?>> steps;
+    private final List<BiConsumer<SpecDefinition<S>, ? super M>> invariants;
+
+    Program(Supplier<? extends S> system, Supplier<? extends M> model, List<Step<S, M, ?>> steps,
+            List<BiConsumer<SpecDefinition<S>, ? super M>> invariants) {
+      this.system = system;
+      this.model = model;
+      this.steps = steps;
+      this.invariants = invariants;
+    }
+
+    void run() {
+      SpecDefinition<S> spec = Spec.given(system.get());
+      M state = model.get();
+      for (int i = 0; i < steps.size(); i++) {
+        Step<S, M, ?> step = steps.get(i);
+        try {
+          step.run(spec, state);
+          for (BiConsumer<SpecDefinition<S>, ? super M> invariant : invariants) {
+            invariant.accept(spec, state);
+          }
+        } catch (AssertionError | RuntimeException e) {
+          throw new AssertionError(String.format("step %d of %d (%s) failed: %s", i + 1, steps.size(), step, e), e);
+        }
+      }
+    }
+
+    @Override
+    public String toString() {
+      return steps.toString();
+    }
+
+  }
+
+}
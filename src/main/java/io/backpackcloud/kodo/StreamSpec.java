@@ -0,0 +1,260 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Checks the elements of a {@link Stream} as they flow, without materializing it.
+ * <p>
+ * Elements are pulled in batches: only one batch is held in memory at a time,
+ * so the memory needed doesn't depend on the size of the stream. A failing
+ * element doesn't stop the check (unless {@link #failFast()} is used); every
+ * failure is counted in the returned {@link StreamSummary}.
+ * <p>
+ * <code>
+ * Spec.stream(repository.findAll())<br>
+ * &nbsp;&nbsp;.batchSize(10_000)<br>
+ * &nbsp;&nbsp;.onProgress(summary -&gt; log.info(summary))<br>
+ * &nbsp;&nbsp;.each(record -&gt; record.expect(Record::isValid))<br>
+ * &nbsp;&nbsp;.verify();
+ * </code>
+ * <p>
+ * The stream is consumed and closed by the terminal operations
+ * ({@link #each(Consumer)} and {@link #each(SpecPlan)}), so a StreamSpec can
+ * only be executed once.
+ *
+ * @author Marcelo Guimarães
+ * @see Spec#stream(Stream)
+ * @since 4.1
+ */
+public final class StreamSpec<T> {
+
+  private static final int DEFAULT_BATCH_SIZE = 1024;
+  private static final int MAX_REPORTED_FAILURES = 100;
+  // stops a parallel batch after a failure handed to a fail operation that didn't throw it
+  private static final RuntimeException STOP = new RuntimeException("stopped by a failure", null, false, false) {
+  };
+
+  private final Stream<T> stream;
+  private final int batchSize;
+  private final Parallelism parallelism;
+  private final boolean failFast;
+  private final Consumer<?> failOperation;
+  private final Consumer<StreamSummary> progress;
+
+  private StreamSpec(Stream<T> stream, int batchSize, Parallelism parallelism, boolean failFast,
+                     Consumer<?> failOperation, Consumer<StreamSummary> progress) {
+    this.stream = stream;
+    this.batchSize = batchSize;
+    this.parallelism = parallelism;
+    this.failFast = failFast;
+    this.failOperation = failOperation;
+    this.progress = progress;
+  }
+
+  StreamSpec(Stream<T> stream) {
+    this(stream, DEFAULT_BATCH_SIZE, null, false, Expectation.throwAssertionError(), null);
+  }
+
+  /**
+   * Sets the number of elements pulled from the stream at a time (defaults to 1024).
+   *
+   * @param size the size of the batches
+   * @return a new StreamSpec
+   */
+  public StreamSpec<T> batchSize(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size must be positive");
+    }
+    return new StreamSpec<>(stream, size, parallelism, failFast, failOperation, progress);
+  }
+
+  /**
+   * Checks the elements of each batch concurrently.
+   *
+   * @param parallelism how the elements of a batch should be checked
+   * @return a new StreamSpec
+   */
+  public StreamSpec<T> parallel(Parallelism parallelism) {
+    return new StreamSpec<>(stream, batchSize, parallelism, failFast, failOperation, progress);
+  }
+
+  /**
+   * Stops pulling elements from the stream after the first failure.
+   *
+   * @return a new StreamSpec
+   */
+  public StreamSpec<T> failFast() {
+    return new StreamSpec<>(stream, batchSize, parallelism, true, failOperation, progress);
+  }
+
+  /**
+   * Sets the default fail operation of the element specs.
+   *
+   * @param operation the operation to execute
+   * @return a new StreamSpec
+   * @see SpecDefinition#onFail(Consumer)
+   */
+  public StreamSpec<T> onFail(Consumer<?> operation) {
+    return new StreamSpec<>(stream, batchSize, parallelism, failFast, operation, progress);
+  }
+
+  /**
+   * Sets a listener that receives a summary of the check after each batch.
+   *
+   * @param listener the listener to notify
+   * @return a new StreamSpec
+   */
+  public StreamSpec<T> onProgress(Consumer<StreamSummary> listener) {
+    return new StreamSpec<>(stream, batchSize, parallelism, failFast, failOperation, listener);
+  }
+
+  /**
+   * Checks every element of the stream using the given spec.
+   *
+   * @param spec the spec to execute for each element
+   * @return the summary of the check
+   */
+  public StreamSummary each(Consumer<SpecDefinition<T>> spec) {
+    return run(element -> DefaultSpecDefinition.run("", element, failOperation, spec));
+  }
+
+  /**
+   * Checks every element of the stream using the given plan. The fail operation
+   * defined by {@link #onFail(Consumer)} is ignored, use
+   * {@link SpecPlan#onFail(Consumer)} instead.
+   *
+   * @param plan the plan to execute for each element
+   * @return the summary of the check
+   */
+  public StreamSummary each(SpecPlan<T> plan) {
+    return run(plan::run);
+  }
+
+  private StreamSummary run(Consumer<T> check) {
+    Run run = new Run();
+    try (Stream<T> elements = stream) {
+      Spliterator<T> spliterator = elements.spliterator();
+      List<T> batch = new ArrayList<>(Math.min(batchSize, DEFAULT_BATCH_SIZE));
+      Consumer<T> add = batch::add;
+      while (!run.stopped) {
+        batch.clear();
+        while (batch.size() < batchSize && spliterator.tryAdvance(add)) {
+          // fills the batch
+        }
+        if (batch.isEmpty()) {
+          break;
+        }
+        if (parallelism == null) {
+          run.checkEach(batch, check);
+        } else {
+          run.checkAll(batch, check);
+        }
+        if (progress != null) {
+          progress.accept(run.summary());
+        }
+      }
+    }
+    return run.summary();
+  }
+
+  private class Run {
+
+    private final long start = System.nanoTime();
+    private final List<Throwable> failures = new ArrayList<>();
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean stopped;
+
+    /**
+     * Evaluates an element, counting it as failed if its spec handed a
+     * failure to a fail operation, even if the operation didn't throw it.
+     */
+    private void check(Consumer<T> check, T element) {
+      checked.increment();
+      int count;
+      try {
+        count = DefaultSpecDefinition.failures(check, element);
+      } catch (AssertionError | RuntimeException e) {
+        failed.increment();
+        throw e;
+      }
+      if (count > 0) {
+        failed.increment();
+        if (failFast) {
+          stopped = true;
+          throw STOP;
+        }
+      }
+    }
+
+    void checkEach(List<T> batch, Consumer<T> check) {
+      for (T element : batch) {
+        try {
+          check(check, element);
+        } catch (AssertionError | RuntimeException e) {
+          report(e);
+          if (failFast) {
+            stopped = true;
+          }
+        }
+        if (stopped) {
+          return;
+        }
+      }
+    }
+
+    void checkAll(List<T> batch, Consumer<T> check) {
+      try {
+        (failFast ? parallelism.failFast() : parallelism).execute(batch, element -> check(check, element));
+      } catch (MultipleFailuresError error) {
+        for (Throwable failure : error.failures()) {
+          report(failure);
+        }
+        if (failFast) {
+          stopped = true;
+        }
+      }
+    }
+
+    private void report(Throwable failure) {
+      if (failure != STOP && failures.size() < MAX_REPORTED_FAILURES) {
+        failures.add(failure);
+      }
+    }
+
+    StreamSummary summary() {
+      return new StreamSummary(checked.sum(), failed.sum(), System.nanoTime() - start, new ArrayList<>(failures));
+    }
+
+  }
+
+}
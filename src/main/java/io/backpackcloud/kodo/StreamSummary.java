@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A summary of the elements checked by a {@link StreamSpec}.
+ *
+ * @author Marcelo Guimarães
+ * @since 4.1
+ */
+public class StreamSummary {
+
+  private final long checked;
+  private final long failed;
+  private final long elapsedNanos;
+  private final List<Throwable> failures;
+
+  StreamSummary(long checked, long failed, long elapsedNanos, List<Throwable> failures) {
+    this.checked = checked;
+    this.failed = failed;
+    this.elapsedNanos = elapsedNanos;
+    this.failures = Collections.unmodifiableList(failures);
+  }
+
+  /**
+   * @return the number of checked elements
+   */
+  public long checked() {
+    return checked;
+  }
+
+  /**
+   * @return the number of elements that failed
+   */
+  public long failed() {
+    return failed;
+  }
+
+  /**
+   * @return the time spent checking the elements, in nanoseconds
+   */
+  public long elapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * @return the number of elements checked per second
+   */
+  public double throughput() {
+    return elapsedNanos == 0 ? 0 : checked * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+
+  /**
+   * @return the first failures (the number of kept failures is bounded)
+   */
+  public List<Throwable> failures() {
+    return failures;
+  }
+
+  /**
+   * Reports the failures, if any.
+   *
+   * @throws MultipleFailuresError if any element failed
+   */
+  public void verify() {
+    if (failed > 0) {
+      throw new MultipleFailuresError(String.format("%d of %d elements failed", failed, checked), failures, failed);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d checked, %d failed in %d ms (%.0f elements/s)",
+        checked, failed, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), throughput());
+  }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Defines how a shared target is stressed by concurrent actors.
+ * <p>
+ * In each iteration, every thread runs one of the actors (the actors are assigned
+ * to the threads in turns) against the same target. The threads are released
+ * together by a barrier and wait a random number of spins before acting, so the
+ * interleavings change from one iteration to another. Between iterations, the
+ * outcome of the target is observed and the target can be reset.
+ * <p>
+ * <code>
+ * Spec.given(new Counter())<br>
+ * &nbsp;&nbsp;.concurrently(Stress.&lt;Counter&gt;of(Counter::increment, Counter::increment)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.iterations(100_000)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.reset(Counter::reset)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.observe(Counter::value)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.forbid(1)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.onReport(System.out::println));
+ * </code>
+ * <p>
+ * Instances are immutable.
+ *
+ * @author Marcelo Guimarães
+ * @see SpecDefinition#concurrently(Stress)
+ * @since 4.1
+ */
+public final class Stress<T> {
+
+  private static final int DEFAULT_ITERATIONS = 10_000;
+  private static final int DEFAULT_SPIN = 64;
+
+  private static volatile int sink;
+
+  private final Consumer<? super T>[] actors;
+  private final int threads;
+  private final int iterations;
+  private final int spin;
+  private final Consumer<? super T> reset;
+  private final Function<? super T, ?> observer;
+  private final Set<Object> forbidden;
+  private final Consumer<StressReport> reportConsumer;
+
+  private Stress(Consumer<? super T>[] actors, int threads, int iterations, int spin, Consumer<? super T> reset,
+                 Function<? super T, ?> observer, Set<Object> forbidden, Consumer<StressReport> reportConsumer) {
+    this.actors = actors;
+    this.threads = threads;
+    this.iterations = iterations;
+    this.spin = spin;
+    this.reset = reset;
+    this.observer = observer;
+    this.forbidden = forbidden;
+    this.reportConsumer = reportConsumer;
+  }
+
+  /**
+   * Creates a stress definition with the given actors, each one in its own thread.
+   *
+   * @param actors the operations to run concurrently against the target
+   * @param <T>    the type of the target
+   * @return a new Stress
+   */
+  @SafeVarargs
+  public static <T> Stress<T> of(Consumer<? super T>... actors) {
+    if (actors.length == 0) {
+      throw new IllegalArgumentException("at least one actor is required");
+    }
+    return new Stress<>(actors.clone(), actors.length, DEFAULT_ITERATIONS, DEFAULT_SPIN,
+        target -> {
+        }, null, Collections.emptySet(), report -> {
+    });
+  }
+
+  /**
+   * Sets the number of threads. If there are more threads than actors, some actors
+   * run in more than one thread.
+   *
+   * @param threads the number of threads
+   * @return a new Stress
+   */
+  public Stress<T> threads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+    return new Stress<>(actors, threads, iterations, spin, reset, observer, forbidden, reportConsumer);
+  }
+
+  /**
+   * Sets the number of iterations (defaults to {@value #DEFAULT_ITERATIONS}).
+   *
+   * @param iterations the number of times the actors run
+   * @return a new Stress
+   */
+  public Stress<T> iterations(int iterations) {
+    if (iterations < 1) {
+      throw new IllegalArgumentException("iterations must be positive");
+    }
+    return new Stress<>(actors, threads, iterations, spin, reset, observer, forbidden, reportConsumer);
+  }
+
+  /**
+   * Sets the maximum number of spins a thread waits before running its actor
+   * (defaults to {@value #DEFAULT_SPIN}). Use 0 to start the actors as close as
+   * possible.
+   *
+   * @param spin the maximum number of spins
+   * @return a new Stress
+   */
+  public Stress<T> spin(int spin) {
+    if (spin < 0) {
+      throw new IllegalArgumentException("spin must not be negative");
+    }
+    return new Stress<>(actors, threads, iterations, spin, reset, observer, forbidden, reportConsumer);
+  }
+
+  /**
+   * Sets an operation to reset the target before each iteration.
+   *
+   * @param reset the operation that resets the target
+   * @return a new Stress
+   */
+  public Stress<T> reset(Consumer<? super T> reset) {
+    return new Stress<>(actors, threads, iterations, spin, reset, observer, forbidden, reportConsumer);
+  }
+
+  /**
+   * Sets a function to observe the outcome of the target after each iteration.
+   * The outcomes are counted in the {@link StressReport}.
+   *
+   * @param observer the function that observes the target
+   * @return a new Stress
+   */
+  public Stress<T> observe(Function<? super T, ?> observer) {
+    return new Stress<>(actors, threads, iterations, spin, reset, observer, forbidden, reportConsumer);
+  }
+
+  /**
+   * Sets outcomes that must never be observed. If any of them is, the fail
+   * operation receives the {@link StressReport}.
+   *
+   * @param outcomes the forbidden outcomes
+   * @return a new Stress
+   */
+  public Stress<T> forbid(Object... outcomes) {
+    Set<Object> result = new HashSet<>(forbidden);
+    result.addAll(Arrays.asList(outcomes));
+    return new Stress<>(actors, threads, iterations, spin, reset, observer, result, reportConsumer);
+  }
+
+  /**
+   * Sets an operation to receive the report of the run, even if it passes.
+   *
+   * @param consumer the operation to receive the report
+   * @return a new Stress
+   */
+  public Stress<T> onReport(Consumer<StressReport> consumer) {
+    return new Stress<>(actors, threads, iterations, spin, reset, observer, forbidden, consumer);
+  }
+
+  StressReport run(T target) {
+    Map<Object, Long> outcomes = new LinkedHashMap<>();
+    int[] trip = new int[1];
+    CyclicBarrier barrier = new CyclicBarrier(threads, () -> {
+      // runs in the last thread to arrive, while the others wait
+      if (trip[0] > 0 && observer != null) {
+        outcomes.merge(observer.apply(target), 1L, Long::sum);
+      }
+      if (trip[0] < iterations) {
+        reset.accept(target);
+      }
+      trip[0]++;
+    });
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      Consumer<? super T> actor = actors[i % actors.length];
+      workers[i] = new Thread(() -> act(target, actor, barrier, error), "kodo-stress-" + i);
+      workers[i].start();
+    }
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        record(error, e);
+        barrier.reset();
+      }
+    }
+    Throwable failure = error.get();
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new IllegalStateException(failure);
+    }
+    StressReport report = new StressReport(iterations, threads, outcomes, forbidden);
+    reportConsumer.accept(report);
+    return report;
+  }
+
+  private void act(T target, Consumer<? super T> actor, CyclicBarrier barrier, AtomicReference<Throwable> error) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    try {
+      for (int i = 0; i < iterations; i++) {
+        barrier.await();
+        if (spin > 0) {
+          busyWait(random.nextInt(spin + 1));
+        }
+        try {
+          actor.accept(target);
+        } catch (Throwable e) {
+          record(error, e);
+        }
+      }
+      barrier.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      record(error, e);
+      barrier.reset();
+    } catch (BrokenBarrierException e) {
+      // another thread records the cause
+      record(error, e);
+    } catch (Throwable e) {
+      // thrown by the reset or the observer, in the barrier action
+      record(error, e);
+      barrier.reset();
+    }
+  }
+
+  // keeps the first error, unless it is a broken barrier and the real cause shows up later
+  private static void record(AtomicReference<Throwable> error, Throwable e) {
+    error.accumulateAndGet(e, (current, update) ->
+        current == null || (current instanceof BrokenBarrierException && !(update instanceof BrokenBarrierException)) ?
+            update : current);
+  }
+
+  private static void busyWait(int times) {
+    int value = 0;
+    for (int i = 0; i < times; i++) {
+      value += i ^ value;
+    }
+    if (value == 42) {
+      sink = value;
+    }
+  }
+
+}
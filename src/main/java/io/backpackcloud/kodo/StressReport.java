@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The outcomes observed while stressing a target.
+ *
+ * @author Marcelo Guimarães
+ * @see Stress
+ * @since 4.1
+ */
+public final class StressReport {
+
+  private final int iterations;
+  private final int threads;
+  private final Map<Object, Long> outcomes;
+  private final Set<Object> forbidden;
+
+  StressReport(int iterations, int threads, Map<Object, Long> outcomes, Set<Object> forbidden) {
+    this.iterations = iterations;
+    this.threads = threads;
+    this.forbidden = forbidden;
+    List<Map.Entry<Object, Long>> entries = new ArrayList<>(outcomes.entrySet());
+    entries.sort(Map.Entry.<Object, Long>comparingByValue().reversed());
+    Map<Object, Long> sorted = new LinkedHashMap<>();
+    entries.forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+    this.outcomes = Collections.unmodifiableMap(sorted);
+  }
+
+  /**
+   * @return the number of iterations
+   */
+  public int iterations() {
+    return iterations;
+  }
+
+  /**
+   * @return the number of threads
+   */
+  public int threads() {
+    return threads;
+  }
+
+  /**
+   * @return how many times each outcome was observed, the most frequent first
+   */
+  public Map<Object, Long> outcomes() {
+    return outcomes;
+  }
+
+  /**
+   * @param outcome the outcome to look for
+   * @return how many times the given outcome was observed
+   */
+  public long count(Object outcome) {
+    return outcomes.getOrDefault(outcome, 0L);
+  }
+
+  /**
+   * @return {@code true} if no forbidden outcome was observed
+   */
+  public boolean passed() {
+    for (Object outcome : forbidden) {
+      if (outcomes.containsKey(outcome)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder(String.format("%d outcomes in %d iterations with %d threads",
+        outcomes.size(), iterations, threads));
+    outcomes.forEach((outcome, count) -> result
+        .append(System.lineSeparator())
+        .append(String.format("  %s: %d (%.2f%%)%s", outcome, count, count * 100.0 / iterations,
+            forbidden.contains(outcome) ? " FORBIDDEN" : "")));
+    return result.toString();
+  }
+
+}
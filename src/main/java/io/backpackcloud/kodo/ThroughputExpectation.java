@@ -0,0 +1,255 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * A measurement of the throughput of an operation executed from many threads.
+ * <p>
+ * The operation is executed by each thread, in a loop, for a duration (one second
+ * by default) or until a total number of operations is reached, and the aggregate
+ * throughput must be at least the required one. The operation must be thread safe.
+ * <p>
+ * <code>
+ * Spec.given(cache)<br>
+ * &nbsp;&nbsp;.expect(doing(cache -&gt; cache.get("key")), to().sustainThroughput(50_000, perSecond())<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.withThreads(8)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.warmup(Duration.ofSeconds(1))<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.during(Duration.ofSeconds(5)));
+ * </code>
+ * <p>
+ * On failure, the fail operation receives the {@link ThroughputReport}, with the
+ * throughput of each thread and the latencies, corrected for coordinated omission.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author Marcelo Guimarães
+ * @see Expectation#sustainThroughput(long, Duration)
+ * @since 4.1
+ */
+public final class ThroughputExpectation extends Measurement {
+
+  private final double required;
+  private final int threads;
+  private final long duration;
+  private final long operations;
+  private final long warmup;
+  private final Consumer<ThroughputReport> observer;
+
+  private ThroughputExpectation(boolean negate, double required, int threads, long duration, long operations,
+                                long warmup, Consumer<ThroughputReport> observer) {
+    super(negate);
+    this.required = required;
+    this.threads = threads;
+    this.duration = duration;
+    this.operations = operations;
+    this.warmup = warmup;
+    this.observer = observer;
+  }
+
+  ThroughputExpectation(long operations, Duration per, boolean negate) {
+    this(negate, operations * (double) TimeUnit.SECONDS.toNanos(1) / per.toNanos(), 1, TimeUnit.SECONDS.toNanos(1), 0, 0,
+        report -> {
+        });
+  }
+
+  /**
+   * Executes the operation from the given number of threads.
+   *
+   * @param threads the number of threads
+   * @return a new ThroughputExpectation
+   */
+  public ThroughputExpectation withThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+    return new ThroughputExpectation(negate(), required, threads, duration, operations, warmup, observer);
+  }
+
+  /**
+   * Executes the operation for the given duration.
+   *
+   * @param duration how long the operation is measured
+   * @return a new ThroughputExpectation
+   */
+  public ThroughputExpectation during(Duration duration) {
+    return new ThroughputExpectation(negate(), required, threads, duration.toNanos(), 0, warmup, observer);
+  }
+
+  /**
+   * Executes the operation the given number of times, shared by all threads.
+   *
+   * @param operations the total number of measured operations
+   * @return a new ThroughputExpectation
+   */
+  public ThroughputExpectation operations(long operations) {
+    if (operations < 1) {
+      throw new IllegalArgumentException("operations must be positive");
+    }
+    return new ThroughputExpectation(negate(), required, threads, 0, operations, warmup, observer);
+  }
+
+  /**
+   * Executes the operation for the given duration before measuring it.
+   *
+   * @param warmup how long the operation is executed without being measured
+   * @return a new ThroughputExpectation
+   */
+  public ThroughputExpectation warmup(Duration warmup) {
+    return new ThroughputExpectation(negate(), required, threads, duration, operations, warmup.toNanos(), observer);
+  }
+
+  /**
+   * Sets an operation to receive the report of every measurement, even the ones
+   * that pass.
+   *
+   * @param observer the operation to receive the reports
+   * @return a new ThroughputExpectation
+   */
+  public ThroughputExpectation onReport(Consumer<ThroughputReport> observer) {
+    return new ThroughputExpectation(negate(), required, threads, duration, operations, warmup, observer);
+  }
+
+  @Override
+  Object measure(Runnable operation) {
+    Load load = new Load(operation);
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      int index = i;
+      workers[i] = new Thread(() -> load.drive(index), "kodo-throughput-" + i);
+      workers[i].start();
+    }
+    long start = load.start();
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        load.error.compareAndSet(null, e);
+        load.stopped = true;
+      }
+    }
+    long elapsed = load.end.get() - start;
+    Throwable error = load.error.get();
+    if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    } else if (error instanceof Error) {
+      throw (Error) error;
+    } else if (error != null) {
+      throw new IllegalStateException(error);
+    }
+    LatencyHistogram latency = new LatencyHistogram();
+    long total = 0;
+    for (int i = 0; i < threads; i++) {
+      latency.add(load.histograms[i]);
+      total += load.counts[i];
+    }
+    ThroughputReport report = new ThroughputReport(required, total, elapsed, load.counts, load.elapsed, latency);
+    observer.accept(report);
+    return report.throughput() >= required ? null : report;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("sustain %.0f ops/s in %d threads", required, threads);
+  }
+
+  private class Load {
+
+    private final Runnable operation;
+    private final CountDownLatch ready = new CountDownLatch(threads);
+    private final CountDownLatch go = new CountDownLatch(1);
+    private final AtomicLong remaining = new AtomicLong(operations);
+    private final AtomicLong end = new AtomicLong();
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private final LatencyHistogram[] histograms = new LatencyHistogram[threads];
+    private final long[] counts = new long[threads];
+    private final long[] elapsed = new long[threads];
+    // the interval between operations of a thread that sustains the required throughput
+    private final long expectedInterval = (long) (threads * TimeUnit.SECONDS.toNanos(1) / required);
+
+    private volatile long warmupEnd;
+    private volatile long measureEnd;
+    private volatile boolean stopped;
+
+    Load(Runnable operation) {
+      this.operation = operation;
+    }
+
+    long start() {
+      try {
+        ready.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        stopped = true;
+      }
+      long now = System.nanoTime();
+      warmupEnd = now + warmup;
+      measureEnd = warmupEnd + duration;
+      go.countDown();
+      return warmupEnd;
+    }
+
+    void drive(int index) {
+      LatencyHistogram histogram = new LatencyHistogram();
+      histograms[index] = histogram;
+      ready.countDown();
+      try {
+        go.await();
+        while (!stopped && System.nanoTime() - warmupEnd < 0) {
+          operation.run();
+        }
+        long count = 0;
+        long start = System.nanoTime();
+        long now = start;
+        while (!stopped && hasNext(now)) {
+          operation.run();
+          long finish = System.nanoTime();
+          histogram.record(finish - now, expectedInterval);
+          now = finish;
+          count++;
+        }
+        counts[index] = count;
+        elapsed[index] = now - start;
+        end.accumulateAndGet(now, Math::max);
+      } catch (Throwable e) {
+        error.compareAndSet(null, e);
+        stopped = true;
+      }
+    }
+
+    private boolean hasNext(long now) {
+      return operations > 0 ? remaining.getAndDecrement() > 0 : now - measureEnd < 0;
+    }
+
+  }
+
+}
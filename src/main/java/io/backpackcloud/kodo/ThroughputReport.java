@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a throughput measurement.
+ *
+ * @author Marcelo Guimarães
+ * @see ThroughputExpectation
+ * @since 4.1
+ */
+public final class ThroughputReport {
+
+  private final double required;
+  private final long operations;
+  private final long elapsed;
+  private final long[] threadOperations;
+  private final long[] threadElapsed;
+  private final LatencyHistogram latency;
+
+  ThroughputReport(double required, long operations, long elapsed, long[] threadOperations, long[] threadElapsed,
+                   LatencyHistogram latency) {
+    this.required = required;
+    this.operations = operations;
+    this.elapsed = elapsed;
+    this.threadOperations = threadOperations;
+    this.threadElapsed = threadElapsed;
+    this.latency = latency;
+  }
+
+  /**
+   * @return the required throughput, in operations per second
+   */
+  public double required() {
+    return required;
+  }
+
+  /**
+   * @return the number of measured operations, in all threads
+   */
+  public long operations() {
+    return operations;
+  }
+
+  /**
+   * @return the elapsed time of the measurement, in nanoseconds
+   */
+  public long elapsedNanos() {
+    return elapsed;
+  }
+
+  /**
+   * @return the aggregate throughput, in operations per second
+   */
+  public double throughput() {
+    return rate(operations, elapsed);
+  }
+
+  /**
+   * @return the throughput of each thread, in operations per second
+   */
+  public double[] threadThroughput() {
+    double[] result = new double[threadOperations.length];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = rate(threadOperations[i], threadElapsed[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the latencies of the operations, in nanoseconds, corrected for
+   * coordinated omission: an operation that takes longer than the expected
+   * interval between operations (given by the required throughput) also
+   * accounts for the operations that should have been started meanwhile.
+   *
+   * @return the latencies of the operations
+   */
+  public LatencyHistogram latency() {
+    return latency;
+  }
+
+  private static double rate(long operations, long nanos) {
+    return nanos == 0 ? 0 : operations * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder threads = new StringBuilder();
+    for (double value : threadThroughput()) {
+      if (threads.length() > 0) {
+        threads.append(", ");
+      }
+      threads.append(String.format("%.0f", value));
+    }
+    return String.format("%.0f ops/s (required %.0f ops/s) in %d threads [%s], latency %s",
+        throughput(), required, threadOperations.length, threads, latency);
+  }
+
+}
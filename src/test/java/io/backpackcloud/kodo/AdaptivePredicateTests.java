@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link Expectation#satisfyAll(Predicate[])} and {@link Expectation#satisfyAny(Predicate[])}
+ */
+public class AdaptivePredicateTests {
+
+  private static Predicate<Integer> slow(Predicate<Integer> predicate, AtomicLong calls) {
+    return value -> {
+      calls.incrementAndGet();
+      double x = value;
+      for (int i = 0; i < 2_000; i++) {
+        x = Math.sqrt(x + i);
+      }
+      return x >= 0 && predicate.test(value);
+    };
+  }
+
+  @Test
+  public void testResults() {
+    Predicate<Integer> all = to().satisfyAll(i -> i > 0, i -> i < 10);
+    Predicate<Integer> any = to().satisfyAny(i -> i < 0, i -> i > 10);
+    for (int i = -20; i <= 20; i++) {
+      assertEquals(i > 0 && i < 10, all.test(i));
+      assertEquals(i < 0 || i > 10, any.test(i));
+    }
+    assertTrue(to().not().<Integer>satisfyAll(i -> i > 0, i -> i < 10).test(20));
+  }
+
+  @Test
+  public void testCheapSelectiveChecksFirst() {
+    AtomicLong slowCalls = new AtomicLong();
+    AdaptivePredicate<Integer> all = (AdaptivePredicate<Integer>) to().<Integer>satisfyAll(
+        slow(i -> true, slowCalls), i -> i % 2 == 0);
+    for (int i = 0; i < 20_000; i++) {
+      all.test(i);
+    }
+
+    assertArrayEquals(new int[]{1, 0}, all.order());
+    // after the reordering, the slow predicate only sees the even values
+    assertTrue(slowCalls.get() < 12_000);
+  }
+
+  @Test
+  public void testAcceptingChecksFirstForAny() {
+    AtomicLong slowCalls = new AtomicLong();
+    AdaptivePredicate<Integer> any = (AdaptivePredicate<Integer>) to().<Integer>satisfyAny(
+        slow(i -> false, slowCalls), i -> i % 4 != 0);
+    for (int i = 0; i < 20_000; i++) {
+      any.test(i);
+    }
+
+    assertArrayEquals(new int[]{1, 0}, any.order());
+  }
+
+  @Test
+  public void testOrderHoldsForSimilarPredicates() {
+    AdaptivePredicate<Integer> all = (AdaptivePredicate<Integer>) to().<Integer>satisfyAll(
+        i -> i >= 0, i -> i < Integer.MAX_VALUE, i -> i % 2 == 0);
+    for (int i = 0; i < 50_000; i++) {
+      all.test(i);
+    }
+    int[] order = all.order();
+    assertEquals(2, order[0]);
+
+    for (int i = 0; i < 200_000; i++) {
+      all.test(i);
+    }
+    assertArrayEquals(order, all.order());
+  }
+
+  @Test
+  public void testReportingTheRejectingPredicates() {
+    try {
+      Spec.given(15)
+          .expect(i -> i, to().satisfyAll(i -> i > 0, i -> i < 10, i -> i % 2 == 0));
+      fail();
+    } catch (AssertionError e) {
+      assertEquals(1, e.getSuppressed().length);
+      assertEquals("rejected by predicate(s) [2, 3] of 3", e.getSuppressed()[0].getMessage());
+    }
+  }
+
+  @Test
+  public void testReportingTheAcceptingPredicatesWhenNegated() {
+    try {
+      Spec.given(15)
+          .expect(i -> i, to().not().satisfyAny(i -> i < 0, i -> i > 10, i -> i % 5 == 0));
+      fail();
+    } catch (AssertionError e) {
+      assertEquals(1, e.getSuppressed().length);
+      assertEquals("accepted by predicate(s) [2, 3] of 3", e.getSuppressed()[0].getMessage());
+    }
+    assertTrue(to().not().<Integer>satisfyAll(i -> i > 0, i -> i < 10).test(15));
+    assertFalse(to().not().<Integer>satisfyAll(i -> i > 0, i -> i < 10).test(5));
+  }
+
+  @Test
+  public void testExplainingToFailureHandlers() {
+    FailureCollector failures = FailureCollector.create();
+    Spec.given(15)
+        .onFail(failures)
+        .expect(i -> i, to().satisfyAll(i -> i > 0, i -> i < 10, i -> i % 2 == 0))
+        .expect(i -> i, to().not().satisfyAll(i -> i > 0, i -> i < 20));
+
+    assertEquals(2, failures.count());
+    assertEquals("rejected by predicate(s) [2, 3] of 3", failures.failures().get(0).explanation());
+    assertEquals("accepted by all of the 2 predicates", failures.failures().get(1).explanation());
+  }
+
+  @Test
+  public void testSpecs() {
+    Spec.given(5)
+        .expect(i -> i, to().satisfyAll(i -> i > 0, i -> i < 10))
+        .expect(i -> i, to().satisfyAny(i -> i < 0, i -> i == 5));
+    assertFalse(to().<Integer>satisfyAny(i -> i < 0).test(5));
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static io.backpackcloud.kodo.Expectation.doing;
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests for {@link Expectation#allocateAtMost(long)}
+ */
+public class AllocationTests {
+
+  private final List<Object> sink = new ArrayList<>();
+
+  @Before
+  public void checkSupport() {
+    assumeTrue(AllocationExpectation.isSupported());
+  }
+
+  @Test
+  public void testNonAllocatingOperation() {
+    Consumer<int[]> increment = array -> array[0]++;
+    Spec.given(new int[1])
+        .expect(increment, to().allocateAtMost(0));
+  }
+
+  @Test
+  public void testAllocatingOperation() {
+    try {
+      Spec.given(sink)
+          .expect(doing(list -> {
+            list.clear();
+            return list.add(new byte[1024]);
+          }), to().allocateAtMost(512).warmup(100).iterations(100));
+      fail();
+    } catch (AssertionError error) {
+      assertTrue(error.getMessage(), error.getMessage().matches("for value: allocated \\d+\\.\\d bytes/op \\(expected at most 512 bytes/op\\)"));
+    }
+  }
+
+  @Test
+  public void testAverage() {
+    int[] runs = new int[1];
+    Spec.given(sink)
+        .expect(doing(list -> {
+          // allocates once every 100 executions
+          if (++runs[0] % 100 == 0) {
+            list.clear();
+            list.add(new byte[1024]);
+          }
+          return list;
+        }), to().allocateAtMost(64).warmup(0).iterations(1000));
+    assertEquals(1000, runs[0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidIterations() {
+    to().allocateAtMost(10).iterations(0);
+  }
+
+}
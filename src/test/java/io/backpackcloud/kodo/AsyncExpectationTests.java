@@ -0,0 +1,227 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link SpecDefinition#expectAsync(java.util.function.Function, java.util.function.Predicate, Duration)}
+ */
+public class AsyncExpectationTests {
+
+  private final Executor executor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable);
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private CompletionStage<Integer> later(int value, long millis) {
+    return CompletableFuture.supplyAsync(() -> {
+      sleep(millis);
+      return value;
+    }, executor);
+  }
+
+  @Test
+  public void testPassing() {
+    Spec.given(21)
+        .expectAsync(i -> later(i * 2, 10), to().be(42))
+        .expectAsync(i -> later(i, 10), to().be(21))
+        .await();
+  }
+
+  @Test
+  public void testDoesNotBlock() {
+    long start = System.nanoTime();
+    SpecDefinition<Integer> spec = Spec.given(1);
+    for (int i = 0; i < 50; i++) {
+      spec.expectAsync(n -> later(n, 100), to().be(1));
+    }
+    long registered = System.nanoTime() - start;
+    spec.await();
+    long elapsed = System.nanoTime() - start;
+
+    assertTrue(registered < TimeUnit.MILLISECONDS.toNanos(100));
+    // 50 operations of 100 ms each running at once
+    assertTrue(elapsed < TimeUnit.SECONDS.toNanos(5));
+  }
+
+  @Test
+  public void testCombinesFailures() {
+    try {
+      Spec.given(21)
+          .expectAsync(i -> later(i, 10), to().be(42))
+          .expectAsync(i -> later(i, 10), to().be(21))
+          .expectAsync(i -> later(i, 10), to().be(0))
+          .await();
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(2, error.count());
+      assertTrue(error.getMessage().startsWith("2 of 3 async expectations failed"));
+    }
+  }
+
+  @Test
+  public void testTimeout() {
+    try {
+      Spec.given(1)
+          .expectAsync(i -> new CompletableFuture<Integer>(), to().be(1), Duration.ofMillis(50))
+          .await();
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(1, error.count());
+      Throwable failure = error.failures().get(0);
+      assertTrue(failure.getMessage().endsWith("expectation #1 timed out after 50 ms"));
+      assertEquals("expectation #1 timed out after 50 ms", failure.getSuppressed()[0].getMessage());
+    }
+  }
+
+  @Test
+  public void testExceptionalCompletion() {
+    CompletableFuture<Integer> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("boom"));
+    try {
+      Spec.given(1)
+          .expectAsync(i -> failed, to().be(1))
+          .await();
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertTrue(error.failures().get(0).getSuppressed()[0].getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testTimeoutsReachTheFailOperation() {
+    FailureCollector collector = FailureCollector.create();
+    CompletableFuture<Integer> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("boom"));
+    Spec.given(1)
+        .onFail(collector)
+        .expectAsync(i -> new CompletableFuture<Integer>(), to().be(1), Duration.ofMillis(10))
+        .expectAsync(i -> failed, to().be(1))
+        .await();
+
+    assertEquals(2, collector.count());
+    assertEquals(1, collector.failures().get(0).index());
+    assertEquals("expectation #1 timed out after 10 ms",
+        ((Throwable) collector.failures().get(0).value()).getMessage());
+    assertTrue(((Throwable) collector.failures().get(1).value()).getCause() instanceof IllegalStateException);
+  }
+
+  @Test
+  public void testAwaitAfterOnFailAndGiven() {
+    SpecDefinition<Integer> spec = Spec.given(1);
+    SpecDefinition<Integer> other = spec
+        .expectAsync(i -> later(i, 10), to().be(2))
+        .onFail(Expectation.throwAssertionError())
+        .given(2);
+    try {
+      other.await();
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(1, error.count());
+    }
+  }
+
+  @Test
+  public void testFailuresAreHandledByTheAwaitingThread() {
+    Thread caller = Thread.currentThread();
+    CompletableFuture<Integer> stage = new CompletableFuture<>();
+    AtomicInteger failures = new AtomicInteger();
+    SpecDefinition<Integer> spec = Spec.given(1)
+        .onFail(value -> {
+          assertEquals(caller, Thread.currentThread());
+          failures.incrementAndGet();
+        })
+        .expectAsync(i -> stage, to().be(1));
+    CompletableFuture.runAsync(() -> stage.complete(2), executor).join();
+
+    assertEquals(0, failures.get());
+    spec.await();
+    assertEquals(1, failures.get());
+  }
+
+  @Test
+  public void testFailOperation() {
+    AtomicInteger failures = new AtomicInteger();
+    Spec.given(1)
+        .onFail(value -> failures.incrementAndGet())
+        .expectAsync(i -> later(i, 10), to().be(2))
+        .expectAsync(i -> later(i, 10), to().be(1))
+        .await();
+
+    assertEquals(1, failures.get());
+  }
+
+  @Test
+  public void testFailureHandlerReceivesIndex() {
+    FailureCollector collector = FailureCollector.create();
+    Spec.given(1)
+        .onFail(collector)
+        .expect(true)
+        .expectAsync(i -> later(i, 10), to().be(2))
+        .await();
+
+    assertEquals(1, collector.count());
+    assertEquals(2, collector.failures().get(0).index());
+  }
+
+  @Test
+  public void testPlan() {
+    SpecPlan<Integer> plan = Spec.plan(Integer.class)
+        .expectAsync(i -> later(i, 1), to().be(1))
+        .await();
+
+    plan.run(1);
+    try {
+      plan.run(2);
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(1, error.count());
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static io.backpackcloud.kodo.Expectation.derived;
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link Derived}
+ */
+public class DerivedTests {
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  private final Function<List<Integer>, Integer> sum = derived(list -> {
+    calls.incrementAndGet();
+    return list.stream().mapToInt(Integer::intValue).sum();
+  });
+
+  private List<Integer> list(Integer... values) {
+    List<Integer> result = new ArrayList<>();
+    for (Integer value : values) {
+      result.add(value);
+    }
+    return result;
+  }
+
+  @Test
+  public void testComputedOncePerTarget() {
+    SpecDefinition<List<Integer>> spec = Spec.given(list(1, 2, 3));
+    spec.expect(sum, to().be(6))
+        .expect(sum.andThen(s -> s * 2), to().be(12))
+        .expect(sum.andThen(s -> s > 5));
+    assertEquals(1, calls.get());
+
+    spec.given(list(4, 5))
+        .expect(sum, to().be(9))
+        .expect(sum, to().be(9));
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testGiven() {
+    SpecDefinition<List<Integer>> spec = Spec.given(list(1, 2, 3));
+    spec.expect(sum, to().be(6))
+        .given(sum)
+        .expect(Expectation.it(), to().be(6));
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testClearedWhenTargetChanges() {
+    SpecDefinition<List<Integer>> spec = Spec.given(list(1, 2, 3));
+    spec.expect(sum, to().be(6))
+        .when(list -> list.add(4))
+        .expect(sum, to().be(10))
+        .expect(sum, to().be(10))
+        .when(() -> {
+        })
+        .expect(sum, to().be(10));
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void testSharedAcrossFailOperations() {
+    SpecDefinition<List<Integer>> spec = Spec.given(list(1, 2, 3));
+    spec.expect(sum, to().be(6))
+        .onFail(Expectation.throwAssertionError())
+        .expect(sum, to().be(6));
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testClearedForFailOperationsCreatedBefore() {
+    SpecDefinition<List<Integer>> spec = Spec.given(list(1, 2, 3));
+    SpecDefinition<List<Integer>> copy = spec.onFail(Expectation.throwAssertionError());
+    copy.expect(sum, to().be(6));
+    spec.when(list -> list.add(4));
+    copy.expect(sum, to().be(10));
+    spec.expect(sum, to().be(10));
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testKeys() {
+    AtomicInteger keyed = new AtomicInteger();
+    SpecDefinition<String> spec = Spec.given("kodo");
+    for (int i = 0; i < 3; i++) {
+      spec.expect(derived("upper", (String s) -> {
+        keyed.incrementAndGet();
+        return s.toUpperCase();
+      }), to().be("KODO"));
+    }
+    assertEquals(1, keyed.get());
+  }
+
+  @Test
+  public void testBounded() {
+    DerivedValues values = new DerivedValues();
+    for (int i = 0; i < DerivedValues.CAPACITY * 2; i++) {
+      int value = i;
+      assertEquals(value, values.get(i, "target", target -> value));
+    }
+    assertEquals(DerivedValues.CAPACITY, values.size());
+    // the oldest values were evicted
+    assertEquals(-1, values.get(0, "target", target -> -1));
+    assertEquals(DerivedValues.CAPACITY * 2 - 1, values.get(DerivedValues.CAPACITY * 2 - 1, "target", target -> -1));
+    values.clear();
+    assertEquals(0, values.size());
+  }
+
+  @Test
+  public void testOutsideSpecs() {
+    assertEquals(Integer.valueOf(3), sum.apply(list(1, 2)));
+    assertEquals(Integer.valueOf(3), sum.apply(list(1, 2)));
+    assertEquals(2, calls.get());
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link Expectation#eventually(Duration)}
+ */
+public class EventuallyTests {
+
+  private final AtomicInteger counter = new AtomicInteger();
+
+  @Test
+  public void testPollsUntilSatisfied() {
+    Spec.given(counter)
+        .expect(AtomicInteger::incrementAndGet, to().eventually(Duration.ofSeconds(5)).be(5));
+
+    assertEquals(5, counter.get());
+  }
+
+  @Test
+  public void testSupplier() {
+    Spec.begin()
+        .expect(counter::incrementAndGet, to().eventually(Duration.ofSeconds(5)).be(3));
+
+    assertEquals(3, counter.get());
+  }
+
+  @Test
+  public void testNegation() {
+    Spec.given(counter)
+        .expect(AtomicInteger::incrementAndGet, to().eventually(Duration.ofSeconds(5)).not().be(1))
+        .expect(AtomicInteger::incrementAndGet, to().not().eventually(Duration.ofSeconds(5)).be(3));
+
+    // 1 fails, 2 passes, 3 fails, 4 passes
+    assertEquals(4, counter.get());
+  }
+
+  @Test
+  public void testReportsAttempts() {
+    long start = System.nanoTime();
+    try {
+      Spec.given(counter)
+          .expect(AtomicInteger::incrementAndGet, to().eventually(Duration.ofMillis(200)).be(-1));
+      fail();
+    } catch (AssertionError error) {
+      long elapsed = System.nanoTime() - start;
+      assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(200));
+      assertEquals(1, error.getSuppressed().length);
+      assertTrue(error.getSuppressed()[0].getMessage()
+          .startsWith("not satisfied after " + counter.get() + " attempts in "));
+    }
+    // the backoff avoids a busy loop: 10 ms doubling up to 200 ms
+    assertTrue(counter.get() > 1);
+    assertTrue(counter.get() < 20);
+  }
+
+  @Test
+  public void testRetriesExceptions() {
+    Spec.given(counter)
+        .expect(c -> {
+          if (c.incrementAndGet() < 3) {
+            throw new IllegalStateException();
+          }
+          return c.get();
+        }, to().eventually(Duration.ofSeconds(5)).be(3));
+  }
+
+  @Test
+  public void testRethrowsLastException() {
+    try {
+      Spec.given(counter)
+          .expect(c -> {
+            throw new IllegalStateException("not ready");
+          }, to().eventually(Duration.ofMillis(50)).be(1));
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("not ready", e.getMessage());
+      assertEquals(1, e.getSuppressed().length);
+    }
+  }
+
+  @Test
+  public void testFailOperation() {
+    AtomicInteger failures = new AtomicInteger();
+    Spec.given(counter)
+        .onFail(value -> failures.incrementAndGet())
+        .expect(AtomicInteger::get, to().eventually(Duration.ofMillis(50)).be(1));
+
+    assertEquals(1, failures.get());
+  }
+
+  @Test
+  public void testSingleEvaluationOutsideExpect() {
+    assertTrue(to().eventually(Duration.ofSeconds(5)).be(1).test(1));
+    assertTrue(to().eventually(Duration.ofSeconds(5)).be(1).negate().test(2));
+  }
+
+}
@@ -29,14 +29,18 @@ import org.junit.Test;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import static junit.framework.TestCase.assertSame;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -180,6 +184,76 @@ public class ExpectationTests {
     assertSame(consumer, otherwise(consumer));
   }
 
+  @Test
+  public void testBeBetween() {
+    assertTrue(to().beBetween(1, 3).test(1));
+    assertTrue(to().beBetween(1, 3).test(3));
+    assertFalse(to().beBetween(1, 3).test(4));
+    assertFalse(to().not().beBetween(1, 3).test(2));
+    assertTrue(to().not().beBetween(1, 3).test(0));
+
+    assertTrue(to().beBetween(1L, 3L).test(2L));
+    assertFalse(to().beBetween(1L, 3L).test(Long.MAX_VALUE));
+    assertTrue(to().not().beBetween(1L, 3L).test(Long.MIN_VALUE));
+
+    assertTrue(to().beBetween(0.5, 1.5).test(1.5));
+    assertFalse(to().beBetween(0.5, 1.5).test(1.6));
+    assertTrue(to().not().beBetween(0.5, 1.5).test(0.4));
+  }
+
+  @Test
+  public void testBeCloseTo() {
+    assertTrue(to().beCloseTo(1.0, 0.01).test(1.005));
+    assertTrue(to().beCloseTo(1.0, 0.01).test(0.995));
+    assertFalse(to().beCloseTo(1.0, 0.01).test(1.02));
+    assertTrue(to().not().beCloseTo(1.0, 0.01).test(1.02));
+    assertFalse(to().beCloseTo(1.0, 0.01).test(Double.NaN));
+  }
+
+  @Test
+  public void testLightweightError() {
+    try {
+      Expectation.throwLightweightError().accept("value");
+      fail();
+    } catch (LightweightAssertionError error) {
+      assertEquals(0, error.getStackTrace().length);
+      assertEquals("for value: value", error.getMessage());
+      assertSame(error.getMessage(), error.getMessage());
+    }
+    try {
+      Expectation.throwLightweightError("failed: %s").accept(1);
+      fail();
+    } catch (AssertionError error) {
+      assertEquals("failed: 1", error.getMessage());
+    }
+    try {
+      Spec.given(1).onFail(Expectation.throwLightweightError()).expect(false);
+      fail();
+    } catch (LightweightAssertionError error) {
+      assertEquals("for value: false", error.getMessage());
+    }
+  }
+
+  @Test
+  public void testLightweightMessageIsLazy() {
+    Supplier<String> message = mock(Supplier.class);
+    when(message.get()).thenReturn("message");
+    LightweightAssertionError error = new LightweightAssertionError(message);
+
+    verify(message, never()).get();
+    assertEquals("message", error.getMessage());
+    assertEquals("message", error.getMessage());
+    verify(message, times(1)).get();
+  }
+
+  @Test
+  public void testSharedInstances() {
+    assertSame(to(), to());
+    assertSame(to().not(), to().not());
+    assertSame(to().not(), to().not().not());
+    assertSame(Expectation.throwAssertionError(), Expectation.throwAssertionError());
+  }
+
   @Test
   public void testExec() {
     Function function = mock(Function.class);
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.backpackcloud.kodo.Expectation.it;
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link FailureCollector}
+ */
+public class FailureCollectorTests {
+
+  private final FailureCollector collector = FailureCollector.create();
+
+  @Test
+  public void testCollectsInsteadOfThrowing() {
+    Object target = new Object();
+
+    Spec.describe("soft spec")
+        .given(target)
+        .onFail(collector)
+        .expect(o -> 1, to().be(2))
+        .expect(true)
+        .expect(false)
+        .expectInt(o -> 3, to().beBetween(0, 2));
+
+    assertEquals(3, collector.count());
+    List<Failure> failures = collector.failures();
+
+    assertEquals(1, failures.get(0).index());
+    assertEquals(1, failures.get(0).value());
+    assertEquals("soft spec", failures.get(0).description());
+    assertSame(target, failures.get(0).target());
+
+    assertEquals(3, failures.get(1).index());
+    assertEquals(false, failures.get(1).value());
+
+    assertEquals(4, failures.get(2).index());
+    assertEquals(3, failures.get(2).value());
+  }
+
+  @Test
+  public void testEmpty() {
+    Spec.given(1).onFail(collector).expect(it(), to().be(1));
+
+    assertTrue(collector.isEmpty());
+    assertTrue(collector.failures().isEmpty());
+    collector.verify();
+  }
+
+  @Test
+  public void testVerify() {
+    SpecDefinition<List<Integer>> spec = Spec.describe("numbers").given(Arrays.asList(1, 2, 3));
+    spec.onFail(collector)
+        .each(Integer.class, number -> number.expect(it(), to().be(2)));
+
+    try {
+      collector.verify();
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(2, error.count());
+      assertEquals("numbers: expectation #1 for value: 1", error.failures().get(0).getMessage());
+      assertEquals("numbers: expectation #1 for value: 3", error.failures().get(1).getMessage());
+    }
+  }
+
+  @Test
+  public void testBounded() {
+    FailureCollector bounded = FailureCollector.bounded(10);
+    List<Integer> numbers = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      numbers.add(i);
+    }
+
+    Spec.given(numbers)
+        .onFail(bounded)
+        .parallelEach(Integer.class, spec -> spec.expect(false));
+
+    assertEquals(1000, bounded.count());
+    assertEquals(10, bounded.failures().size());
+  }
+
+  @Test
+  public void testWithoutContext() {
+    collector.accept("value");
+
+    Failure failure = collector.failures().get(0);
+    assertEquals("value", failure.value());
+    assertEquals("", failure.description());
+    assertEquals(0, failure.index());
+    assertNull(failure.target());
+    assertEquals("for value: value", failure.toString());
+    assertFalse(collector.isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCapacity() {
+    FailureCollector.bounded(-1);
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import jdk.jfr.Recording;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link FlightRecording} and {@link FlightRecordingSummary}
+ */
+public class FlightRecordingTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSummary() throws Exception {
+    Path file = folder.newFile("specs.jfr").toPath();
+    try (Recording recording = new Recording()) {
+      recording.start();
+      SpecDefinition<List<Integer>> spec = Spec.describe("numbers").given(Arrays.asList(1, 2, 3));
+      spec.onFail(value -> {
+      }).each(Integer.class, number -> number
+          .when(() -> {
+          })
+          .expect(n -> n > 1)
+          .expect(n -> n < 3));
+      recording.stop();
+      recording.dump(file);
+    }
+
+    FlightRecordingSummary summary = FlightRecordingSummary.read(file);
+
+    // 3 whens, 6 expectations and 2 failures
+    assertEquals(11, summary.events());
+    assertEquals("numbers", summary.slowest(10).get(0).name());
+    assertEquals(9, summary.slowest(10).get(0).count());
+    List<ResultSummary.Entry> hotSpots = summary.hotSpots(10);
+    assertEquals(2, hotSpots.size());
+    assertEquals("numbers #1", hotSpots.get(0).name());
+    assertEquals("false", hotSpots.get(0).sample());
+    assertEquals("numbers #2", hotSpots.get(1).name());
+    assertTrue(summary.toString().contains("Failure hot spots:"));
+  }
+
+  @Test
+  public void testNotListeningWhenEventsAreDisabled() {
+    try (Recording recording = new Recording()) {
+      for (String event : Arrays.asList(FlightRecording.START, FlightRecording.END, FlightRecording.WHEN,
+          FlightRecording.EXPECTATION, FlightRecording.FAILURE)) {
+        recording.disable(event);
+      }
+      recording.start();
+      Spec.given(1).expect(i -> i > 0);
+      assertEquals(null, Listeners.current());
+
+      try (Recording other = new Recording()) {
+        other.enable(FlightRecording.EXPECTATION);
+        other.start();
+        assertTrue(Listeners.current() instanceof FlightRecording);
+      }
+      assertEquals(null, Listeners.current());
+    }
+  }
+
+  @Test
+  public void testNotListeningWithoutRecordings() {
+    Spec.given(1).expect(i -> i > 0);
+    assertEquals(null, Listeners.current());
+  }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link LatencyHistogram} and {@link Expectation#completeWithin(Duration)}
+ */
+public class LatencyTests {
+
+  @Test
+  public void testHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100_000; i++) {
+      histogram.record(i * 1_000L);
+    }
+
+    assertEquals(100_000, histogram.count());
+    assertEquals(1_000, histogram.min());
+    assertEquals(100_000_000, histogram.max());
+    assertEquals(50_000_500, histogram.mean(), 0.1);
+    assertWithin(50_000_000, histogram.percentile(50));
+    assertWithin(99_000_000, histogram.percentile(99));
+    assertWithin(99_900_000, histogram.percentile(99.9));
+    assertEquals(100_000_000, histogram.percentile(100));
+  }
+
+  @Test
+  public void testSmallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 100; i++) {
+      histogram.record(i);
+    }
+    assertEquals(49, histogram.percentile(50));
+    assertEquals(98, histogram.percentile(99));
+  }
+
+  @Test
+  public void testCoordinatedOmission() {
+    long[][] cases = {{10_000_000, 1_000_000}, {1_000_000, 7}, {250_000, 1}, {999, 1_000}, {5_000, 1_000}};
+    for (long[] values : cases) {
+      LatencyHistogram corrected = new LatencyHistogram();
+      corrected.record(values[0], values[1]);
+      LatencyHistogram expected = new LatencyHistogram();
+      expected.record(values[0]);
+      for (long missing = values[0] - values[1]; missing >= values[1]; missing -= values[1]) {
+        expected.record(missing);
+      }
+
+      assertEquals(expected.count(), corrected.count());
+      assertEquals(expected.min(), corrected.min());
+      assertEquals(expected.max(), corrected.max());
+      assertEquals(expected.mean(), corrected.mean(), 0.5);
+      for (double percentile : new double[]{1, 10, 50, 90, 99, 99.9, 100}) {
+        assertEquals(expected.percentile(percentile), corrected.percentile(percentile));
+      }
+    }
+  }
+
+  @Test(timeout = 1_000)
+  public void testCoordinatedOmissionCostDoesNotDependOnMissedOperations() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 1_000; i++) {
+      histogram.record(1_000_000_000, 1);
+    }
+    assertEquals(1_000L * 1_000_000_000, histogram.count());
+  }
+
+  @Test
+  public void testAdd() {
+    LatencyHistogram first = new LatencyHistogram();
+    LatencyHistogram second = new LatencyHistogram();
+    first.record(10);
+    second.record(1_000_000);
+
+    first.add(second);
+    assertEquals(2, first.count());
+    assertEquals(10, first.min());
+    assertEquals(1_000_000, first.max());
+  }
+
+  @Test
+  public void testCompleteWithin() {
+    Spec.given(1)
+        .expect(i -> {
+        }, to().completeWithin(Duration.ofSeconds(1)));
+
+    try {
+      Spec.given(1)
+          .expect(sleeping(20), to().completeWithin(Duration.ofMillis(1)));
+      fail();
+    } catch (AssertionError error) {
+      assertTrue(error.getMessage().contains("expected at most 1.000 ms"));
+    }
+  }
+
+  @Test
+  public void testRepeatAndWarmup() {
+    AtomicInteger runs = new AtomicInteger();
+    Spec.given(runs)
+        .expect(AtomicInteger::incrementAndGet, to().completeWithin(Duration.ofSeconds(1))
+            .warmup(100)
+            .repeat(1_000)
+            .percentile(99, Duration.ofMillis(100)));
+
+    assertEquals(1_100, runs.get());
+  }
+
+  @Test
+  public void testPercentiles() {
+    AtomicInteger runs = new AtomicInteger();
+    try {
+      Spec.given(runs)
+          .expect(r -> {
+            if (r.incrementAndGet() % 10 == 0) {
+              sleep(5);
+            }
+          }, to().completeWithin(Duration.ofSeconds(1))
+              .repeat(100)
+              .percentile(50, Duration.ofMillis(1))
+              .percentile(99, Duration.ofMillis(1)));
+      fail();
+    } catch (AssertionError error) {
+      // only the p99 bound is violated
+      assertTrue(error.getMessage().startsWith("for value: p99 "));
+      assertTrue(error.getMessage().contains("100 values"));
+    }
+  }
+
+  @Test
+  public void testFailureHandlerReceivesReport() {
+    FailureCollector collector = FailureCollector.create();
+    Spec.given(1)
+        .onFail(collector)
+        .expect(sleeping(5), to().completeWithin(Duration.ofNanos(1)));
+
+    assertEquals(1, collector.count());
+    assertTrue(collector.failures().get(0).value().toString().startsWith("took "));
+  }
+
+  @Test
+  public void testNegated() {
+    FailureCollector collector = FailureCollector.create();
+    Spec.given(1)
+        .onFail(collector)
+        .expect(sleeping(5), to().not().completeWithin(Duration.ofNanos(1)))
+        .expect(sleeping(0), to().not().completeWithin(Duration.ofSeconds(10)).percentile(99, Duration.ofSeconds(10)));
+
+    assertEquals(1, collector.count());
+    assertEquals("expected not to complete within 10000.000 ms, p99 within 10000.000 ms",
+        collector.failures().get(0).value());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testCannotBeModified() {
+    to().eventually(Duration.ofSeconds(1)).completeWithin(Duration.ofSeconds(1));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(actual + " is not close to " + expected, Math.abs(actual - expected) <= expected * 0.016);
+  }
+
+  private static Consumer<Object> sleeping(long millis) {
+    return target -> sleep(millis);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
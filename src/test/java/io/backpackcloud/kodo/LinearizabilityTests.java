@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link History} and {@link LinearizabilityChecker}
+ */
+public class LinearizabilityTests {
+
+  /**
+   * A register operation: a write when the value is not null, a read otherwise.
+   */
+  private static final class Op {
+
+    private final String key;
+    private final Integer value;
+
+    Op(String key, Integer value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public String toString() {
+      return value == null ? "read(" + key + ")" : "write(" + key + ", " + value + ")";
+    }
+
+  }
+
+  // both reads and writes return the current value (0 when absent)
+  private final Model<Integer, Op, Object> register = Model.<Integer, Op, Object>of(0,
+      (state, op) -> op.value == null ? state : op.value,
+      (state, op) -> state);
+
+  private final Model<Integer, String, Object> counter = Model.<Integer, String, Object>of(0,
+      (state, op) -> state + 1,
+      (state, op) -> state + 1);
+
+  private static <I> Operation<I, Object> op(I input, Object output, long invokedAt, long returnedAt) {
+    return new Operation<>(1, input, output, null, invokedAt, returnedAt);
+  }
+
+  @SafeVarargs
+  private final <I> LinearizabilityResult check(Model<Integer, I, Object> model, Operation<I, Object>... operations) {
+    return new LinearizabilityChecker<>(model).check(Arrays.asList(operations));
+  }
+
+  @Test
+  public void testSequentialHistory() {
+    assertTrue(check(register,
+        op(new Op("a", 1), 0, 0, 10),
+        op(new Op("a", null), 1, 20, 30)).isLinearizable());
+  }
+
+  @Test
+  public void testConcurrentOperations() {
+    // the read overlaps the write, so both values are valid
+    assertTrue(check(register,
+        op(new Op("a", 1), 0, 0, 10),
+        op(new Op("a", null), 0, 5, 15)).isLinearizable());
+    assertTrue(check(register,
+        op(new Op("a", 1), 0, 0, 10),
+        op(new Op("a", null), 1, 5, 15)).isLinearizable());
+  }
+
+  @Test
+  public void testStaleRead() {
+    LinearizabilityResult result = check(register,
+        op(new Op("a", 1), 0, 0, 10),
+        op(new Op("a", null), 0, 20, 30));
+
+    assertFalse(result.isLinearizable());
+    assertEquals("read(a)", result.operation().input().toString());
+    assertTrue(result.toString().startsWith("not linearizable: [thread 1] read(a) -> 0 can't be linearized"));
+  }
+
+  @Test
+  public void testLostUpdate() {
+    assertFalse(check(counter,
+        op("increment", 1, 0, 10),
+        op("increment", 1, 5, 15)).isLinearizable());
+    assertTrue(check(counter,
+        op("increment", 2, 0, 10),
+        op("increment", 1, 5, 15)).isLinearizable());
+  }
+
+  @Test
+  public void testPartitions() {
+    Model<Integer, Op, Object> model = register.partitionedBy(op -> op.key);
+    LinearizabilityResult result = check(model,
+        op(new Op("a", 1), 0, 0, 10),
+        op(new Op("b", 2), 0, 0, 10),
+        op(new Op("a", null), 1, 20, 30),
+        op(new Op("b", null), 2, 20, 30));
+
+    assertTrue(result.isLinearizable());
+    assertEquals(2, result.partitions());
+    assertEquals(4, result.operations());
+  }
+
+  @Test
+  public void testRecordedHistory() {
+    History<Op, Object> history = History.create();
+    ConcurrentHashMap<String, Integer> map = new ConcurrentHashMap<>();
+
+    Spec.given(map)
+        .concurrently(4, 5_000, m -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          String key = "key" + random.nextInt(100);
+          if (random.nextBoolean()) {
+            int value = random.nextInt(1, 1000);
+            history.record(new Op(key, value), () -> {
+              Integer previous = m.put(key, value);
+              return previous == null ? 0 : previous;
+            });
+          } else {
+            history.record(new Op(key, null), () -> m.getOrDefault(key, 0));
+          }
+        });
+
+    assertEquals(20_000, history.size());
+    long start = System.nanoTime();
+    Spec.given(history)
+        .expect(h -> h.check(register.partitionedBy(op -> op.key)), to().beLinearizable());
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+  }
+
+  @Test
+  public void testBrokenCounter() {
+    History<String, Object> history = History.create();
+    int[] value = new int[1];
+    // a read-modify-write that is not atomic
+    Spec.given(value)
+        .concurrently(Stress.<int[]>of(
+            v -> history.record("increment", () -> incrementSlowly(v)),
+            v -> history.record("increment", () -> incrementSlowly(v)))
+            .iterations(1)
+            .spin(0));
+
+    try {
+      Spec.given(history)
+          .expect(h -> h.check(counter), to().beLinearizable());
+      fail();
+    } catch (AssertionError error) {
+      assertTrue(error.getMessage().contains("not linearizable"));
+    }
+  }
+
+  @Test
+  public void testExceptionsAreRecorded() {
+    History<String, Object> history = History.create();
+    try {
+      history.record("boom", () -> {
+        throw new IllegalStateException();
+      });
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(history.operations().get(0).error() instanceof IllegalStateException);
+      assertNull(history.operations().get(0).output());
+    }
+  }
+
+  @Test
+  public void testFailedOperationsAreNotGivenToTheModel() {
+    History<String, Integer> history = History.create();
+    int[] value = new int[1];
+    history.record("increment", () -> ++value[0]);
+    try {
+      history.record("increment", () -> {
+        throw new IllegalStateException();
+      });
+      fail();
+    } catch (IllegalStateException e) {
+      // recorded
+    }
+    history.record("increment", () -> ++value[0]);
+
+    // unboxes the output, which would fail for a recorded exception
+    Model<Integer, String, Integer> model = new Model<Integer, String, Integer>() {
+      @Override
+      public Integer initial() {
+        return 0;
+      }
+
+      @Override
+      public Integer step(Integer state, String input, Integer output) {
+        int next = state + 1;
+        return output == next ? next : null;
+      }
+    };
+    assertTrue(history.check(model).isLinearizable());
+  }
+
+  private static int incrementSlowly(int[] value) {
+    int current = value[0];
+    try {
+      Thread.sleep(50);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    value[0] = current + 1;
+    return value[0];
+  }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.backpackcloud.kodo.Expectation.it;
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link Parallelism} and {@link SpecDefinition#parallelEach(Class, java.util.function.Consumer)}
+ */
+public class ParallelismTests {
+
+  private final List<Integer> numbers = numbers(10_000);
+
+  private static List<Integer> numbers(int size) {
+    List<Integer> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(i);
+    }
+    return result;
+  }
+
+  @Test
+  public void testEvaluatesEveryElement() {
+    Set<Integer> evaluated = ConcurrentHashMap.newKeySet();
+
+    Spec.given(numbers)
+        .parallelEach(Integer.class, spec -> spec.when(evaluated::add), Parallelism.of(4));
+
+    assertEquals(new HashSet<>(numbers), evaluated);
+  }
+
+  @Test
+  public void testUsesMoreThanOneThread() {
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Spec.given(numbers)
+          .parallelEach(Integer.class, spec -> spec.when(() -> {
+            threads.add(Thread.currentThread());
+            sleep();
+          }), Parallelism.on(pool));
+    } finally {
+      pool.shutdown();
+    }
+    assertTrue(threads.size() > 1);
+  }
+
+  @Test
+  public void testAggregatesFailures() {
+    try {
+      Spec.given(numbers)
+          .parallelEach(Integer.class, spec -> spec.expect(i -> i % 1000 != 0));
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(10, error.count());
+      assertEquals(10, error.failures().size());
+      assertEquals(10, error.getSuppressed().length);
+      assertTrue(error.getMessage().startsWith("10 of 10000 elements failed"));
+    }
+  }
+
+  @Test
+  public void testAggregatesExceptions() {
+    try {
+      Spec.given(numbers)
+          .parallelEach(Integer.class, spec -> spec.when(i -> {
+            if (i == 42) {
+              throw new IllegalStateException("boom");
+            }
+          }));
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(1, error.count());
+      assertTrue(error.failures().get(0) instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testBoundsReportedFailures() {
+    try {
+      Spec.given(numbers)
+          .parallelEach(Integer.class, spec -> spec.expect(it(), to().be(-1)));
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(10_000, error.count());
+      assertEquals(100, error.failures().size());
+    }
+  }
+
+  @Test
+  public void testFailFast() {
+    AtomicInteger evaluated = new AtomicInteger();
+    try {
+      Spec.given(numbers)
+          .parallelEach(Integer.class, spec -> spec
+              .when(evaluated::incrementAndGet)
+              .expect(false), Parallelism.of(2).failFast());
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertTrue(error.count() >= 1);
+      assertTrue(evaluated.get() < numbers.size());
+    }
+  }
+
+  @Test
+  public void testWithSplitter() {
+    Set<Integer> evaluated = ConcurrentHashMap.newKeySet();
+
+    Spec.given(Collections.singletonMap("numbers", numbers))
+        .parallelEach(Integer.class, map -> map.get("numbers"), spec -> spec.when(evaluated::add));
+
+    assertEquals(numbers.size(), evaluated.size());
+  }
+
+  @Test
+  public void testWithUnknownSize() {
+    AtomicInteger evaluated = new AtomicInteger();
+    Iterable<Integer> iterable = numbers::iterator;
+
+    Spec.given(iterable)
+        .parallelEach(Integer.class, spec -> spec.when(evaluated::incrementAndGet), Parallelism.of(4));
+
+    assertEquals(numbers.size(), evaluated.get());
+  }
+
+  @Test
+  public void testVirtualThreads() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<Integer> elements = numbers(500);
+
+    long start = System.nanoTime();
+    Spec.given(elements)
+        .parallelEach(Integer.class, spec -> spec.when(() -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          sleep(50);
+          running.decrementAndGet();
+        }), Parallelism.virtualThreads(100));
+    long elapsed = System.nanoTime() - start;
+
+    assertTrue(maxRunning.get() <= 100);
+    assertTrue(maxRunning.get() > 1);
+    // 500 blocking elements of 50 ms in 5 rounds of 100 instead of 25 seconds
+    assertTrue(elapsed < TimeUnit.SECONDS.toNanos(10));
+  }
+
+  @Test
+  public void testVirtualThreadsAggregatesFailures() {
+    try {
+      Spec.given(numbers)
+          .parallelEach(Integer.class, spec -> spec.expect(i -> i % 1000 != 0), Parallelism.virtualThreads(64));
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(10, error.count());
+      assertTrue(error.getMessage().startsWith("10 of 10000 elements failed"));
+    }
+  }
+
+  @Test
+  public void testVirtualThreadsFailFast() {
+    AtomicInteger evaluated = new AtomicInteger();
+    try {
+      Spec.given(numbers)
+          .parallelEach(Integer.class, spec -> spec
+              .when(evaluated::incrementAndGet)
+              .expect(false), Parallelism.virtualThreads(2).failFast());
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertTrue(evaluated.get() < numbers.size());
+    }
+  }
+
+  @Test
+  public void testRunIndependentSpecs() {
+    Set<String> evaluated = ConcurrentHashMap.newKeySet();
+    try {
+      Parallelism.virtualThreads(10).run(
+          () -> Spec.given("a").when(evaluated::add).expect(true),
+          () -> Spec.given("b").when(evaluated::add).expect(false),
+          () -> Spec.given("c").when(evaluated::add).expect(true)
+      );
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(1, error.count());
+    }
+    assertEquals(3, evaluated.size());
+  }
+
+  @Test
+  public void testErrorsArePropagated() {
+    for (Parallelism parallelism : new Parallelism[]{Parallelism.of(4), Parallelism.virtualThreads(4)}) {
+      List<Integer> elements = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        elements.add(i);
+      }
+      try {
+        parallelism.execute(elements, i -> {
+          if (i == 50) {
+            throw new StackOverflowError("element " + i);
+          }
+        });
+        fail();
+      } catch (StackOverflowError e) {
+        // expected in both modes
+      }
+    }
+  }
+
+  @Test
+  public void testCheckedExceptionsArePropagated() {
+    try {
+      Parallelism.virtualThreads(2).run(() -> sneakyThrow(new Exception("checked")));
+      fail();
+    } catch (UndeclaredThrowableException e) {
+      assertEquals("checked", e.getCause().getMessage());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E extends Throwable> void sneakyThrow(Throwable e) throws E {
+    throw (E) e;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidConcurrency() {
+    Parallelism.virtualThreads(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    Parallelism.of(0);
+  }
+
+  private static void sleep() {
+    sleep(1);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link Spec#forAll(Gen, java.util.function.Consumer)}
+ */
+public class PropertyTests {
+
+  private static PropertyFailedError falsify(Property<?> property, java.util.function.Consumer spec) {
+    try {
+      property.check(spec);
+    } catch (PropertyFailedError e) {
+      return e;
+    }
+    fail();
+    return null;
+  }
+
+  @Test
+  public void testPassingProperty() {
+    AtomicLong cases = new AtomicLong();
+    Spec.forAll(Gen.lists(Gen.ints(), 20))
+        .cases(10_000)
+        .check(list -> list
+            .when(l -> cases.incrementAndGet())
+            .expectInt(List::size, to().beBetween(0, 20)));
+
+    assertEquals(10_000, cases.get());
+  }
+
+  @Test
+  public void testRanges() {
+    Spec.forAll(Gen.zip(Gen.ints(-5, 5), Gen.doubles(10, 20), (i, d) -> new Object[]{i, d}), values -> values
+        .expectInt(v -> (Integer) v[0], to().beBetween(-5, 5))
+        .expectDouble(v -> (Double) v[1], d -> d >= 10 && d < 20));
+    Spec.forAll(Gen.strings(2, 4, "ab"), string -> string
+        .expect(s -> s.length() >= 2 && s.length() <= 4)
+        .expect(s -> s.replace("a", "").replace("b", "").isEmpty()));
+  }
+
+  @Test
+  public void testShrinkingInts() {
+    PropertyFailedError error = falsify(Spec.forAll(Gen.ints()).seed(42),
+        spec -> ((SpecDefinition<Integer>) spec).expect(i -> i < 1000));
+
+    assertEquals(1000, error.counterexample());
+    assertEquals(42, error.seed());
+    assertTrue(error.shrinks() > 0);
+  }
+
+  @Test
+  public void testShrinkingWithFailOperationThatDoesNotThrow() {
+    FailureCollector failures = FailureCollector.create();
+    PropertyFailedError error = falsify(Spec.forAll(Gen.ints()).seed(42),
+        spec -> ((SpecDefinition<Integer>) spec).onFail(failures).expect(i -> i < 1000));
+
+    assertEquals(1000, error.counterexample());
+    assertTrue(failures.count() > 0);
+  }
+
+  @Test
+  public void testGeneratorFailures() {
+    PropertyFailedError error = falsify(Spec.forAll(Gen.ints(0, 10).map(i -> 10 / i)).seed(7).cases(1_000),
+        spec -> ((SpecDefinition<Integer>) spec).expect(i -> i >= 0));
+
+    assertEquals(7, error.seed());
+    assertTrue(error.getCause() instanceof ArithmeticException);
+  }
+
+  @Test
+  public void testShrinkingLists() {
+    PropertyFailedError error = falsify(Spec.forAll(Gen.lists(Gen.ints(0, 100), 50)).cases(1_000),
+        spec -> ((SpecDefinition<List<Integer>>) spec).expect(l -> l.stream().allMatch(i -> i <= 50)));
+    assertEquals(Collections.singletonList(51), error.counterexample());
+
+    error = falsify(Spec.forAll(Gen.lists(Gen.ints(0, 100), 50)).cases(1_000),
+        spec -> ((SpecDefinition<List<Integer>>) spec).expect(l -> l.size() < 3));
+    assertEquals(Arrays.asList(0, 0, 0), error.counterexample());
+  }
+
+  @Test
+  public void testShrinkingComposedValues() {
+    Gen<List<String>> gen = Gen.lists(Gen.strings(0, 5), 10);
+    PropertyFailedError error = falsify(Spec.forAll(gen).cases(1_000),
+        spec -> ((SpecDefinition<List<String>>) spec).expect(list -> {
+          List<String> sorted = new ArrayList<>(list);
+          Collections.sort(sorted);
+          return sorted.equals(list);
+        }));
+
+    // the smallest unsorted list of strings
+    assertEquals(Arrays.asList("a", ""), error.counterexample());
+  }
+
+  @Test
+  public void testReproducibility() {
+    Property<Integer> property = Spec.forAll(Gen.ints(0, 1_000_000)).seed(7).cases(10_000);
+    java.util.function.Consumer<SpecDefinition<Integer>> spec = i -> i.expect(value -> value % 1000 != 999);
+
+    PropertyFailedError first = falsify(property, spec);
+    PropertyFailedError second = falsify(property.parallelism(Parallelism.of(1)), spec);
+
+    assertEquals(first.failingCase(), second.failingCase());
+    assertEquals(first.original(), second.original());
+    assertEquals(999, (Integer) first.counterexample() % 1000);
+  }
+
+  @Test
+  public void testManyCases() {
+    AtomicLong cases = new AtomicLong();
+    Spec.forAll(Gen.longs(), spec -> cases.incrementAndGet());
+    assertEquals(100, cases.get());
+
+    Spec.forAll(Gen.longs())
+        .cases(1_000_000)
+        .check(spec -> spec.expectLong(Long::longValue, value -> true));
+  }
+
+}
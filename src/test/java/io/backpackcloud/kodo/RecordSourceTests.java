@@ -0,0 +1,216 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link RecordSource}
+ */
+public class RecordSourceTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path lines(int count) throws IOException {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      content.append("line ").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+    }
+    Path file = folder.newFile().toPath();
+    Files.write(file, content.toString().getBytes(StandardCharsets.US_ASCII));
+    return file;
+  }
+
+  private Path records(int count, int length) throws IOException {
+    byte[] content = new byte[count * length];
+    for (int i = 0; i < count; i++) {
+      content[i * length] = (byte) i;
+    }
+    Path file = folder.newFile().toPath();
+    Files.write(file, content);
+    return file;
+  }
+
+  private List<String> strings(Iterable<CharSequence> source) {
+    List<String> result = new ArrayList<>();
+    source.forEach(line -> result.add(line.toString()));
+    return result;
+  }
+
+  @Test
+  public void testLines() throws IOException {
+    List<String> lines = strings(RecordSource.lines(lines(1000)));
+
+    assertEquals(1000, lines.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("line " + i, lines.get(i));
+    }
+  }
+
+  @Test
+  public void testLastLineWithoutTerminator() throws IOException {
+    Path file = folder.newFile().toPath();
+    Files.write(file, "first\nsecond".getBytes(StandardCharsets.US_ASCII));
+
+    List<String> lines = strings(RecordSource.lines(file));
+    assertEquals(2, lines.size());
+    assertEquals("second", lines.get(1));
+  }
+
+  @Test
+  public void testEmptyFile() throws IOException {
+    RecordSource<CharSequence> source = RecordSource.lines(folder.newFile().toPath());
+
+    assertEquals(0, source.size());
+    assertTrue(strings(source).isEmpty());
+  }
+
+  @Test
+  public void testCharSequenceView() throws IOException {
+    CharSequence line = RecordSource.lines(lines(1)).iterator().next();
+
+    assertEquals(6, line.length());
+    assertEquals('l', line.charAt(0));
+    assertEquals("ine", line.subSequence(1, 4).toString());
+  }
+
+  @Test
+  public void testSegments() throws IOException {
+    Path file = lines(1000);
+    List<String> expected = strings(RecordSource.lines(file));
+
+    RecordSource<CharSequence> source = RecordSource.open(file, new RecordSource.Lines(), 100);
+    assertEquals(expected, strings(source));
+  }
+
+  @Test
+  public void testFixedWidth() throws IOException {
+    RecordSource<ByteBuffer> source = RecordSource.fixedWidth(records(300, 16), 16);
+
+    int i = 0;
+    for (ByteBuffer record : source) {
+      assertEquals(16, record.remaining());
+      assertEquals((byte) i++, record.get(0));
+      assertTrue(record.isReadOnly());
+    }
+    assertEquals(300, i);
+    assertEquals(300, source.spliterator().getExactSizeIfKnown());
+  }
+
+  @Test
+  public void testFixedWidthSegments() throws IOException {
+    Path file = records(300, 16);
+
+    RecordSource<ByteBuffer> source = RecordSource.open(file, new RecordSource.FixedWidth(16), 100);
+    int i = 0;
+    for (ByteBuffer record : source) {
+      assertEquals(16, record.remaining());
+      assertEquals((byte) i++, record.get(0));
+    }
+    assertEquals(300, i);
+  }
+
+  @Test
+  public void testShorterLastRecord() throws IOException {
+    Path file = folder.newFile().toPath();
+    Files.write(file, new byte[10]);
+
+    List<Integer> lengths = RecordSource.fixedWidth(file, 4).stream()
+        .map(ByteBuffer::remaining)
+        .collect(Collectors.toList());
+    assertEquals(3, lengths.size());
+    assertEquals(2, (int) lengths.get(2));
+  }
+
+  @Test
+  public void testPartition() throws IOException {
+    Path file = lines(1000);
+    RecordSource<CharSequence> source = RecordSource.lines(file);
+
+    List<RecordSource<CharSequence>> parts = source.partition(7);
+    assertEquals(7, parts.size());
+
+    List<String> lines = new ArrayList<>();
+    long size = 0;
+    for (RecordSource<CharSequence> part : parts) {
+      size += part.size();
+      lines.addAll(strings(part));
+    }
+    assertEquals(source.size(), size);
+    assertEquals(strings(source), lines);
+  }
+
+  @Test
+  public void testSplit() throws IOException {
+    Spliterator<CharSequence> spliterator = RecordSource.lines(lines(1000)).spliterator();
+    Spliterator<CharSequence> prefix = spliterator.trySplit();
+
+    assertNotNull(prefix);
+    List<String> lines = new ArrayList<>();
+    prefix.forEachRemaining(line -> lines.add(line.toString()));
+    spliterator.forEachRemaining(line -> lines.add(line.toString()));
+    assertEquals(1000, lines.size());
+    assertEquals("line 999", lines.get(999));
+  }
+
+  @Test
+  public void testEach() throws IOException {
+    Spec.given(RecordSource.lines(lines(1000)))
+        .each(CharSequence.class, spec -> spec
+            .expectInt(CharSequence::length, to().beBetween(6, 8)));
+  }
+
+  @Test
+  public void testParallelEach() throws IOException {
+    try {
+      Spec.given(RecordSource.lines(lines(10_000)))
+          .parallelEach(CharSequence.class, spec -> spec
+              .expectInt(CharSequence::length, to().beBetween(6, 8)), Parallelism.of(4));
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(9_000, error.count());
+    }
+  }
+
+}
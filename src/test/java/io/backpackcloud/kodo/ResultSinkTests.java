@@ -0,0 +1,231 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ResultSink} and {@link ResultFile}
+ */
+public class ResultSinkTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private interface SinkFactory {
+
+    ResultSink create(Path path) throws IOException;
+
+  }
+
+  private Path write(String name, SinkFactory factory) throws IOException {
+    Path path = folder.getRoot().toPath().resolve(name);
+    List<Integer> numbers = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+    try (ResultSink sink = factory.create(path)) {
+      Spec.addListener(sink);
+      try {
+        SpecDefinition<List<Integer>> spec = Spec.describe("numbers \"é\"\n").given(numbers);
+        spec.onFail(value -> {
+        }).parallelEach(Integer.class, number -> number
+            .when(() -> {
+            })
+            .expect(n -> n % 1000 != 0), Parallelism.of(4));
+      } finally {
+        Spec.removeListener(sink);
+      }
+    }
+    return path;
+  }
+
+  private void check(ResultSummary summary) {
+    // the describe spec, the given target and the elements
+    assertEquals(10_002, summary.started());
+    assertEquals(10_000, summary.ended());
+    assertEquals(10_000, summary.operations());
+    assertEquals(10_000, summary.expectations());
+    assertEquals(10, summary.failures());
+    assertEquals(1, summary.hotSpots(10).size());
+    assertEquals("numbers \"é\"\n #1", summary.hotSpots(10).get(0).name());
+    assertEquals(10, summary.hotSpots(10).get(0).count());
+    assertEquals("false", summary.hotSpots(10).get(0).sample());
+    assertEquals(20_000, summary.slowest(1).get(0).count());
+  }
+
+  @Test
+  public void testJsonLines() throws IOException {
+    Path path = write("results.jsonl", ResultSink::jsonLines);
+    List<String> lines = Files.readAllLines(path);
+    assertTrue(lines.get(0).startsWith("{\"event\":\"start\",\"description\":\"numbers \\\"é\\\"\\n\""));
+    check(ResultFile.summarize(path));
+  }
+
+  @Test
+  public void testBinary() throws IOException {
+    Path binary = write("results.bin", ResultSink::binary);
+    Path json = write("results.jsonl", ResultSink::jsonLines);
+    check(ResultFile.summarize(binary));
+    assertTrue(Files.size(binary) * 2 < Files.size(json));
+  }
+
+  @Test
+  public void testReplayOrder() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("order.bin");
+    try (ResultSink sink = ResultSink.binary(path)) {
+      sink.onStart("spec", null);
+      sink.onWhen("spec", 10);
+      sink.onFailure("spec", 1, 42);
+      sink.onExpectation("spec", 1, 20, false);
+      sink.onEnd("spec", 1, 1);
+    }
+    List<String> events = new ArrayList<>();
+    ResultFile.replay(path, new SpecListener() {
+      @Override
+      public void onStart(String description, Object target) {
+        events.add("start " + description);
+      }
+
+      @Override
+      public void onWhen(String description, long nanos) {
+        events.add("when " + nanos);
+      }
+
+      @Override
+      public void onFailure(String description, int index, Object value) {
+        events.add("failure " + index + " " + value);
+      }
+
+      @Override
+      public void onExpectation(String description, int index, long nanos, boolean passed) {
+        events.add("expect " + index + " " + nanos + " " + passed);
+      }
+
+      @Override
+      public void onEnd(String description, int expectations, int failures) {
+        events.add("end " + expectations + " " + failures);
+      }
+    });
+    assertEquals("[start spec, when 10, failure 1 42, expect 1 20 false, end 1 1]", events.toString());
+  }
+
+  @Test
+  public void testBlockingOverflow() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("blocking.bin");
+    try (ResultSink sink = ResultSink.binary(path, 4, ResultSink.Overflow.BLOCK)) {
+      Parallelism.of(4).execute(IntStream.range(0, 10_000).boxed().collect(Collectors.toList()),
+          i -> sink.onWhen("blocking", i));
+      sink.close();
+      assertEquals(10_000, sink.written());
+      assertEquals(0, sink.dropped());
+    }
+    assertEquals(10_000, ResultFile.summarize(path).operations());
+  }
+
+  @Test
+  public void testDroppingOverflow() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("dropping.bin");
+    try (ResultSink sink = ResultSink.binary(path, 1, ResultSink.Overflow.DROP)) {
+      Parallelism.of(4).execute(IntStream.range(0, 100_000).boxed().collect(Collectors.toList()),
+          i -> sink.onWhen("dropping", i));
+      sink.close();
+      assertEquals(100_000, sink.written() + sink.dropped());
+      assertEquals(sink.written(), ResultFile.summarize(path).operations());
+    }
+  }
+
+  @Test
+  public void testIgnoresEventsAfterClosing() throws IOException {
+    ResultSink sink = ResultSink.jsonLines(folder.getRoot().toPath().resolve("closed.jsonl"), 1,
+        ResultSink.Overflow.BLOCK);
+    sink.onWhen("before", 1);
+    sink.close();
+    sink.onWhen("after", 1);
+    sink.onWhen("after", 1);
+
+    assertEquals(1, sink.written());
+    assertEquals(0, sink.dropped());
+  }
+
+  private Path binary(String name, int... records) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(ResultSink.MAGIC);
+    bytes.write(ResultSink.VERSION);
+    for (int b : records) {
+      bytes.write(b);
+    }
+    return Files.write(folder.getRoot().toPath().resolve(name), bytes.toByteArray());
+  }
+
+  @Test
+  public void testSkipsUnknownRecords() throws IOException {
+    // an unknown record whose payload would be an undefined description, then
+    // a description and an operation using it
+    Path path = binary("unknown.bin", 3, 42, 99, 99, 3, ResultSink.DEFINE, 0, 'a', 3, ResultSink.WHEN, 0, 7);
+    ResultSummary summary = ResultFile.summarize(path);
+    assertEquals(1, summary.operations());
+  }
+
+  @Test
+  public void testUndefinedDescriptions() throws IOException {
+    Path path = binary("undefined.bin", 3, ResultSink.WHEN, 5, 1);
+    try {
+      ResultFile.summarize(path);
+      fail();
+    } catch (IOException e) {
+      assertEquals("Undefined description: 5", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testSummaryEntriesAreSnapshots() {
+    ResultSummary summary = new ResultSummary();
+    summary.onFailure("spec", 1, "first");
+    summary.onExpectation("spec", 1, 10, false);
+    ResultSummary.Entry failure = summary.hotSpots(1).get(0);
+    ResultSummary.Entry spec = summary.slowest(1).get(0);
+
+    summary.onFailure("spec", 1, "second");
+    summary.onExpectation("spec", 1, 10, false);
+    assertEquals(1, failure.count());
+    assertEquals("first", failure.sample());
+    assertEquals(10, spec.totalNanos());
+    assertEquals(2, summary.hotSpots(1).get(0).count());
+  }
+
+}
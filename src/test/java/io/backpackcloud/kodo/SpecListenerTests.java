@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link SpecListener}
+ */
+public class SpecListenerTests {
+
+  private final List<String> events = new CopyOnWriteArrayList<>();
+
+  private final SpecListener listener = new SpecListener() {
+
+    @Override
+    public void onStart(String description, Object target) {
+      events.add("start " + description + " " + target);
+    }
+
+    @Override
+    public void onWhen(String description, long nanos) {
+      assertTrue(nanos >= 0);
+      events.add("when " + description);
+    }
+
+    @Override
+    public void onExpectation(String description, int index, long nanos, boolean passed) {
+      assertTrue(nanos >= 0);
+      events.add("expect " + description + " #" + index + " " + (passed ? "passed" : "failed"));
+    }
+
+    @Override
+    public void onEnd(String description, int expectations, int failures) {
+      events.add("end " + description + " " + expectations + "/" + failures);
+    }
+
+  };
+
+  @Before
+  public void register() {
+    Spec.addListener(listener);
+  }
+
+  @After
+  public void unregister() {
+    Spec.removeListener(listener);
+  }
+
+  @Test
+  public void testEvents() {
+    SpecDefinition<Integer> spec = Spec.describe("spec").given(10);
+    spec.when(() -> {
+        })
+        .expect(i -> i > 5)
+        .expect(i -> i * 2, to().be(20))
+        .expectInt(i -> i, to().beBetween(0, 10))
+        .onFail(value -> {
+        })
+        .expect(i -> i < 5);
+
+    assertEquals(Arrays.asList(
+        "start spec null",
+        "start spec 10",
+        "when spec",
+        "expect spec #1 passed",
+        "expect spec #2 passed",
+        "expect spec #3 passed",
+        "expect spec #1 failed"
+    ), events);
+  }
+
+  @Test
+  public void testFailingExpectation() {
+    try {
+      Spec.given(1).expect(i -> i * 2, to().be(3));
+      fail();
+    } catch (AssertionError e) {
+      assertEquals(Arrays.asList("start  1", "expect  #1 failed"), events);
+    }
+  }
+
+  @Test
+  public void testNestedSpecs() {
+    Spec.given(Arrays.asList(1, 2))
+        .onFail(value -> {
+        })
+        .each(Integer.class, i -> i.expect(n -> n > 1).expect(n -> n > 0));
+
+    assertEquals(Arrays.asList(
+        "start  [1, 2]",
+        "start  1",
+        "expect  #1 failed",
+        "expect  #2 passed",
+        "end  2/1",
+        "start  2",
+        "expect  #1 passed",
+        "expect  #2 passed",
+        "end  2/0"
+    ), events);
+  }
+
+  @Test
+  public void testPlans() {
+    Spec.plan(Integer.class)
+        .expect(i -> i > 0)
+        .run(1);
+
+    assertEquals(Arrays.asList("start  1", "expect  #1 passed", "end  1/0"), events);
+  }
+
+  @Test
+  public void testAsyncExpectations() {
+    CompletableFuture<Integer> future = new CompletableFuture<>();
+    SpecDefinition<Object> spec = Spec.given((Object) "async")
+        .expectAsync(target -> future, to().be(1));
+    assertEquals(1, events.size());
+
+    future.complete(1);
+    spec.await();
+
+    assertEquals(Arrays.asList("start  async", "expect  #1 passed"), events);
+  }
+
+  @Test
+  public void testRemovedListener() {
+    Spec.removeListener(listener);
+    Spec.given(1).expect(i -> i > 0);
+    assertTrue(events.isEmpty());
+  }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.backpackcloud.kodo.Expectation.it;
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link SpecPlan}
+ */
+public class SpecPlanTests {
+
+  private final SpecPlan<String> plan = Spec.plan(String.class)
+      .expect(String::length, to().not().be(0))
+      .expectInt(String::length, to().beBetween(1, 5))
+      .expect(s -> s.equals(s.toLowerCase()));
+
+  @Test
+  public void testDoesNotExecuteWhileRecording() {
+    AtomicInteger calls = new AtomicInteger();
+
+    SpecPlan<String> recorded = Spec.plan(String.class)
+        .when(s -> calls.incrementAndGet())
+        .expect(s -> calls.incrementAndGet(), to().be(2));
+
+    assertEquals(0, calls.get());
+    assertEquals(2, recorded.size());
+
+    recorded.run("kodo");
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testRun() {
+    plan.run("kodo");
+    plan.runAll(Arrays.asList("a", "bb", "ccc"));
+  }
+
+  @Test(expected = AssertionError.class)
+  public void testRunFails() {
+    plan.run("KODO");
+  }
+
+  @Test(expected = AssertionError.class)
+  public void testRunAllFails() {
+    plan.runAll(Arrays.asList("a", "toolong"));
+  }
+
+  @Test
+  public void testImmutable() {
+    SpecPlan<String> other = plan.expect(false);
+
+    assertNotSame(plan, other);
+    assertEquals(3, plan.size());
+    assertEquals(4, other.size());
+    plan.run("kodo");
+  }
+
+  @Test
+  public void testOnFail() {
+    FailureCollector failures = FailureCollector.create();
+
+    Spec.plan(String.class)
+        .onFail(failures)
+        .expectInt(String::length, to().beBetween(1, 5))
+        .expect(it(), to().be("kodo"))
+        .runAll(Arrays.asList("kodo", "KODO", "toolong"));
+
+    assertEquals(3, failures.count());
+  }
+
+  @Test
+  public void testRunAllInParallel() {
+    List<String> targets = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      targets.add(i % 100 == 0 ? "INVALID" : "valid");
+    }
+    try {
+      plan.runAll(targets, Parallelism.of(4));
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(10, error.count());
+    }
+  }
+
+  @Test
+  public void testEach() {
+    List<Integer> evaluated = new ArrayList<>();
+
+    Spec.plan(List.class)
+        .each(Integer.class, spec -> spec.when(evaluated::add))
+        .run(Arrays.asList(1, 2, 3));
+
+    assertEquals(Arrays.asList(1, 2, 3), evaluated);
+  }
+
+  private SpecPlan<String> plan(FailureCollector failures) {
+    return Spec.plan(String.class)
+        .when(s -> {
+        })
+        .onFail(failures)
+        .expect(String::length, to().be(4))
+        .expect(it(), to().be("other"))
+        .expectInt(String::length, to().beBetween(1, 2))
+        .expectLong(String::length, value -> value == 4)
+        .expectDouble(String::length, to().beCloseTo(1, 0.1))
+        .expect(s -> s.isEmpty())
+        .expect(false);
+  }
+
+  @Test
+  public void testCompiledRunMatchesSpecDefinition() {
+    FailureCollector compiled = FailureCollector.create();
+    plan(compiled).run("kodo");
+
+    FailureCollector replayed = FailureCollector.create();
+    SpecListener listener = new SpecListener() {
+    };
+    Spec.addListener(listener);
+    try {
+      plan(replayed).run("kodo");
+    } finally {
+      Spec.removeListener(listener);
+    }
+
+    assertEquals(5, compiled.count());
+    assertEquals(replayed.failures().toString(), compiled.failures().toString());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGiven() {
+    plan.given("other");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testBegin() {
+    plan.begin();
+  }
+
+}
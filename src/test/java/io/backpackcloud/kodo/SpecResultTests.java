@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link SpecResult}
+ */
+public class SpecResultTests {
+
+  @Test
+  public void testTree() {
+    SpecDefinition<List<Integer>> spec = Spec.describe("numbers").given(Arrays.asList(1, 2));
+    spec.when(() -> {
+    })
+        .expect(list -> list.size(), to().be(2))
+        .onFail(value -> {
+        })
+        .each(Integer.class, number -> number.expect(n -> n > 1));
+
+    SpecResult root = spec.result();
+    assertEquals(SpecResult.Kind.DESCRIBE, root.kind());
+    assertEquals("numbers", root.label());
+    assertFalse(root.passed());
+
+    SpecResult given = root.children().get(0);
+    assertEquals(SpecResult.Kind.GIVEN, given.kind());
+    assertTrue(given.label().startsWith("java.util.Arrays$ArrayList@"));
+
+    List<SpecResult> children = given.children();
+    assertEquals(4, children.size());
+    assertEquals(SpecResult.Kind.WHEN, children.get(0).kind());
+    assertEquals("expectation #1", children.get(1).label());
+    assertTrue(children.get(1).passed());
+    assertNull(children.get(1).failure());
+
+    SpecResult first = children.get(2);
+    assertEquals(SpecResult.Kind.ELEMENT, first.kind());
+    assertEquals("1", first.label());
+    assertFalse(first.passed());
+    assertEquals(false, first.children().get(0).failure());
+    assertTrue(children.get(3).passed());
+
+    assertTrue(root.nanos() >= given.nanos());
+    assertEquals(root.nanos(), given.nanos());
+  }
+
+  @Test
+  public void testFailureInTheChain() {
+    SpecDefinition<Integer> spec = Spec.describe("failing").given(1);
+    try {
+      spec.expect(i -> i + 1, to().be(3));
+      fail();
+    } catch (AssertionError e) {
+      SpecResult expectation = spec.result().children().get(0).children().get(0);
+      assertFalse(expectation.passed());
+      assertEquals(2, expectation.failure());
+    }
+  }
+
+  @Test
+  public void testRendering() {
+    SpecDefinition<String> spec = Spec.describe("a \"quoted\" spec").given("target");
+    spec.onFail(value -> {
+    }).expect(s -> s.isEmpty());
+
+    String rendered = spec.result().render();
+    assertTrue(rendered.startsWith("describe a \"quoted\" spec ("));
+    assertTrue(rendered.contains("  given target ("));
+    assertTrue(rendered.contains("    expect expectation #1 (") && rendered.contains("FAILED: false"));
+
+    String json = spec.result().toJson();
+    assertTrue(json.startsWith("{\"kind\":\"describe\",\"label\":\"a \\\"quoted\\\" spec\""));
+    assertTrue(json.contains("\"failure\":\"false\""));
+  }
+
+  @Test
+  public void testBegin() {
+    SpecDefinition<Integer> spec = Spec.describe("restarted").given(1);
+    spec.expect(true);
+    SpecDefinition<Integer> other = spec.begin().given(2);
+    other.expect(false, value -> {
+    });
+
+    SpecResult result = other.result();
+    assertEquals("restarted", result.label());
+    assertEquals(2, result.children().size());
+    assertEquals("2", result.children().get(1).label());
+    assertFalse(result.passed());
+  }
+
+  @Test
+  public void testTargetsAreNotRetained() {
+    List<Integer> target = new ArrayList<>(Arrays.asList(1, 2));
+    SpecDefinition<List<Integer>> spec = Spec.describe("labels").given(target);
+    target.add(3);
+
+    SpecResult given = spec.result().children().get(0);
+    assertEquals("java.util.ArrayList@" + Integer.toHexString(System.identityHashCode(target)), given.label());
+    assertTrue(given.children().isEmpty());
+    assertTrue(given.passed());
+    assertEquals(0, given.nanos());
+  }
+
+  @Test
+  public void testRetainingTargets() {
+    System.setProperty(SpecResult.RETAIN_TARGETS_PROPERTY, "true");
+    try {
+      List<Integer> target = new ArrayList<>(Arrays.asList(1, 2));
+      SpecDefinition<List<Integer>> spec = Spec.describe("labels").given(target);
+      target.add(3);
+
+      assertEquals("[1, 2, 3]", spec.result().children().get(0).label());
+    } finally {
+      System.clearProperty(SpecResult.RETAIN_TARGETS_PROPERTY);
+    }
+  }
+
+  @Test
+  public void testFailingOperation() {
+    SpecDefinition<Integer> spec = Spec.describe("operation").given(1);
+    IllegalStateException error = new IllegalStateException();
+    try {
+      spec.when(() -> {
+        throw error;
+      });
+      fail();
+    } catch (IllegalStateException e) {
+      SpecResult when = spec.result().children().get(0).children().get(0);
+      assertEquals(SpecResult.Kind.WHEN, when.kind());
+      assertFalse(when.passed());
+      assertEquals(error, when.failure());
+    }
+    spec.expect(true);
+    assertTrue(spec.result().children().get(0).children().get(1).passed());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testNotRecorded() {
+    Spec.given(1).result();
+  }
+
+}
@@ -48,6 +48,7 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static io.backpackcloud.kodo.Expectation.to;
 
 /**
  * Tests for the SpecDefinition implementation
@@ -196,6 +197,33 @@ public class SpecTests {
     spec.expect(o -> true);
   }
 
+  @Test
+  public void testExpectWithPrimitives() {
+    Spec.given("kodo")
+        .expectInt(String::length, to().beBetween(1, 4))
+        .expectLong(s -> s.length() * 1_000_000_000L, to().beBetween(4_000_000_000L, 4_000_000_000L))
+        .expectDouble(s -> s.length() / 3.0, to().beCloseTo(1.333, 0.001));
+  }
+
+  @Test
+  public void testFailExpectWithPrimitives() {
+    Consumer consumer = mock(Consumer.class);
+
+    spec.expectInt(o -> 5, to().beBetween(1, 4), consumer);
+    verify(consumer).accept(5);
+
+    spec.expectLong(o -> 5L, to().beBetween(1L, 4L), consumer);
+    verify(consumer).accept(5L);
+
+    spec.expectDouble(o -> 5.0, to().beCloseTo(1.0, 0.1), consumer);
+    verify(consumer).accept(5.0);
+  }
+
+  @Test(expected = AssertionError.class)
+  public void testFailExpectWithInt() {
+    spec.expectInt(o -> 5, to().beBetween(1, 4));
+  }
+
   @Test
   public void testEach() {
     List<Integer> ints = Arrays.asList(1, 2, 3);
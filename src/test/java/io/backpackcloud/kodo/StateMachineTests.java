@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link Spec#stateMachine(java.util.function.Supplier, java.util.function.Supplier)}
+ */
+public class StateMachineTests {
+
+  /**
+   * A ring buffer that overwrites the oldest element when it is full.
+   */
+  static class Ring {
+
+    private final int[] buffer = new int[4];
+    private int head;
+    private int size;
+
+    void offer(int value) {
+      buffer[(head + size) % buffer.length] = value;
+      size = Math.min(size + 1, buffer.length);
+    }
+
+    int poll() {
+      int value = buffer[head];
+      head = (head + 1) % buffer.length;
+      size--;
+      return value;
+    }
+
+    int size() {
+      return size;
+    }
+
+  }
+
+  private static StateMachine<Ring, List<Integer>> ring() {
+    return Spec.<Ring, List<Integer>>stateMachine(Ring::new, LinkedList::new)
+        .command("offer", Gen.ints(0, 100), Ring::offer, List::add)
+        .call("poll", model -> !model.isEmpty(), Gen.constant(0), (ring, x) -> ring.poll(), (model, x) -> model.remove(0))
+        .invariant((ring, model) -> ring.expect(Ring::size, to().be(model.size())));
+  }
+
+  @Test
+  public void testPassingStateMachine() {
+    AtomicLong steps = new AtomicLong();
+    Spec.stateMachine(ArrayDeque<Integer>::new, LinkedList<Integer>::new)
+        .command("push", Gen.ints(), Deque::push, (model, x) -> model.add(0, x))
+        .call("pop", model -> !model.isEmpty(), Gen.constant(0), (deque, x) -> deque.pop(), (model, x) -> model.remove(0))
+        .call("peek", Gen.constant(0), (deque, x) -> deque.peekFirst(), (model, x) -> model.isEmpty() ? null : model.get(0))
+        .invariant((deque, model) -> deque.when(() -> steps.incrementAndGet()).expect(Deque::size, to().be(model.size())))
+        .cases(1_000)
+        .check();
+
+    assertTrue(steps.get() > 1_000);
+  }
+
+  @Test
+  public void testShrinkingToTheShortestSequence() {
+    try {
+      ring().seed(1).cases(1_000).check();
+      fail();
+    } catch (PropertyFailedError e) {
+      assertEquals("[offer(0), offer(0), offer(0), offer(0), offer(0)]", e.counterexample().toString());
+      assertTrue(e.getCause().getMessage().startsWith("step 5 of 5 (offer(0)) failed"));
+    }
+  }
+
+  @Test
+  public void testPreconditions() {
+    // without the overflow, only polls that are allowed by the model are generated
+    ring().command("offer", Gen.ints(0, 100), Ring::offer, List::add)
+        .maxSteps(4)
+        .cases(1_000)
+        .check();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testNoCommands() {
+    Spec.stateMachine(Object::new, Object::new).check();
+  }
+
+}
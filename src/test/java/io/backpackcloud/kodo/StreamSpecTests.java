@@ -0,0 +1,225 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static io.backpackcloud.kodo.Expectation.it;
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link StreamSpec} and {@link SpecDefinition#eachStreamed(Class, java.util.function.Function, java.util.function.Consumer)}
+ */
+public class StreamSpecTests {
+
+  private Stream<Integer> numbers(int count) {
+    return IntStream.range(0, count).boxed();
+  }
+
+  @Test
+  public void testSummary() {
+    StreamSummary summary = Spec.stream(numbers(10_000))
+        .each(spec -> spec.expect(i -> i % 100 != 0));
+
+    assertEquals(10_000, summary.checked());
+    assertEquals(100, summary.failed());
+    assertEquals(100, summary.failures().size());
+    assertTrue(summary.throughput() > 0);
+  }
+
+  @Test
+  public void testVerify() {
+    Spec.stream(numbers(100)).each(spec -> spec.expect(true)).verify();
+
+    try {
+      Spec.stream(numbers(100)).each(spec -> spec.expect(it(), to().not().be(50))).verify();
+      fail();
+    } catch (MultipleFailuresError error) {
+      assertEquals(1, error.count());
+      assertTrue(error.getMessage().startsWith("1 of 100 elements failed"));
+    }
+  }
+
+  @Test
+  public void testBatches() {
+    List<Long> progress = new ArrayList<>();
+    AtomicInteger pulled = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    AtomicInteger checked = new AtomicInteger();
+
+    Spec.stream(numbers(1000).peek(i -> pulled.incrementAndGet()))
+        .batchSize(64)
+        .onProgress(summary -> progress.add(summary.checked()))
+        .each(spec -> spec.when(() -> {
+          int count = checked.incrementAndGet();
+          maxInFlight.accumulateAndGet(pulled.get() - count, Math::max);
+        }));
+
+    assertEquals(16, progress.size());
+    assertEquals(Long.valueOf(64), progress.get(0));
+    assertEquals(Long.valueOf(1000), progress.get(15));
+    assertTrue(maxInFlight.get() < 64);
+  }
+
+  @Test
+  public void testFailFast() {
+    StreamSummary summary = Spec.stream(numbers(1000))
+        .failFast()
+        .each(spec -> spec.expect(it(), to().not().be(10)));
+
+    assertEquals(11, summary.checked());
+    assertEquals(1, summary.failed());
+  }
+
+  @Test
+  public void testParallel() {
+    StreamSummary summary = Spec.stream(numbers(10_000))
+        .batchSize(1000)
+        .parallel(Parallelism.of(4))
+        .each(spec -> spec.expect(i -> i % 10 != 0));
+
+    assertEquals(10_000, summary.checked());
+    assertEquals(1000, summary.failed());
+    assertEquals(100, summary.failures().size());
+  }
+
+  @Test
+  public void testOnFail() {
+    FailureCollector failures = FailureCollector.create();
+
+    StreamSummary summary = Spec.stream(numbers(100))
+        .onFail(failures)
+        .each(spec -> spec.expect(it(), to().be(1)));
+
+    assertEquals(100, summary.checked());
+    assertEquals(99, summary.failed());
+    assertEquals(99, failures.count());
+    assertTrue(summary.failures().isEmpty());
+  }
+
+  @Test
+  public void testOnFailWithFailFast() {
+    FailureCollector failures = FailureCollector.create();
+
+    StreamSummary summary = Spec.stream(numbers(1000))
+        .onFail(failures)
+        .failFast()
+        .each(spec -> spec.expect(it(), to().not().be(10)));
+
+    assertEquals(11, summary.checked());
+    assertEquals(1, summary.failed());
+    assertEquals(1, failures.count());
+  }
+
+  @Test
+  public void testParallelFailFastCountsEvaluatedElements() {
+    StreamSummary summary = Spec.stream(numbers(1000))
+        .batchSize(1000)
+        .parallel(Parallelism.of(2).failFast())
+        .each(spec -> spec
+            .when(() -> LockSupport.parkNanos(100_000))
+            .expect(it(), to().not().be(0)));
+
+    assertEquals(1, summary.failed());
+    assertTrue(summary.checked() < 1000);
+  }
+
+  @Test
+  public void testParallelFailFastWithFailOperationThatDoesNotThrow() {
+    FailureCollector failures = FailureCollector.create();
+
+    StreamSummary summary = Spec.stream(numbers(1000))
+        .batchSize(1000)
+        .parallel(Parallelism.of(2))
+        .failFast()
+        .onFail(failures)
+        .each(spec -> spec
+            .when(() -> LockSupport.parkNanos(100_000))
+            .expect(it(), to().not().be(0)));
+
+    assertEquals(1, summary.failed());
+    assertEquals(1, failures.count());
+    assertTrue(summary.checked() < 1000);
+    assertTrue(summary.failures().isEmpty());
+  }
+
+  @Test
+  public void testPlanWithOnFail() {
+    FailureCollector failures = FailureCollector.create();
+
+    StreamSummary summary = Spec.stream(numbers(100))
+        .each(Spec.plan(Integer.class).onFail(failures).expectInt(i -> i, to().beBetween(0, 49)));
+
+    assertEquals(50, summary.failed());
+    assertEquals(50, failures.count());
+  }
+
+  @Test
+  public void testPlan() {
+    StreamSummary summary = Spec.stream(numbers(100))
+        .each(Spec.plan(Integer.class).expectInt(i -> i, to().beBetween(0, 49)));
+
+    assertEquals(50, summary.failed());
+  }
+
+  @Test
+  public void testClosesTheStream() {
+    AtomicBoolean closed = new AtomicBoolean();
+    Spec.stream(numbers(10).onClose(() -> closed.set(true))).each(spec -> spec.expect(true));
+    assertTrue(closed.get());
+  }
+
+  @Test
+  public void testEachStreamed() {
+    List<Integer> evaluated = new ArrayList<>();
+    AtomicBoolean closed = new AtomicBoolean();
+
+    Spec.given(Collections.nCopies(3, 7))
+        .eachStreamed(Integer.class, list -> list.stream().onClose(() -> closed.set(true)),
+            spec -> spec.when(evaluated::add).expect(it(), to().be(7)));
+
+    assertEquals(Collections.nCopies(3, 7), evaluated);
+    assertTrue(closed.get());
+  }
+
+  @Test(expected = AssertionError.class)
+  public void testEachStreamedFails() {
+    Spec.given(Collections.nCopies(3, 7))
+        .eachStreamed(Integer.class, List::stream, spec -> spec.expect(it(), to().be(8)));
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link SpecDefinition#concurrently(Stress)}
+ */
+public class StressTests {
+
+  @Test
+  public void testExpectationsAfterStress() {
+    Spec.given(new AtomicInteger())
+        .concurrently(4, 1_000, AtomicInteger::incrementAndGet, AtomicInteger::decrementAndGet)
+        .expect(AtomicInteger::get, to().be(0));
+  }
+
+  @Test
+  public void testThreadsTakeActorsInTurns() {
+    AtomicInteger first = new AtomicInteger();
+    AtomicInteger second = new AtomicInteger();
+    Spec.given(new Object())
+        .concurrently(5, 100, target -> first.incrementAndGet(), target -> second.incrementAndGet());
+
+    assertEquals(300, first.get());
+    assertEquals(200, second.get());
+  }
+
+  @Test
+  public void testOutcomes() {
+    AtomicReference<StressReport> report = new AtomicReference<>();
+    Spec.given(new AtomicInteger())
+        .concurrently(Stress.<AtomicInteger>of(AtomicInteger::incrementAndGet, AtomicInteger::incrementAndGet)
+            .iterations(5_000)
+            .reset(counter -> counter.set(0))
+            .observe(AtomicInteger::get)
+            .forbid(0, 1)
+            .onReport(report::set));
+
+    assertEquals(5_000, report.get().count(2));
+    assertEquals(1, report.get().outcomes().size());
+    assertTrue(report.get().passed());
+  }
+
+  @Test
+  public void testForbiddenOutcome() {
+    int[] value = new int[1];
+    try {
+      Spec.given(value)
+          .concurrently(Stress.<int[]>of(array -> array[0] = 1, array -> array[0] = 2)
+              .iterations(2_000)
+              .observe(array -> array[0])
+              .forbid(1, 2));
+      fail();
+    } catch (AssertionError error) {
+      assertTrue(error.getMessage().contains("FORBIDDEN"));
+      assertTrue(error.getMessage().contains("iterations with 2 threads"));
+    }
+  }
+
+  @Test
+  public void testOutcomesAreCounted() {
+    AtomicReference<StressReport> report = new AtomicReference<>();
+    int[] counter = new int[1];
+    // a racy increment: both 1 and 2 are acceptable, only their sum is checked
+    Spec.given(counter)
+        .concurrently(Stress.<int[]>of(array -> array[0]++, array -> array[0]++)
+            .iterations(3_000)
+            .spin(0)
+            .reset(array -> array[0] = 0)
+            .observe(array -> array[0])
+            .onReport(report::set));
+
+    assertEquals(3_000, report.get().count(1) + report.get().count(2));
+  }
+
+  @Test
+  public void testActorExceptions() {
+    try {
+      Spec.given(new AtomicInteger())
+          .concurrently(2, 100, counter -> {
+            if (counter.incrementAndGet() == 50) {
+              throw new IllegalStateException("boom");
+            }
+          });
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("boom", e.getMessage());
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void testActorErrors() {
+    try {
+      Spec.given(new Object())
+          .concurrently(2, 100, target -> {
+            throw new StackOverflowError();
+          }, target -> {
+          });
+      fail();
+    } catch (StackOverflowError e) {
+      // expected
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void testBarrierActionErrorsAreReported() {
+    AtomicInteger resets = new AtomicInteger();
+    try {
+      Spec.given(new Object())
+          .concurrently(Stress.of(target -> {
+          }).threads(8).iterations(100).reset(target -> {
+            if (resets.incrementAndGet() == 10) {
+              throw new IllegalArgumentException("reset");
+            }
+          }));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("reset", e.getMessage());
+    }
+  }
+
+}
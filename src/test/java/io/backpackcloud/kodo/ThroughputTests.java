@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2014 Marcelo "Ataxexe" Guimarães <ataxexe@devnull.tools>
+ *
+ * Permission  is hereby granted, free of charge, to any person obtaining
+ * a  copy  of  this  software  and  associated  documentation files (the
+ * "Software"),  to  deal  in the Software without restriction, including
+ * without  limitation  the  rights to use, copy, modify, merge, publish,
+ * distribute,  sublicense,  and/or  sell  copies of the Software, and to
+ * permit  persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * The  above  copyright  notice  and  this  permission  notice  shall be
+ * included  in  all  copies  or  substantial  portions  of the Software.
+ *
+ * THE  SOFTWARE  IS  PROVIDED  "AS  IS",  WITHOUT  WARRANTY OF ANY KIND,
+ * EXPRESS  OR  IMPLIED,  INCLUDING  BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN  NO  EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM,  DAMAGES  OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT  OR  OTHERWISE,  ARISING  FROM,  OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE   OR   THE   USE   OR   OTHER   DEALINGS  IN  THE  SOFTWARE.
+ */
+
+package io.backpackcloud.kodo;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static io.backpackcloud.kodo.Expectation.doing;
+import static io.backpackcloud.kodo.Expectation.perSecond;
+import static io.backpackcloud.kodo.Expectation.to;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link Expectation#sustainThroughput(long, Duration)}
+ */
+public class ThroughputTests {
+
+  @Test
+  public void testSustainsThroughput() {
+    AtomicReference<ThroughputReport> report = new AtomicReference<>();
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    Spec.given(new AtomicLong())
+        .expect(doing(counter -> threads.add(Thread.currentThread())), to().sustainThroughput(1_000, perSecond())
+            .withThreads(4)
+            .during(Duration.ofMillis(100))
+            .onReport(report::set));
+
+    assertEquals(4, threads.size());
+    assertEquals(4, report.get().threadThroughput().length);
+    assertTrue(report.get().throughput() >= 1_000);
+    assertTrue(report.get().latency().count() >= report.get().operations());
+  }
+
+  @Test
+  public void testOperationCount() {
+    AtomicLong counter = new AtomicLong();
+    Spec.given(counter)
+        .expect(doing(AtomicLong::incrementAndGet), to().sustainThroughput(1, perSecond())
+            .withThreads(3)
+            .operations(10_000));
+
+    assertEquals(10_000, counter.get());
+  }
+
+  @Test
+  public void testFailsBelowThroughput() {
+    try {
+      Spec.given(1)
+          .expect(sleeping(10), to().sustainThroughput(1_000, perSecond())
+              .withThreads(2)
+              .during(Duration.ofMillis(100)));
+      fail();
+    } catch (AssertionError error) {
+      assertTrue(error.getMessage(), error.getMessage().contains("(required 1000 ops/s) in 2 threads"));
+    }
+  }
+
+  @Test
+  public void testCoordinatedOmission() {
+    AtomicReference<ThroughputReport> report = new AtomicReference<>();
+    FailureCollector failures = FailureCollector.create();
+    // one operation every 1 ms is expected, each one takes 10 ms
+    Spec.given(1)
+        .onFail(failures)
+        .expect(sleeping(10), to().sustainThroughput(1_000, perSecond())
+            .operations(5)
+            .onReport(report::set));
+
+    assertEquals(1, failures.count());
+    LatencyHistogram latency = report.get().latency();
+    assertEquals(5, report.get().operations());
+    // each stall also accounts for the 9 operations that should have started meanwhile
+    assertTrue(latency.count() >= 45);
+    assertTrue(latency.percentile(50) < latency.percentile(99));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsZeroPeriod() {
+    to().sustainThroughput(1_000, Duration.ZERO);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testPropagatesExceptions() {
+    Spec.given(1)
+        .expect(doing(i -> {
+          throw new IllegalStateException();
+        }), to().sustainThroughput(1, perSecond()).during(Duration.ofMillis(10)));
+  }
+
+  private static Consumer<Object> sleeping(long millis) {
+    return target -> {
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+  }
+
+}